@@ -0,0 +1,32 @@
+package com.melishorturlapi.benchmark;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.encoder.Encoder;
+
+/**
+ * Encodes every event like the production console appender and drops the bytes, so
+ * benchmarks pay for log formatting without filling a disk or the JMH output.
+ */
+public class DiscardingAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private Encoder<ILoggingEvent> encoder;
+
+    public void setEncoder(Encoder<ILoggingEvent> encoder) {
+        this.encoder = encoder;
+    }
+
+    @Override
+    public void start() {
+        if (encoder == null) {
+            addError("No encoder set for the appender named \"" + name + "\".");
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        encoder.encode(event);
+    }
+}
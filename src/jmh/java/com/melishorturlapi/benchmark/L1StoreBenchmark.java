@@ -0,0 +1,103 @@
+package com.melishorturlapi.benchmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.melishorturlapi.cache.OffHeapCodeStore;
+import com.melishorturlapi.cache.OffHeapShortUrlCache;
+import com.melishorturlapi.config.CacheConfig;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.service.Base62;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shortUrlCache L1 stores behind the Spring Cache API, filled with a million links: the
+ * weighed Caffeine tier against the off-heap store. Reads pick random codes from 4 threads.
+ * Setup prints the heap each store retains, which is what the GC has to trace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Dlogback.configurationFile=logback-jmh.xml", "-Xmx2g", "-XX:MaxDirectMemorySize=1g"})
+public class L1StoreBenchmark {
+
+    private static final int LINKS = 1_000_000;
+    private static final int CODE_LENGTH = 7;
+
+    @Param({"caffeine", "offheap"})
+    private String store;
+
+    private Cache cache;
+    private final String[] codes = new String[LINKS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long heapBefore = usedHeapAfterGc();
+        if ("offheap".equals(store)) {
+            cache = new OffHeapShortUrlCache(CacheConfig.SHORT_URL_CACHE,
+                new OffHeapCodeStore(LINKS * 2L, 256L * 1024 * 1024, 64, Duration.ofMinutes(10).toMillis(), System::currentTimeMillis),
+                new ConcurrentMapCache("fallback"));
+        } else {
+            cache = new CaffeineCache(CacheConfig.SHORT_URL_CACHE, Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .maximumWeight(1024L * 1024 * 1024)
+                .weigher((key, value) -> 160 + ((String) key).length() * 2 + ((ShortUrl) value).getOriginalUrl().length())
+                .recordStats()
+                .build());
+        }
+        for (int i = 0; i < LINKS; i++) {
+            String code = Base62.encode(i * 7919L, CODE_LENGTH);
+            ShortUrl shortUrl = new ShortUrl();
+            shortUrl.setShortUrl(code);
+            shortUrl.setOriginalUrl("https://www.mercadolibre.com.ar/item/MLA-" + (i * 7919L) + "?utm_source=benchmark");
+            shortUrl.setCreatedAt(1_700_000_000_000L + i);
+            cache.put(code, shortUrl);
+        }
+        // Keys the caller holds anyway (they come from the request), allocated apart from the store
+        long heapAfter = usedHeapAfterGc();
+        for (int i = 0; i < LINKS; i++) {
+            codes[i] = Base62.encode(i * 7919L, CODE_LENGTH);
+        }
+        System.out.printf("%n%s: %d links retain %d MB of heap%n", store, LINKS, (heapAfter - heapBefore) / (1024 * 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Benchmark
+    public Object get() {
+        return cache.get(codes[ThreadLocalRandom.current().nextInt(LINKS)], ShortUrl.class);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
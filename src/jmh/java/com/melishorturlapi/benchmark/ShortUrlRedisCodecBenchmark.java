@@ -0,0 +1,59 @@
+package com.melishorturlapi.benchmark;
+
+import com.melishorturlapi.cache.ShortUrlRedisCodec;
+import com.melishorturlapi.model.ShortUrl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode of one L2 value, JSON against the binary layout: the decode is what
+ * every L2 hit pays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ShortUrlRedisCodecBenchmark {
+
+    @Param({"json", "binary"})
+    private String layout;
+
+    private ShortUrlRedisCodec codec;
+    private ShortUrl value;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        codec = new ShortUrlRedisCodec("binary".equals(layout));
+        value = new ShortUrl();
+        value.setShortUrl("Ab3dE9x");
+        value.setOriginalUrl("https://www.mercadolibre.com.ar/item/MLA-123456?utm_source=benchmark");
+        value.setCreatedAt(System.currentTimeMillis());
+        value.setRedirectCount(0L);
+        encoded = codec.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.serialize(value);
+    }
+
+    @Benchmark
+    public ShortUrl decode() {
+        return codec.deserialize(encoded);
+    }
+}
@@ -0,0 +1,190 @@
+package com.melishorturlapi.benchmark;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.melishorturlapi.cache.RedisL2Cache;
+import com.melishorturlapi.cache.ShortCodeFilter;
+import com.melishorturlapi.config.CacheConfig;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+import com.melishorturlapi.service.ShortUrlService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ShortUrlService.getShortUrl, i.e. getCachedOrFetch on the short code cache, with an
+ * in-memory L2 and repository so only the service and Caffeine are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ShortUrlServiceBenchmark {
+
+    private static final String SHORT_URL_CACHE = "shortUrlCache";
+    private static final int CODES = 1000;
+
+    /**
+     * l1Hit: every code is in Caffeine. l2Hit: Caffeine keeps nothing for the short code cache,
+     * so each call goes through the single-flight load and the L2 lookup. negativeHit: unknown
+     * codes answered from the negative L1 cache.
+     */
+    @Param({"l1Hit", "l2Hit", "negativeHit"})
+    private String scenario;
+
+    private ShortUrlService shortUrlService;
+    private final String[] codes = new String[CODES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InMemoryRepository repository = new InMemoryRepository();
+        InMemoryL2Cache l2Cache = new InMemoryL2Cache();
+        for (int i = 0; i < CODES; i++) {
+            String code = String.format("b%05d", i);
+            ShortUrl shortUrl = new ShortUrl();
+            shortUrl.setShortUrl(code);
+            shortUrl.setOriginalUrl("https://www.mercadolibre.com.ar/item/MLA-" + i);
+            if (!"negativeHit".equals(scenario)) {
+                repository.save(shortUrl);
+                l2Cache.put(SHORT_URL_CACHE, code, shortUrl);
+            }
+            codes[i] = code;
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(10)).maximumSize(CODES * 2));
+        cacheManager.registerCustomCache(CacheConfig.SHORT_URL_NEGATIVE_CACHE, Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(CODES * 2)
+            .build());
+        if ("l2Hit".equals(scenario)) {
+            // Evicted on the calling thread as soon as it is written, so L1 never hits
+            cacheManager.registerCustomCache(SHORT_URL_CACHE, Caffeine.newBuilder()
+                .maximumSize(0)
+                .executor(Runnable::run)
+                .build());
+        }
+
+        shortUrlService = new ShortUrlService();
+        ReflectionTestUtils.setField(shortUrlService, "shortUrlRepository", repository);
+        ReflectionTestUtils.setField(shortUrlService, "caffeineCacheManager", cacheManager);
+        ReflectionTestUtils.setField(shortUrlService, "redisL2Cache", l2Cache);
+        ReflectionTestUtils.setField(shortUrlService, "shortCodeFilter", new ShortCodeFilter(null, null, null, null, false, 1, 0.01, 1, Duration.ofHours(1)));
+
+        // First pass fills L1 (or the negative cache) outside the measurement
+        for (String code : codes) {
+            shortUrlService.getShortUrl(code).block();
+        }
+    }
+
+    @Benchmark
+    public ShortUrl getShortUrl() {
+        return shortUrlService.getShortUrl(codes[nextIndex()]).block();
+    }
+
+    private int nextIndex() {
+        int index = next++;
+        if (next == CODES) {
+            next = 0;
+        }
+        return index;
+    }
+
+    static final class InMemoryL2Cache extends RedisL2Cache {
+        private final Map<String, ShortUrl> entries = new ConcurrentHashMap<>();
+
+        InMemoryL2Cache() {
+            super(null, null, Set.of(), 1, 30);
+        }
+
+        @Override
+        public Mono<ShortUrl> get(String cacheName, String key) {
+            return Mono.justOrEmpty(entries.get(cacheName + "::" + key));
+        }
+
+        @Override
+        public Mono<Void> put(String cacheName, String key, ShortUrl value) {
+            entries.put(cacheName + "::" + key, value);
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> putNegative(String cacheName, String key) {
+            entries.put(cacheName + "::" + key, NEGATIVE);
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> evict(String cacheName, String key) {
+            entries.remove(cacheName + "::" + key);
+            return Mono.empty();
+        }
+    }
+
+    static final class InMemoryRepository implements ReactiveShortUrlRepository {
+        private final Map<String, ShortUrl> items = new ConcurrentHashMap<>();
+
+        @Override
+        public Mono<ShortUrl> findByShortUrl(String shortUrl) {
+            return Mono.justOrEmpty(items.get(shortUrl));
+        }
+
+        @Override
+        public Flux<ShortUrl> findByOriginalUrlHash(String originalUrlHash) {
+            return Flux.fromIterable(items.values())
+                .filter(item -> originalUrlHash.equals(item.getOriginalUrlHash()));
+        }
+
+        @Override
+        public Mono<ShortUrl> save(ShortUrl shortUrl) {
+            items.put(shortUrl.getShortUrl(), shortUrl);
+            return Mono.just(shortUrl);
+        }
+
+        @Override
+        public Flux<ShortUrl> saveAll(List<ShortUrl> shortUrls) {
+            return Flux.fromIterable(shortUrls).flatMap(this::save);
+        }
+
+        @Override
+        public Mono<Void> addRedirectCount(String shortUrl, long delta) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Flux<ShortUrl> findAllByShortUrl(Collection<String> shortUrls) {
+            return Flux.fromIterable(shortUrls).flatMap(this::findByShortUrl);
+        }
+
+        @Override
+        public Mono<Void> deleteByShortUrl(String shortUrl) {
+            items.remove(shortUrl);
+            return Mono.empty();
+        }
+    }
+}
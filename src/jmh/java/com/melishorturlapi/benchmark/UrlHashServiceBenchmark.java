@@ -0,0 +1,49 @@
+package com.melishorturlapi.benchmark;
+
+import com.melishorturlapi.service.UrlHashService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UrlHashService.hashUrl, the per-create cost of the hash code strategy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class UrlHashServiceBenchmark {
+
+    @Param({"sha256", "murmur3"})
+    private String algorithm;
+
+    private UrlHashService urlHashService;
+    private final String[] urls = new String[1024];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        urlHashService = new UrlHashService(algorithm);
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = "https://www.mercadolibre.com.ar/item/MLA-" + (i * 7919) + "?utm_source=benchmark";
+        }
+    }
+
+    @Benchmark
+    public String hashUrl() {
+        return urlHashService.hashUrl(urls[next++ & (urls.length - 1)]);
+    }
+}
@@ -0,0 +1,141 @@
+package com.melishorturlapi.benchmark;
+
+import com.melishorturlapi.filters.ApiLoggingWebFilter;
+import com.melishorturlapi.filters.RateLimitWebFilter;
+import com.melishorturlapi.filters.RequestIdWebFilter;
+import com.melishorturlapi.ratelimit.ClientKeyResolver;
+import com.melishorturlapi.ratelimit.RateLimiter;
+import com.melishorturlapi.service.MetricsService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Each web filter on its own, with a chain that writes a small body like the controllers do.
+ * Every invocation builds a fresh exchange (sharing codecs and session manager, like the server
+ * does); {@link #baseline} measures just that and the chain, so it can be subtracted from the
+ * filter numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class WebFiltersBenchmark {
+
+    private static final String REQUEST_BODY = "{\"url\":\"https://www.mercadolibre.com.ar/item/MLA-123456\"}";
+    private static final byte[] RESPONSE_BODY = "{\"shortUrl\":\"http://localhost:8080/Ab3dE9\"}".getBytes(StandardCharsets.UTF_8);
+    private static final int CLIENTS = 256;
+
+    private final WebFilterChain chain = exchange -> exchange.getResponse()
+        .writeWith(Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(RESPONSE_BODY)));
+
+    private final ServerCodecConfigurer codecConfigurer = ServerCodecConfigurer.create();
+    private final DefaultWebSessionManager sessionManager = new DefaultWebSessionManager();
+    private final AcceptHeaderLocaleContextResolver localeResolver = new AcceptHeaderLocaleContextResolver();
+
+    private final InetSocketAddress[] clients = new InetSocketAddress[CLIENTS];
+    private int next;
+
+    private ApiLoggingWebFilter apiLoggingWebFilter;
+    private ApiLoggingWebFilter sampledApiLoggingWebFilter;
+    private RequestIdWebFilter requestIdWebFilter;
+    private RateLimitWebFilter rateLimitWebFilter;
+    private RateLimitWebFilter generousRateLimitWebFilter;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = new InetSocketAddress("10.0." + (i >> 8) + "." + (i & 0xFF), 40000);
+        }
+        apiLoggingWebFilter = new ApiLoggingWebFilter(0, 0.01, 1, 2048);
+        sampledApiLoggingWebFilter = new ApiLoggingWebFilter(1, 1, 1, 2048);
+        requestIdWebFilter = new RequestIdWebFilter();
+        MetricsService metricsService = new MetricsService(100, 8192, 10, 1000);
+        ClientKeyResolver clientKeyResolver = new ClientKeyResolver(List.of());
+        rateLimitWebFilter = new RateLimitWebFilter(
+            new RateLimiter(metricsService, 65536, 100, 10, 10, 20, 30, 60), clientKeyResolver, true);
+        generousRateLimitWebFilter = new RateLimitWebFilter(
+            new RateLimiter(metricsService, 65536, 100, 10, Integer.MAX_VALUE, 1, 30, 60), clientKeyResolver, true);
+    }
+
+    @Benchmark
+    public Object baseline() {
+        ServerWebExchange exchange = postExchange();
+        chain.filter(exchange).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public Object apiLogging() {
+        ServerWebExchange exchange = postExchange();
+        apiLoggingWebFilter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    // Every call captured and logged, the cost a sampled request pays
+    @Benchmark
+    public Object apiLoggingSampled() {
+        ServerWebExchange exchange = postExchange();
+        sampledApiLoggingWebFilter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public Object requestId() {
+        ServerWebExchange exchange = postExchange();
+        requestIdWebFilter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    // Buckets drain after warmup, so this mostly measures the 429 path under sustained load
+    @Benchmark
+    public Object rateLimit() {
+        ServerWebExchange exchange = postExchange();
+        rateLimitWebFilter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    // Never runs out, so this is the allow path every request takes under normal traffic
+    @Benchmark
+    public Object rateLimitAllowed() {
+        ServerWebExchange exchange = postExchange();
+        generousRateLimitWebFilter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private ServerWebExchange postExchange() {
+        InetSocketAddress client = clients[next++ & (CLIENTS - 1)];
+        MockServerHttpRequest request = MockServerHttpRequest.post("/api/v1/shorturl")
+            .remoteAddress(client)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(REQUEST_BODY);
+        return new DefaultServerWebExchange(request, new MockServerHttpResponse(), sessionManager, codecConfigurer, localeResolver);
+    }
+}
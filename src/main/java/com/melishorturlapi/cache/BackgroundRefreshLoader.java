@@ -0,0 +1,53 @@
+package com.melishorturlapi.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Loader for L1 tiers with refreshAfterWrite. Misses are never loaded here, {@link #load}
+ * returns null so Spring's cache lookup stays a plain miss and the caller goes through
+ * L2 and single-flight as before. Only refreshes do work: a hot entry past its refresh age
+ * is served as is while the reactive fetch runs, then replaced, or removed if the fetch
+ * finds nothing. A failed refresh keeps the old value until it expires.
+ *
+ * Refreshes are counted here: Caffeine's own load stats also count every miss, since the
+ * lookup calls {@link #load} and gets null back.
+ */
+public class BackgroundRefreshLoader<V> implements CacheLoader<Object, Object> {
+
+    private final Function<String, Mono<V>> fetcher;
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public BackgroundRefreshLoader(Function<String, Mono<V>> fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    @Override
+    public Object load(Object key) {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Object> asyncReload(Object key, Object oldValue, Executor executor) {
+        refreshes.increment();
+        return (CompletableFuture<Object>) fetcher.apply((String) key)
+            .doOnError(e -> failures.increment())
+            .toFuture();
+    }
+
+    public long refreshCount() {
+        return refreshes.sum();
+    }
+
+    public long failureCount() {
+        return failures.sum();
+    }
+}
@@ -0,0 +1,34 @@
+package com.melishorturlapi.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * {@link InvalidationBus} inside one JVM, for tests and single-node runs without Redis.
+ * Several {@link L1Invalidator}s sharing one instance behave like nodes of a cluster.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.bus", havingValue = "in-process")
+public class InProcessInvalidationBus implements InvalidationBus {
+
+    private final Sinks.Many<String> sink = Sinks.many().multicast().directBestEffort();
+
+    @Override
+    public Mono<Void> publish(String message) {
+        // Dropped when nobody listens, like a pub/sub message without subscribers
+        return Mono.fromRunnable(() -> {
+            synchronized (sink) {
+                sink.tryEmitNext(message);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Flux<String>> receive() {
+        return Mono.just(sink.asFlux());
+    }
+}
@@ -0,0 +1,28 @@
+package com.melishorturlapi.cache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Channel between nodes for L1 invalidations, see {@link L1Invalidator}. Delivery is best
+ * effort: messages sent while a node is not subscribed are lost to it.
+ */
+public interface InvalidationBus {
+
+    Mono<Void> publish(String message);
+
+    /** Completes once the subscription is in place, with the messages that follow it. */
+    Mono<Flux<String>> receive();
+
+    /**
+     * Emits true when the subscription is delivering again after a gap that did not error the
+     * receive Flux (a transparent reconnect): messages sent during the gap were lost. False
+     * marks the start of such a gap.
+     */
+    default Flux<Boolean> connectionChanges() {
+        return Flux.never();
+    }
+
+    default void close() {
+    }
+}
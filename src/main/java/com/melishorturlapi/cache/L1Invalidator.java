@@ -0,0 +1,170 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.config.CacheConfig;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Keeps the Caffeine L1 of every node in step with creates and deletes made on any of them.
+ * The node that writes evicts its own L1 as before and publishes the keys; the other nodes
+ * evict them when the message arrives, so L1 TTLs no longer bound how long a deleted link
+ * keeps resolving elsewhere.
+ *
+ * The bus is best effort, so whenever the subscription is (re)established the L1 tiers are
+ * cleared: anything published while this node was not listening is dropped with them. That
+ * covers both a subscription that errors and is retried here, and a transparent reconnect
+ * that only shows up in {@link InvalidationBus#connectionChanges()}. L1 is left alone when the
+ * connection drops: with Redis down it is what keeps lookups off DynamoDB.
+ *
+ * Message: the sender's node id, then one "cacheName TAB key" line per key.
+ */
+@Component
+public class L1Invalidator {
+    private static final Logger logger = LoggerFactory.getLogger(L1Invalidator.class);
+
+    private static final char LINE_SEPARATOR = '\n';
+    private static final char FIELD_SEPARATOR = '\t';
+    private static final int PUBLISH_CHUNK = 500;
+    private static final List<String> L1_TIERS = List.of(
+        CacheConfig.SHORT_URL_CACHE, CacheConfig.ORIGINAL_URL_CACHE, CacheConfig.SHORT_URL_NEGATIVE_CACHE);
+
+    private final InvalidationBus bus;
+    private final CacheManager cacheManager;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final CountDownLatch subscribed = new CountDownLatch(1);
+    private Disposable subscription;
+    private Disposable reconnects;
+
+    public L1Invalidator(InvalidationBus bus, @Qualifier("caffeineCacheManager") CacheManager cacheManager) {
+        this.bus = bus;
+        this.cacheManager = cacheManager;
+    }
+
+    // First, so listeners that fill L1 at startup (L1WarmStart) run after the initial clear
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        subscription = bus.receive()
+            .doOnNext(messages -> {
+                clearL1();
+                subscribed.countDown();
+            })
+            .flatMapMany(messages -> messages)
+            .doOnNext(this::apply)
+            .doOnError(e -> logger.warn("[L1Invalidator] Invalidation subscription failed, resubscribing: {}", e.getMessage()))
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+            .subscribe();
+        reconnects = bus.connectionChanges()
+            .filter(up -> up)
+            .subscribe(up -> clearL1());
+    }
+
+    /** Waits for the first subscription; false if it is not in place within timeout. */
+    public boolean awaitSubscribed(Duration timeout) {
+        try {
+            return subscribed.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (reconnects != null) {
+            reconnects.dispose();
+        }
+        bus.close();
+    }
+
+    /** Tells the other nodes to drop these keys from their L1; null keys are skipped. Never fails the write that caused it. */
+    public Mono<Void> publish(Map<String, ? extends Collection<String>> keysByCache) {
+        StringBuilder message = new StringBuilder(nodeId);
+        Flux<String> messages = Flux.empty();
+        int inMessage = 0;
+        for (Map.Entry<String, ? extends Collection<String>> entry : keysByCache.entrySet()) {
+            for (String key : entry.getValue()) {
+                if (key == null) {
+                    continue;
+                }
+                message.append(LINE_SEPARATOR).append(entry.getKey()).append(FIELD_SEPARATOR).append(key);
+                if (++inMessage == PUBLISH_CHUNK) {
+                    messages = messages.concatWithValues(message.toString());
+                    message.setLength(0);
+                    message.append(nodeId);
+                    inMessage = 0;
+                }
+            }
+        }
+        if (inMessage > 0) {
+            messages = messages.concatWithValues(message.toString());
+        }
+        return messages
+            .concatMap(bus::publish)
+            .then()
+            .onErrorResume(e -> {
+                logger.warn("[L1Invalidator] Could not publish invalidation: {}", e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    // Own messages are skipped, the writer already evicted locally
+    void apply(String message) {
+        int end = message.indexOf(LINE_SEPARATOR);
+        if (end < 0 || (end == nodeId.length() && message.startsWith(nodeId))) {
+            return;
+        }
+        int start = end + 1;
+        while (start < message.length()) {
+            end = message.indexOf(LINE_SEPARATOR, start);
+            if (end < 0) {
+                end = message.length();
+            }
+            int tab = message.indexOf(FIELD_SEPARATOR, start);
+            if (tab > start && tab < end) {
+                Cache cache = cacheManager.getCache(message.substring(start, tab));
+                if (cache != null) {
+                    cache.evict(message.substring(tab + 1, end));
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private void clearL1() {
+        for (String cacheName : L1_TIERS) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        logger.info("[L1Invalidator] Subscribed to L1 invalidations, local L1 cleared");
+    }
+}
@@ -0,0 +1,240 @@
+package com.melishorturlapi.cache;
+
+import com.github.benmanes.caffeine.cache.Policy;
+import com.melishorturlapi.config.CacheConfig;
+import com.melishorturlapi.model.ShortUrl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Warm start for the shortUrlCache L1. Every snapshot interval, and on shutdown, the hottest
+ * entries (Caffeine's frequency order) are written hottest first to a local file through a
+ * FileChannel, each as a {@link ShortUrlRedisCodec} binary value. On startup the file is
+ * mapped and loaded before the ApplicationReadyEvent listeners return, which is what the
+ * readiness probe waits for.
+ *
+ * Startup stays bounded: at most max-entries are read, loading stops at the deadline (the
+ * hottest are in by then), and snapshots older than max-age are ignored. Warmed entries are
+ * put with what is left of the L1 ttl since the snapshot was written, never a fresh one, so
+ * a warmed entry expires no later than the entry it was copied from; this needs the per-entry
+ * expiry of {@link CacheConfig#expireAfterWrite}, without it nothing is loaded. Loading waits
+ * for the {@link L1Invalidator} subscription, so deletes made from then on still reach it.
+ */
+@Component
+public class L1WarmStart {
+    private static final Logger logger = LoggerFactory.getLogger(L1WarmStart.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4C31484F;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final CacheManager cacheManager;
+    private final L1Invalidator l1Invalidator;
+    private final Path snapshotPath;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Duration maxAge;
+    private final Duration loadTimeout;
+    private final Duration snapshotInterval;
+
+    private Disposable snapshotter;
+
+    public L1WarmStart(@Qualifier("caffeineCacheManager") CacheManager cacheManager,
+                       L1Invalidator l1Invalidator,
+                       @Value("${cache.warm-start.path:}") String snapshotPath,
+                       @Value("${cache.warm-start.max-entries:100000}") int maxEntries,
+                       @Value("${cache.caffeine.ttl}") long ttlMinutes,
+                       @Value("${cache.warm-start.max-age-minutes:3}") long maxAgeMinutes,
+                       @Value("${cache.warm-start.load-timeout-ms:5000}") long loadTimeoutMs,
+                       @Value("${cache.warm-start.snapshot-interval-seconds:60}") long snapshotIntervalSeconds) {
+        this.cacheManager = cacheManager;
+        this.l1Invalidator = l1Invalidator;
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Paths.get(snapshotPath);
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.loadTimeout = Duration.ofMillis(loadTimeoutMs);
+        this.snapshotInterval = Duration.ofSeconds(snapshotIntervalSeconds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (snapshotPath == null) {
+            return;
+        }
+        if (l1Invalidator.awaitSubscribed(loadTimeout)) {
+            load();
+        } else {
+            logger.warn("[L1WarmStart] Invalidation subscription not ready, starting with an empty L1");
+        }
+        snapshotter = Flux.interval(snapshotInterval, snapshotInterval)
+            .concatMap(tick -> Mono.fromRunnable(this::snapshot)
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.warn("[L1WarmStart] Snapshot failed: {}", e.toString());
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (snapshotter != null) {
+            snapshotter.dispose();
+        }
+        if (snapshotPath == null) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            logger.warn("[L1WarmStart] Final snapshot failed: {}", e.toString());
+        }
+    }
+
+    /** Loads the snapshot into L1, hottest first; returns how many entries went in. */
+    int load() {
+        Cache cache = cacheManager.getCache(CacheConfig.SHORT_URL_CACHE);
+        if (cache == null || !Files.exists(snapshotPath)) {
+            return 0;
+        }
+        Policy.VarExpiration<Object, Object> expiry = cache instanceof CaffeineCache
+            ? ((CaffeineCache) cache).getNativeCache().policy().expireVariably().orElse(null)
+            : null;
+        if (expiry == null) {
+            logger.info("[L1WarmStart] {} has no per-entry expiry, starting with an empty L1", CacheConfig.SHORT_URL_CACHE);
+            return 0;
+        }
+        long start = System.nanoTime();
+        long deadline = start + loadTimeout.toNanos();
+        int loaded = 0;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("unexpected snapshot size " + channel.size());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("not an L1 snapshot");
+            }
+            long writtenAt = buffer.getLong();
+            int entries = buffer.getInt();
+            long age = System.currentTimeMillis() - writtenAt;
+            Duration remaining = ttl.minusMillis(Math.max(0, age));
+            if (age >= maxAge.toMillis() || remaining.isNegative() || remaining.isZero()) {
+                logger.info("[L1WarmStart] Ignoring snapshot {} written {} s ago", snapshotPath, age / 1000);
+                return 0;
+            }
+            int limit = Math.min(entries, maxEntries);
+            while (loaded < limit && buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    throw new IOException("truncated snapshot entry");
+                }
+                byte[] value = new byte[length];
+                buffer.get(value);
+                ShortUrl shortUrl = ShortUrlRedisCodec.decode(value);
+                if (shortUrl.getShortUrl() != null && shortUrl.getOriginalUrl() != null) {
+                    expiry.put(shortUrl.getShortUrl(), shortUrl, remaining);
+                    loaded++;
+                }
+                if ((loaded & 1023) == 0 && System.nanoTime() > deadline) {
+                    logger.warn("[L1WarmStart] Load deadline reached after {} of {} entries", loaded, limit);
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[L1WarmStart] Ignoring unreadable snapshot {} after {} entries: {}", snapshotPath, loaded, e.toString());
+            return loaded;
+        }
+        logger.info("[L1WarmStart] Loaded {} L1 entries from {} in {} ms", loaded, snapshotPath,
+            Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return loaded;
+    }
+
+    /** Writes the hottest shortUrlCache entries to the snapshot file, atomically replacing it. */
+    void snapshot() {
+        Cache cache = cacheManager.getCache(CacheConfig.SHORT_URL_CACHE);
+        if (!(cache instanceof CaffeineCache)) {
+            return;
+        }
+        Map<Object, Object> hottest = ((CaffeineCache) cache).getNativeCache().policy().eviction()
+            .map(eviction -> eviction.hottest(maxEntries))
+            .orElse(Map.of());
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            if (snapshotPath.getParent() != null) {
+                Files.createDirectories(snapshotPath.getParent());
+            }
+            int written = 0;
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+                buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(System.currentTimeMillis()).putInt(0);
+                for (Object value : hottest.values()) {
+                    if (!(value instanceof ShortUrl)) {
+                        continue;
+                    }
+                    byte[] encoded = ShortUrlRedisCodec.encode((ShortUrl) value);
+                    if (buffer.remaining() < Integer.BYTES + encoded.length) {
+                        drain(channel, buffer);
+                    }
+                    if (buffer.remaining() < Integer.BYTES + encoded.length) {
+                        // Larger than the whole buffer: write it straight to the channel
+                        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(encoded.length).flip());
+                        writeFully(channel, ByteBuffer.wrap(encoded));
+                    } else {
+                        buffer.putInt(encoded.length).put(encoded);
+                    }
+                    written++;
+                }
+                drain(channel, buffer);
+                channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, written), HEADER_BYTES - Integer.BYTES);
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("[L1WarmStart] Wrote {} L1 entries to {}", written, snapshotPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write L1 snapshot " + snapshotPath, e);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        writeFully(channel, buffer.flip());
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
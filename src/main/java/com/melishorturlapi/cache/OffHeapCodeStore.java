@@ -0,0 +1,263 @@
+package com.melishorturlapi.cache;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Map from packed 64-bit short codes to small byte values, held outside the Java heap: each
+ * segment owns a direct-buffer open-addressing index (key, arena offset) and a direct-buffer
+ * arena the values are appended to. The heap only holds a few objects per segment, whatever
+ * the number of entries, so tens of millions of links cost the GC nothing.
+ *
+ * Readers take an optimistic StampedLock read and only fall back to the read lock if a writer
+ * raced them; writers lock their segment. Arenas are append-only: overwrites and evictions
+ * leave garbage behind, and a segment whose arena or index is full is reset whole, dropping
+ * its entries, which for a cache only costs misses. Entries also expire ttl after being written.
+ */
+public final class OffHeapCodeStore {
+
+    private static final int SLOT_BYTES = 16;
+    private static final int ENTRY_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LongAdder resets = new LongAdder();
+
+    public OffHeapCodeStore(long maxEntries, long arenaBytes, int segmentCount, long ttlMillis, LongSupplier clock) {
+        if (segmentCount < 1 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Segment count must be a power of two: " + segmentCount);
+        }
+        long entriesPerSegment = Math.max(16, (maxEntries + segmentCount - 1) / segmentCount);
+        long slots = Long.highestOneBit(entriesPerSegment * 100 / MAX_LOAD_PERCENT * 2 - 1);
+        long arenaPerSegment = arenaBytes / segmentCount;
+        if (slots * SLOT_BYTES > Integer.MAX_VALUE || arenaPerSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments over 2 GB, use more segments: " + maxEntries + " entries, " + arenaBytes + " bytes");
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) slots, (int) arenaPerSegment);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /** Value of key, or null if absent, evicted or expired. Key must not be 0. */
+    public byte[] get(long key) {
+        long h = spread(key);
+        return segment(h).get(key, h, clock.getAsLong() - ttlMillis);
+    }
+
+    /** Stores value under key; returns false if it can never fit a segment arena. */
+    public boolean put(long key, byte[] value) {
+        long h = spread(key);
+        return segment(h).put(key, h, value, clock.getAsLong());
+    }
+
+    public void remove(long key) {
+        long h = spread(key);
+        segment(h).remove(key, h);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                segment.reset();
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /** Live entries, expired ones included until they are overwritten or their segment resets. */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.live;
+        }
+        return size;
+    }
+
+    public long arenaBytesUsed() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.arenaTop;
+        }
+        return used;
+    }
+
+    /** Off-heap bytes reserved by indexes and arenas. */
+    public long reservedBytes() {
+        long reserved = 0;
+        for (Segment segment : segments) {
+            reserved += segment.index.capacity() + (long) segment.arena.capacity();
+        }
+        return reserved;
+    }
+
+    public long resetCount() {
+        return resets.sum();
+    }
+
+    private Segment segment(long h) {
+        return segments[segments.length == 1 ? 0 : (int) (h >>> segmentShift)];
+    }
+
+    // fmix64: codes are dense sequential numbers, the low bits alone would cluster
+    private static long spread(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    private final class Segment {
+        final StampedLock lock = new StampedLock();
+        final ByteBuffer index;
+        final ByteBuffer arena;
+        final int mask;
+        final int maxUsedSlots;
+        // Written under the write lock; read unlocked only for metrics
+        volatile int arenaTop;
+        volatile int live;
+        int usedSlots;
+
+        Segment(int slots, int arenaBytes) {
+            this.index = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+            this.arena = ByteBuffer.allocateDirect(arenaBytes);
+            this.mask = slots - 1;
+            this.maxUsedSlots = (int) ((long) slots * MAX_LOAD_PERCENT / 100);
+        }
+
+        byte[] get(long key, long h, long oldestWrite) {
+            long stamp = lock.tryOptimisticRead();
+            byte[] value = stamp == 0 ? null : read(key, h, oldestWrite);
+            if (stamp != 0 && lock.validate(stamp)) {
+                return value;
+            }
+            stamp = lock.readLock();
+            try {
+                return read(key, h, oldestWrite);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // May see a half-written segment when called optimistically; every offset is bounds checked
+        private byte[] read(long key, long h, long oldestWrite) {
+            int slot = (int) h & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int at = slot * SLOT_BYTES;
+                long slotKey = index.getLong(at);
+                if (slotKey == EMPTY) {
+                    return null;
+                }
+                if (slotKey == key) {
+                    long ref = index.getLong(at + Long.BYTES);
+                    if (ref == TOMBSTONE || ref < 0 || ref > arena.capacity() - ENTRY_HEADER_BYTES) {
+                        return null;
+                    }
+                    int offset = (int) ref;
+                    long writtenAt = arena.getLong(offset);
+                    int length = arena.getInt(offset + Long.BYTES);
+                    if (writtenAt < oldestWrite || length < 0 || length > arena.capacity() - offset - ENTRY_HEADER_BYTES) {
+                        return null;
+                    }
+                    byte[] value = new byte[length];
+                    arena.get(offset + ENTRY_HEADER_BYTES, value);
+                    return value;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        boolean put(long key, long h, byte[] value, long now) {
+            int needed = ENTRY_HEADER_BYTES + value.length;
+            if (needed > arena.capacity()) {
+                return false;
+            }
+            long stamp = lock.writeLock();
+            try {
+                int at = find(key, h);
+                if ((at < 0 && usedSlots >= maxUsedSlots) || arenaTop + needed > arena.capacity()) {
+                    reset();
+                    resets.increment();
+                    at = -1;
+                }
+                if (at < 0) {
+                    at = freeSlot(h);
+                    index.putLong(at, key);
+                    usedSlots++;
+                    live++;
+                } else if (index.getLong(at + Long.BYTES) == TOMBSTONE) {
+                    live++;
+                }
+                int offset = arenaTop;
+                arena.putLong(offset, now);
+                arena.putInt(offset + Long.BYTES, value.length);
+                arena.put(offset + ENTRY_HEADER_BYTES, value);
+                arenaTop = offset + needed;
+                index.putLong(at + Long.BYTES, offset);
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key, long h) {
+            long stamp = lock.writeLock();
+            try {
+                int at = find(key, h);
+                if (at >= 0 && index.getLong(at + Long.BYTES) != TOMBSTONE) {
+                    index.putLong(at + Long.BYTES, TOMBSTONE);
+                    live--;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Byte position of key's slot, or -1
+        private int find(long key, long h) {
+            int slot = (int) h & mask;
+            while (true) {
+                int at = slot * SLOT_BYTES;
+                long slotKey = index.getLong(at);
+                if (slotKey == EMPTY) {
+                    return -1;
+                }
+                if (slotKey == key) {
+                    return at;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private int freeSlot(long h) {
+            int slot = (int) h & mask;
+            while (index.getLong(slot * SLOT_BYTES) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            return slot * SLOT_BYTES;
+        }
+
+        void reset() {
+            for (int at = 0; at < index.capacity(); at += Long.BYTES) {
+                index.putLong(at, 0);
+            }
+            arenaTop = 0;
+            usedSlots = 0;
+            live = 0;
+        }
+    }
+}
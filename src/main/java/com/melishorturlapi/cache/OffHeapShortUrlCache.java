@@ -0,0 +1,133 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.service.Base62;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * shortUrlCache L1 on an {@link OffHeapCodeStore}: base62 codes of up to 10 chars are packed
+ * into a long (length in the top 4 bits, value below) and the link is kept as its
+ * {@link ShortUrlRedisCodec} binary value. Keys that do not pack, custom or longer codes, go
+ * to the fallback cache, so callers see one ordinary Spring {@link Cache}.
+ */
+public class OffHeapShortUrlCache implements Cache {
+
+    private final String name;
+    private final OffHeapCodeStore store;
+    private final Cache fallback;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OffHeapShortUrlCache(String name, OffHeapCodeStore store, Cache fallback) {
+        this.name = name;
+        this.store = store;
+        this.fallback = fallback;
+    }
+
+    /** Packed form of a base62 code, or 0 if it does not fit. */
+    public static long pack(Object key) {
+        if (!(key instanceof String)) {
+            return 0;
+        }
+        String code = (String) key;
+        long value = Base62.decode(code);
+        return value < 0 ? 0 : (long) code.length() << 60 | value;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ShortUrl value = lookup(key);
+        return value == null ? null : new SimpleValueWrapper(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ShortUrl value = lookup(key);
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ShortUrl value = lookup(key);
+        if (value != null) {
+            return (T) value;
+        }
+        try {
+            T loaded = valueLoader.call();
+            put(key, loaded);
+            return loaded;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        long packed = pack(key);
+        if (packed == 0) {
+            fallback.put(key, value);
+        } else if (value instanceof ShortUrl && ((ShortUrl) value).getOriginalUrl() != null) {
+            // A value too large for a segment arena is simply not cached
+            store.put(packed, ShortUrlRedisCodec.encode((ShortUrl) value));
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        long packed = pack(key);
+        if (packed != 0) {
+            store.remove(packed);
+        }
+        fallback.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+        fallback.clear();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private ShortUrl lookup(Object key) {
+        long packed = pack(key);
+        if (packed == 0) {
+            ShortUrl value = fallback.get(key, ShortUrl.class);
+            (value == null ? misses : hits).increment();
+            return value;
+        }
+        byte[] bytes = store.get(packed);
+        if (bytes == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return ShortUrlRedisCodec.decode(bytes);
+    }
+}
@@ -0,0 +1,55 @@
+package com.melishorturlapi.cache;
+
+import io.lettuce.core.event.connection.ConnectionActivatedEvent;
+import io.lettuce.core.event.connection.ConnectionDeactivatedEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Connection drops and recoveries of the Lettuce client behind every Redis template and
+ * pub/sub subscription of this node. Lettuce reconnects, and resubscribes pub/sub channels, on
+ * its own without erroring any Flux, so a subscriber that needs to know it may have missed
+ * messages has to watch these events instead.
+ */
+@Component
+public class RedisConnectionEvents {
+
+    private final RedisConnectionFactory connectionFactory;
+
+    public RedisConnectionEvents(RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * False when a connection goes down while none was, true once every connection that went
+     * down is active again. The connections are not told apart: messages may have been missed
+     * from the first false until the next true. Never emits for other connection factories.
+     */
+    public Flux<Boolean> changes() {
+        if (!(connectionFactory instanceof LettuceConnectionFactory)) {
+            return Flux.never();
+        }
+        return Flux.defer(() -> {
+            // Activations of connections that never went down (startup, new pool members) are clamped away
+            AtomicInteger down = new AtomicInteger();
+            return ((LettuceConnectionFactory) connectionFactory).getRequiredNativeClient().getResources().eventBus().get()
+                .handle((event, sink) -> {
+                    if (event instanceof ConnectionDeactivatedEvent) {
+                        if (down.getAndIncrement() == 0) {
+                            sink.next(false);
+                        }
+                    } else if (event instanceof ConnectionActivatedEvent) {
+                        if (down.get() > 0 && down.decrementAndGet() == 0) {
+                            sink.next(true);
+                        }
+                    }
+                });
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.melishorturlapi.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** {@link InvalidationBus} on Redis pub/sub, shared by every node on the same Redis. */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.bus", havingValue = "redis", matchIfMissing = true)
+public class RedisInvalidationBus implements InvalidationBus {
+
+    public static final String INVALIDATION_CHANNEL = "shorturl:l1-invalidation";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RedisConnectionEvents connectionEvents;
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+
+    public RedisInvalidationBus(ReactiveStringRedisTemplate redisTemplate, RedisConnectionEvents connectionEvents) {
+        this.redisTemplate = redisTemplate;
+        this.connectionEvents = connectionEvents;
+    }
+
+    @Override
+    public Mono<Void> publish(String message) {
+        return redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message).then();
+    }
+
+    @Override
+    public synchronized Mono<Flux<String>> receive() {
+        if (listenerContainer == null) {
+            listenerContainer = new ReactiveRedisMessageListenerContainer(redisTemplate.getConnectionFactory());
+        }
+        return listenerContainer.receiveLater(ChannelTopic.of(INVALIDATION_CHANNEL))
+            .map(messages -> messages.map(ReactiveSubscription.Message::getMessage));
+    }
+
+    // Lettuce resubscribes on its own after a reconnect, without erroring the receive Flux
+    @Override
+    public Flux<Boolean> connectionChanges() {
+        return connectionEvents.changes();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+            listenerContainer = null;
+        }
+    }
+}
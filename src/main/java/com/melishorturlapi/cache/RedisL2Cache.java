@@ -0,0 +1,175 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * L2 tier on Lettuce's reactive API. Keys keep the RedisCacheManager layout
+ * ("cacheName::key") so entries written before the switch are still read.
+ * Caches listed in cache.redis.binary-caches are written with the binary layout of
+ * {@link ShortUrlRedisCodec}, the rest as JSON; every cache reads both.
+ * Redis errors are logged and treated as a miss, L2 is never the reason a request fails.
+ */
+@Component
+public class RedisL2Cache {
+    private static final Logger logger = LoggerFactory.getLogger(RedisL2Cache.class);
+
+    /** In-process stand-in for "known missing", compared by identity. Never returned to callers of the service. */
+    public static final ShortUrl NEGATIVE = new ShortUrl();
+
+    private static final int EVICT_CHUNK = 500;
+
+    private final ReactiveRedisTemplate<String, ShortUrl> redisTemplate;
+    private final ReactiveRedisTemplate<String, ShortUrl> binaryRedisTemplate;
+    private final Set<String> binaryCaches;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+
+    public RedisL2Cache(@Qualifier("shortUrlRedisTemplate") ReactiveRedisTemplate<String, ShortUrl> shortUrlRedisTemplate,
+                        @Qualifier("shortUrlBinaryRedisTemplate") ReactiveRedisTemplate<String, ShortUrl> shortUrlBinaryRedisTemplate,
+                        @Value("${cache.redis.binary-caches:}") Set<String> binaryCaches,
+                        @Value("${cache.redis.ttl}") int redisTtlHours,
+                        @Value("${cache.negative.ttl-seconds:30}") int negativeTtlSeconds) {
+        this.redisTemplate = shortUrlRedisTemplate;
+        this.binaryRedisTemplate = shortUrlBinaryRedisTemplate;
+        this.binaryCaches = binaryCaches;
+        this.ttl = Duration.ofHours(redisTtlHours);
+        this.negativeTtl = Duration.ofSeconds(negativeTtlSeconds);
+    }
+
+    /** Cached value, {@link #NEGATIVE} if the key is known not to exist, or empty if L2 knows nothing. */
+    public Mono<ShortUrl> get(String cacheName, String key) {
+        return template(cacheName).opsForValue().get(redisKey(cacheName, key))
+            .map(value -> value.getOriginalUrl() == null ? NEGATIVE : value)
+            .onErrorResume(e -> {
+                logger.warn("[RedisL2Cache] get failed for key: {} in cache: {}: {}", key, cacheName, e.toString());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * One MGET for all keys. The map holds the keys L2 knows about, with {@link #NEGATIVE} for
+     * known missing ones; on error it is empty.
+     */
+    public Mono<Map<String, ShortUrl>> getAll(String cacheName, List<String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        keys.forEach(key -> redisKeys.add(redisKey(cacheName, key)));
+        return template(cacheName).opsForValue().multiGet(redisKeys)
+            .map(values -> {
+                Map<String, ShortUrl> found = new HashMap<>();
+                for (int i = 0; i < values.size(); i++) {
+                    ShortUrl value = values.get(i);
+                    if (value != null) {
+                        found.put(keys.get(i), value.getOriginalUrl() == null ? NEGATIVE : value);
+                    }
+                }
+                return found;
+            })
+            .onErrorResume(e -> {
+                logger.warn("[RedisL2Cache] getAll failed for {} keys in cache: {}: {}", keys.size(), cacheName, e.toString());
+                return Mono.just(Map.of());
+            });
+    }
+
+    public Mono<Void> put(String cacheName, String key, ShortUrl value) {
+        return template(cacheName).opsForValue().set(redisKey(cacheName, key), value, ttl)
+            .onErrorResume(e -> {
+                logger.warn("[RedisL2Cache] put failed for key: {} in cache: {}: {}", key, cacheName, e.toString());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /**
+     * Remembers that key does not exist, with the short negative TTL. The marker lives under
+     * the key of the positive entry, so a single GET answers both. It is written with SET NX
+     * and creates overwrite the key with the new link instead of deleting it: a marker from
+     * a lookup that raced the create either lands first and is overwritten, or finds the
+     * link there and is dropped, never hiding the link for the negative TTL.
+     */
+    public Mono<Void> putNegative(String cacheName, String key) {
+        return template(cacheName).opsForValue().setIfAbsent(redisKey(cacheName, key), negativeMarker(key), negativeTtl)
+            .onErrorResume(e -> {
+                logger.warn("[RedisL2Cache] putNegative failed for key: {} in cache: {}: {}", key, cacheName, e.toString());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /** Writes every entry, pipelined on the shared connection; MSET cannot carry a TTL. */
+    public Mono<Void> putAll(String cacheName, Map<String, ShortUrl> values) {
+        return Flux.fromIterable(values.entrySet())
+            .flatMap(entry -> put(cacheName, entry.getKey(), entry.getValue()))
+            .then();
+    }
+
+    /** Negative entries for every key, see {@link #putNegative}. */
+    public Mono<Void> putNegativeAll(String cacheName, Collection<String> keys) {
+        return Flux.fromIterable(keys)
+            .flatMap(key -> putNegative(cacheName, key))
+            .then();
+    }
+
+    public Mono<Void> evict(String cacheName, String key) {
+        return redisTemplate.delete(redisKey(cacheName, key))
+            .onErrorResume(e -> {
+                logger.warn("[RedisL2Cache] evict failed for key: {} in cache: {}: {}", key, cacheName, e.toString());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /** Evicts many keys with one DEL per EVICT_CHUNK keys. */
+    public Mono<Void> evictAll(String cacheName, Collection<String> keys) {
+        List<String> redisKeys = new ArrayList<>(keys.size());
+        keys.forEach(key -> redisKeys.add(redisKey(cacheName, key)));
+        return Flux.range(0, (redisKeys.size() + EVICT_CHUNK - 1) / EVICT_CHUNK)
+            .concatMap(chunk -> redisTemplate.delete(redisKeys
+                .subList(chunk * EVICT_CHUNK, Math.min(redisKeys.size(), (chunk + 1) * EVICT_CHUNK))
+                .toArray(new String[0])))
+            .onErrorResume(e -> {
+                logger.warn("[RedisL2Cache] evictAll failed for {} keys in cache: {}: {}", keys.size(), cacheName, e.toString());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private ReactiveRedisTemplate<String, ShortUrl> template(String cacheName) {
+        return binaryCaches.contains(cacheName) ? binaryRedisTemplate : redisTemplate;
+    }
+
+    static String redisKey(String cacheName, String key) {
+        return cacheName + "::" + key;
+    }
+
+    // Stored form of a negative entry: a ShortUrl without originalUrl, which a saved link never is
+    private static ShortUrl negativeMarker(String key) {
+        ShortUrl negative = new ShortUrl();
+        negative.setShortUrl(key);
+        return negative;
+    }
+
+    public static boolean isNegative(ShortUrl value) {
+        return value == NEGATIVE;
+    }
+}
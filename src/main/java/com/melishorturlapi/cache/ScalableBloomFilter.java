@@ -0,0 +1,189 @@
+package com.melishorturlapi.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scalable Bloom filter of strings (Almeida et al.): when the current stage reaches its
+ * capacity a new one is added with twice the capacity and half the false-positive rate, so
+ * the combined rate stays under twice the configured one however many entries arrive.
+ * Lock-free for add and mightContain; only adding a stage synchronizes.
+ */
+final class ScalableBloomFilter {
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final long initialCapacity;
+    private final double initialFpp;
+    private volatile Stage[] stages;
+
+    ScalableBloomFilter(long initialCapacity, double fpp) {
+        if (initialCapacity < 1 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter sizing: capacity=" + initialCapacity + ", fpp=" + fpp);
+        }
+        this.initialCapacity = initialCapacity;
+        this.initialFpp = fpp;
+        this.stages = new Stage[] {new Stage(initialCapacity, fpp)};
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash1(value);
+        long h2 = hash2(h1);
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void add(String value) {
+        long h1 = hash1(value);
+        long h2 = hash2(h1);
+        Stage[] current = stages;
+        for (Stage stage : current) {
+            if (stage.mightContain(h1, h2)) {
+                return;
+            }
+        }
+        Stage last = current[current.length - 1];
+        if (last.add(h1, h2) && last.isFull()) {
+            grow(last);
+        }
+    }
+
+    /** Entries added (values already reported as present are not counted again). */
+    long size() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.count.get();
+        }
+        return size;
+    }
+
+    /** Probability that mightContain answers true for a value never added, from the bits set so far. */
+    double expectedFpp() {
+        double allMiss = 1;
+        for (Stage stage : stages) {
+            allMiss *= 1 - stage.expectedFpp();
+        }
+        return 1 - allMiss;
+    }
+
+    long bitSizeBytes() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += stage.bits.length() * (long) Long.BYTES;
+        }
+        return bytes;
+    }
+
+    int stageCount() {
+        return stages.length;
+    }
+
+    private synchronized void grow(Stage full) {
+        Stage[] current = stages;
+        if (current[current.length - 1] != full) {
+            return;
+        }
+        Stage[] next = new Stage[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        int index = current.length;
+        next[index] = new Stage(initialCapacity << index, initialFpp / (1L << index));
+        stages = next;
+    }
+
+    // FNV-1a over the chars, then fmix64; the second hash only has to be independent enough for
+    // double hashing (Kirsch-Mitzenmacher), and odd so it walks the whole bit array
+    private static long hash1(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long hash2(long h1) {
+        return mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Stage {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashes;
+        private final long capacity;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong bitsSet = new AtomicLong();
+
+        Stage(long capacity, double fpp) {
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(fpp) / LN2_SQUARED);
+            long words = Math.max(1, (optimalBits + 63) >>> 6);
+            if (words > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Bloom filter stage too large: " + optimalBits + " bits");
+            }
+            this.bits = new AtomicLongArray((int) words);
+            this.bitCount = words << 6;
+            this.hashes = Math.max(1, (int) Math.round(-Math.log(fpp) / Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < hashes; i++) {
+                long index = Long.remainderUnsigned(combined, bitCount);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+
+        // True if at least one bit was newly set, i.e. this is a new entry for the stage
+        boolean add(long h1, long h2) {
+            long combined = h1;
+            int newlySet = 0;
+            for (int i = 0; i < hashes; i++) {
+                long index = Long.remainderUnsigned(combined, bitCount);
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+                if ((current & mask) == 0) {
+                    newlySet++;
+                }
+                combined += h2;
+            }
+            if (newlySet == 0) {
+                return false;
+            }
+            bitsSet.addAndGet(newlySet);
+            count.incrementAndGet();
+            return true;
+        }
+
+        boolean isFull() {
+            return count.get() >= capacity;
+        }
+
+        double expectedFpp() {
+            return Math.pow((double) bitsSet.get() / bitCount, hashes);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.melishorturlapi.cache;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.melishorturlapi.service.MetricsService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Node-local Bloom filter of every issued short code, so lookups of "definitely absent" codes
+ * skip DynamoDB. Creates do not rely on it: their saves are unconditional, so the collision
+ * probe always reads.
+ *
+ * A "no" is not final while a code created on another node is still on its way here, or its
+ * message could not be published at all, so rejected codes are still looked up in L1 and L2:
+ * creates write the link to L2 before publishing it, and cache.redis.ttl outlasts
+ * cache.bloom.rescan-interval. Codes this node failed to publish are kept (up to
+ * MAX_UNPUBLISHED) and published again after the next successful publish or reconnect.
+ *
+ * The filter is only trusted while this node sees every create: it subscribes to the codes
+ * channel first, then loads the table with a parallel scan, and answers "maybe" for
+ * everything until both are in place. It goes back to "maybe" whenever the subscription
+ * errors or a Redis connection drops (Lettuce resubscribes silently, so codes published in
+ * the gap are lost to it), and is trusted again once a scan started after the reconnect
+ * finishes. The table is also rescanned every cache.bloom.rescan-interval, which picks up
+ * codes whose message another node failed to publish. Deleted codes stay in the filter until
+ * restart; they only cost the read they cost before.
+ */
+@Component
+public class ShortCodeFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ShortCodeFilter.class);
+
+    public static final String CODES_CHANNEL = "shorturl:codes";
+    private static final char CODE_SEPARATOR = '\n';
+    private static final int PUBLISH_CHUNK = 1000;
+    private static final int MAX_UNPUBLISHED = 100_000;
+    private static final String TABLE_NAME = "ShortUrls";
+    private static final String SHORT_URL = "ShortUrl";
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MetricsService metricsService;
+    private final RedisConnectionEvents connectionEvents;
+    private final boolean enabled;
+    private final int scanSegments;
+    private final Duration rescanInterval;
+    private final ScalableBloomFilter filter;
+
+    private final LongAdder skipped = new LongAdder();
+    private final Queue<String> unpublished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unpublishedCount = new AtomicInteger();
+    // Bumped on every loss of the subscription; a scan only makes the filter ready if none happened since it started
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean ready;
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+    private Disposable subscription;
+    private Disposable connectionChanges;
+    private Disposable rescans;
+    private Disposable reload;
+
+    public ShortCodeFilter(AmazonDynamoDB amazonDynamoDB,
+                           ReactiveStringRedisTemplate redisTemplate,
+                           MetricsService metricsService,
+                           RedisConnectionEvents connectionEvents,
+                           @Value("${cache.bloom.enabled:false}") boolean enabled,
+                           @Value("${cache.bloom.expected-codes:1000000}") long expectedCodes,
+                           @Value("${cache.bloom.fpp:0.01}") double fpp,
+                           @Value("${cache.bloom.scan-segments:4}") int scanSegments,
+                           @Value("${cache.bloom.rescan-interval:1h}") Duration rescanInterval) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.redisTemplate = redisTemplate;
+        this.metricsService = metricsService;
+        this.connectionEvents = connectionEvents;
+        this.enabled = enabled;
+        this.scanSegments = scanSegments;
+        this.rescanInterval = rescanInterval;
+        this.filter = enabled ? new ScalableBloomFilter(expectedCodes, fpp) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        metricsService.registerCodeFilter(filter::expectedFpp, filter::bitSizeBytes, filter::size, skipped::sum);
+        listenerContainer = new ReactiveRedisMessageListenerContainer(redisTemplate.getConnectionFactory());
+        subscription = listenerContainer.receiveLater(ChannelTopic.of(CODES_CHANNEL))
+            .flatMapMany(messages -> Flux.merge(
+                messages.doOnNext(message -> addAll(message.getMessage())).then(),
+                Mono.defer(() -> loadTable(generation.get()))))
+            .doOnError(e -> {
+                distrust();
+                logger.warn("[ShortCodeFilter] Codes subscription failed, answering maybe until reloaded: {}", e.getMessage());
+            })
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofMinutes(1)))
+            .subscribe();
+        connectionChanges = connectionEvents.changes().subscribe(up -> {
+            if (up) {
+                logger.info("[ShortCodeFilter] Redis reconnected, rescanning codes");
+                reload();
+                republish().subscribe();
+            } else {
+                distrust();
+                logger.warn("[ShortCodeFilter] Redis connection lost, answering maybe until rescanned");
+            }
+        });
+        rescans = Flux.interval(rescanInterval, rescanInterval).subscribe(tick -> reload());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        for (Disposable disposable : new Disposable[] {subscription, connectionChanges, rescans, reload}) {
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        }
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    /** False only if the code was certainly never issued. */
+    public boolean mightExist(String shortUrl) {
+        if (!ready || filter.mightContain(shortUrl)) {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /** Adds a saved code here and tells the other nodes about it. Never fails the create. */
+    public Mono<Void> recordCreated(String shortUrl) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        filter.add(shortUrl);
+        return publish(List.of(shortUrl));
+    }
+
+    /** Batch form of {@link #recordCreated(String)}: one message per PUBLISH_CHUNK codes. */
+    public Mono<Void> recordCreated(Collection<String> shortUrls) {
+        if (!enabled || shortUrls.isEmpty()) {
+            return Mono.empty();
+        }
+        shortUrls.forEach(filter::add);
+        return publish(shortUrls);
+    }
+
+    // On failure the codes are kept for republish(); a success sends whatever is kept
+    private Mono<Void> publish(Collection<String> shortUrls) {
+        StringBuilder message = new StringBuilder();
+        Flux<String> messages = Flux.empty();
+        int inMessage = 0;
+        for (String shortUrl : shortUrls) {
+            if (inMessage > 0) {
+                message.append(CODE_SEPARATOR);
+            }
+            message.append(shortUrl);
+            if (++inMessage == PUBLISH_CHUNK) {
+                messages = messages.concatWithValues(message.toString());
+                message.setLength(0);
+                inMessage = 0;
+            }
+        }
+        if (inMessage > 0) {
+            messages = messages.concatWithValues(message.toString());
+        }
+        return messages
+            .concatMap(codes -> redisTemplate.convertAndSend(CODES_CHANNEL, codes))
+            .then(Mono.defer(this::republish))
+            .onErrorResume(e -> {
+                logger.warn("[ShortCodeFilter] Could not publish {} codes, keeping them for later: {}", shortUrls.size(), e.getMessage());
+                keepUnpublished(shortUrls);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> republish() {
+        List<String> codes = new ArrayList<>();
+        String code;
+        while ((code = unpublished.poll()) != null) {
+            unpublishedCount.decrementAndGet();
+            codes.add(code);
+        }
+        if (codes.isEmpty()) {
+            return Mono.empty();
+        }
+        logger.info("[ShortCodeFilter] Publishing {} codes kept from failed publishes", codes.size());
+        return publish(codes);
+    }
+
+    private void keepUnpublished(Collection<String> shortUrls) {
+        int dropped = 0;
+        for (String shortUrl : shortUrls) {
+            if (unpublishedCount.incrementAndGet() > MAX_UNPUBLISHED) {
+                unpublishedCount.decrementAndGet();
+                dropped++;
+            } else {
+                unpublished.add(shortUrl);
+            }
+        }
+        if (dropped > 0) {
+            logger.warn("[ShortCodeFilter] Dropped {} unpublished codes, other nodes see them after their next rescan", dropped);
+        }
+    }
+
+    // Messages carry one code, or several separated by CODE_SEPARATOR
+    private void addAll(String message) {
+        int start = 0;
+        int end;
+        while ((end = message.indexOf(CODE_SEPARATOR, start)) >= 0) {
+            filter.add(message.substring(start, end));
+            start = end + 1;
+        }
+        filter.add(message.substring(start));
+    }
+
+    private void distrust() {
+        generation.incrementAndGet();
+        ready = false;
+    }
+
+    // Rescan in the background; a newer one (reconnect or schedule) replaces one still running
+    private synchronized void reload() {
+        if (reload != null) {
+            reload.dispose();
+        }
+        reload = loadTable(generation.get())
+            .subscribe(null, e -> logger.warn("[ShortCodeFilter] Rescan failed: {}", e.getMessage()));
+    }
+
+    // Parallel scan projecting only the key, one blocking segment per boundedElastic worker.
+    // Makes the filter ready unless the subscription was lost since startGeneration.
+    private Mono<Void> loadTable(long startGeneration) {
+        long start = System.nanoTime();
+        return Flux.range(0, scanSegments)
+            .flatMap(segment -> Mono.fromRunnable(() -> scanSegment(segment)).subscribeOn(Schedulers.boundedElastic()))
+            .then(Mono.fromRunnable(() -> {
+                logger.info("[ShortCodeFilter] Loaded {} codes in {} ms, {} KB, expected fpp {}",
+                    filter.size(), Duration.ofNanos(System.nanoTime() - start).toMillis(),
+                    filter.bitSizeBytes() / 1024, String.format("%.4f", filter.expectedFpp()));
+                if (generation.get() == startGeneration) {
+                    ready = true;
+                }
+            }));
+    }
+
+    private void scanSegment(int segment) {
+        Map<String, AttributeValue> lastKey = null;
+        do {
+            ScanResult page = amazonDynamoDB.scan(new ScanRequest()
+                .withTableName(TABLE_NAME)
+                .withProjectionExpression(SHORT_URL)
+                .withSegment(segment)
+                .withTotalSegments(scanSegments)
+                .withExclusiveStartKey(lastKey));
+            for (Map<String, AttributeValue> item : page.getItems()) {
+                filter.add(item.get(SHORT_URL).getS());
+            }
+            lastKey = page.getLastEvaluatedKey();
+        } while (lastKey != null && !lastKey.isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * L2 value codec. Reads both layouts, so JSON entries written before the switch, or by nodes
+ * still writing JSON, keep working; writes binary or JSON depending on how it was built.
+ *
+ * Binary layout, version 1:
+ * <pre>
+ *   magic (0xB5) | version | flags | [createdAt, 8 bytes] | [redirectCount, 8 bytes]
+ *   | code length (1 byte) | code (UTF-8) | originalUrl (UTF-8, rest of the value)
+ * </pre>
+ * A JSON value starts with '{', never with the magic byte. A negative marker is a value
+ * without originalUrl, flagged as such.
+ */
+public class ShortUrlRedisCodec implements RedisSerializer<ShortUrl> {
+
+    static final byte MAGIC = (byte) 0xB5;
+    static final byte VERSION = 1;
+
+    static final int HAS_CREATED_AT = 1;
+    static final int HAS_REDIRECT_COUNT = 1 << 1;
+    static final int HAS_ORIGINAL_URL = 1 << 2;
+
+    private static final int HEADER_BYTES = 3;
+
+    private final boolean writeBinary;
+    private final RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer();
+
+    public ShortUrlRedisCodec(boolean writeBinary) {
+        this.writeBinary = writeBinary;
+    }
+
+    @Override
+    public byte[] serialize(ShortUrl value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        return writeBinary ? encode(value) : json.serialize(value);
+    }
+
+    @Override
+    public ShortUrl deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return (ShortUrl) json.deserialize(bytes);
+        }
+        return decode(bytes);
+    }
+
+    static byte[] encode(ShortUrl value) {
+        byte[] code = value.getShortUrl() == null ? new byte[0] : value.getShortUrl().getBytes(StandardCharsets.UTF_8);
+        byte[] originalUrl = value.getOriginalUrl() == null ? null : value.getOriginalUrl().getBytes(StandardCharsets.UTF_8);
+        if (code.length > 255) {
+            throw new SerializationException("Short code too long for the binary layout: " + code.length + " bytes");
+        }
+        int flags = 0;
+        int size = HEADER_BYTES + 1 + code.length;
+        if (value.getCreatedAt() != null) {
+            flags |= HAS_CREATED_AT;
+            size += Long.BYTES;
+        }
+        if (value.getRedirectCount() != null) {
+            flags |= HAS_REDIRECT_COUNT;
+            size += Long.BYTES;
+        }
+        if (originalUrl != null) {
+            flags |= HAS_ORIGINAL_URL;
+            size += originalUrl.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC).put(VERSION).put((byte) flags);
+        if (value.getCreatedAt() != null) {
+            buffer.putLong(value.getCreatedAt());
+        }
+        if (value.getRedirectCount() != null) {
+            buffer.putLong(value.getRedirectCount());
+        }
+        buffer.put((byte) code.length).put(code);
+        if (originalUrl != null) {
+            buffer.put(originalUrl);
+        }
+        return buffer.array();
+    }
+
+    static ShortUrl decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            buffer.get();
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new SerializationException("Unknown ShortUrl layout version " + version);
+            }
+            int flags = buffer.get();
+            ShortUrl value = new ShortUrl();
+            if ((flags & HAS_CREATED_AT) != 0) {
+                value.setCreatedAt(buffer.getLong());
+            }
+            if ((flags & HAS_REDIRECT_COUNT) != 0) {
+                value.setRedirectCount(buffer.getLong());
+            }
+            int codeLength = buffer.get() & 0xFF;
+            value.setShortUrl(new String(bytes, buffer.position(), codeLength, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + codeLength);
+            if ((flags & HAS_ORIGINAL_URL) != 0) {
+                value.setOriginalUrl(new String(bytes, buffer.position(), buffer.remaining(), StandardCharsets.UTF_8));
+            }
+            return value;
+        } catch (RuntimeException e) {
+            if (e instanceof SerializationException) {
+                throw e;
+            }
+            throw new SerializationException("Corrupt binary ShortUrl value", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.melishorturlapi.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller starts the load,
+ * callers arriving while it is in flight subscribe to the same {@link Mono}.
+ * The key is released as soon as the load terminates, results are not kept here.
+ */
+public class SingleFlight<V> {
+
+    private final ConcurrentHashMap<String, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public Mono<V> execute(String key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Mono<V> flight = inFlight.get(key);
+            if (flight != null) {
+                coalesced.increment();
+                return flight;
+            }
+            Mono<V> created = newFlight(key, loader);
+            flight = inFlight.putIfAbsent(key, created);
+            if (flight != null) {
+                coalesced.increment();
+                return flight;
+            }
+            loads.increment();
+            return created;
+        });
+    }
+
+    private Mono<V> newFlight(String key, Supplier<Mono<V>> loader) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> flight = Mono.defer(loader)
+            .doFinally(signal -> inFlight.remove(key, self.get()))
+            .cache();
+        self.set(flight);
+        return flight;
+    }
+
+    /** Loads actually executed. */
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    /** Callers served by a load another caller had already started. */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -9,7 +9,21 @@ public class AppConfig {
     @Value("${url.shortening.base-url}")
     private String baseShortUrl;
 
+    @Value("${url.shortening.batch.max-size:50000}")
+    private int batchMaxSize;
+
+    @Value("${url.shortening.resolve.max-size:1000}")
+    private int resolveMaxSize;
+
     public String getBaseShortUrl() {
         return baseShortUrl;
     }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public int getResolveMaxSize() {
+        return resolveMaxSize;
+    }
 }
@@ -1,32 +1,85 @@
 package com.melishorturlapi.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.CompositeCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import java.time.Duration;
-import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
+import java.util.List;
+import java.util.function.Function;
+
+import com.melishorturlapi.cache.BackgroundRefreshLoader;
+import com.melishorturlapi.cache.OffHeapCodeStore;
+import com.melishorturlapi.cache.OffHeapShortUrlCache;
+import com.melishorturlapi.cache.ShortUrlRedisCodec;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+import com.melishorturlapi.service.MetricsService;
+
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import reactor.core.publisher.Mono;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    public static final String SHORT_URL_CACHE = "shortUrlCache";
+    public static final String ORIGINAL_URL_CACHE = "shortUrlByOriginalCache";
+    // L1 of short codes known not to exist, see ShortUrlService.getShortUrl
+    public static final String SHORT_URL_NEGATIVE_CACHE = "shortUrlNegativeCache";
+
+    // Rough heap cost of a cached ShortUrl beyond its strings: entry, object headers, boxed fields
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
     @Value("${cache.caffeine.ttl}")
     private int caffeineTtl;
 
-    @Value("${cache.redis.ttl}")
-    private int refdisTtl;
+    @Value("${cache.caffeine.short-url.max-weight-mb:64}")
+    private long shortUrlMaxWeightMb;
+
+    @Value("${cache.caffeine.short-url.refresh-after-write-seconds:0}")
+    private long shortUrlRefreshSeconds;
+
+    // caffeine, or offheap for an OffHeapShortUrlCache sized by the cache.offheap.* properties
+    @Value("${cache.caffeine.short-url.store:caffeine}")
+    private String shortUrlStore;
+
+    @Value("${cache.offheap.max-entries:10000000}")
+    private long offHeapMaxEntries;
+
+    @Value("${cache.offheap.arena-mb:1024}")
+    private long offHeapArenaMb;
+
+    @Value("${cache.offheap.segments:64}")
+    private int offHeapSegments;
+
+    @Value("${cache.caffeine.original-url.max-weight-mb:32}")
+    private long originalUrlMaxWeightMb;
+
+    @Value("${cache.caffeine.original-url.refresh-after-write-seconds:0}")
+    private long originalUrlRefreshSeconds;
+
+    @Value("${cache.negative.ttl-seconds:30}")
+    private int negativeTtlSeconds;
+
+    @Value("${cache.negative.max-size:100000}")
+    private long negativeMaxSize;
 
     @Value("${spring.redis.host}")
     private String redisHost;
@@ -34,33 +87,140 @@ public class CacheConfig {
     @Value("${spring.redis.port}")
     private int redisPort;
 
+    // Spec for caches created on demand; the ShortUrl tiers below each get their own
     @Bean
     public Caffeine<Object, Object> caffeineConfig() {
         return Caffeine.newBuilder()
                 .expireAfterWrite(Duration.ofMinutes(caffeineTtl))
-                .maximumSize(1000);
+                .maximumSize(1000)
+                .recordStats();
     }
 
     @Bean
     @Primary
-    public CacheManager caffeineCacheManager(Caffeine<Object, Object> caffeine) {
+    public CacheManager caffeineCacheManager(Caffeine<Object, Object> caffeine,
+                                             ObjectProvider<ReactiveShortUrlRepository> repository,
+                                             MetricsService metricsService) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(caffeine);
-        return cacheManager;
+        boolean offHeap = "offheap".equalsIgnoreCase(shortUrlStore);
+        registerShortUrlTier(cacheManager, offHeap ? null : metricsService, SHORT_URL_CACHE, shortUrlMaxWeightMb, shortUrlRefreshSeconds,
+                code -> repository.getObject().findByShortUrl(code));
+        CacheManager shortUrlTier = offHeap ? offHeapShortUrlTier(cacheManager.getCache(SHORT_URL_CACHE), metricsService) : null;
+        registerShortUrlTier(cacheManager, metricsService, ORIGINAL_URL_CACHE, originalUrlMaxWeightMb, originalUrlRefreshSeconds,
+                originalUrl -> repository.getObject().findByOriginalUrlHash(ShortUrl.hashOriginalUrl(originalUrl))
+                    .filter(url -> originalUrl.equals(url.getOriginalUrl()))
+                    .next());
+        Cache<Object, Object> negative = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+                .maximumSize(negativeMaxSize)
+                .recordStats()
+                .build();
+        cacheManager.registerCustomCache(SHORT_URL_NEGATIVE_CACHE, negative);
+        metricsService.registerCaffeineCache(SHORT_URL_NEGATIVE_CACHE, negative);
+        if (shortUrlTier == null) {
+            return cacheManager;
+        }
+        // The off-heap shortUrlCache is looked up first, every other name falls through to Caffeine
+        return new CompositeCacheManager(shortUrlTier, cacheManager);
+    }
+
+    // Packed codes off-heap; the Caffeine tier built above only keeps codes that do not pack
+    private CacheManager offHeapShortUrlTier(org.springframework.cache.Cache fallback, MetricsService metricsService) {
+        OffHeapCodeStore store = new OffHeapCodeStore(offHeapMaxEntries, offHeapArenaMb * 1024 * 1024, offHeapSegments,
+                Duration.ofMinutes(caffeineTtl).toMillis(), System::currentTimeMillis);
+        OffHeapShortUrlCache cache = new OffHeapShortUrlCache(SHORT_URL_CACHE, store, fallback);
+        metricsService.registerOffHeapCache(SHORT_URL_CACHE, cache::hitCount, cache::missCount, store::size,
+                store::arenaBytesUsed, store::reservedBytes, store::resetCount);
+        SimpleCacheManager manager = new SimpleCacheManager();
+        manager.setCaches(List.of(cache));
+        manager.afterPropertiesSet();
+        return manager;
+    }
+
+    // Bounded by the bytes the urls take rather than an entry count, so long urls cannot blow the heap.
+    // Without metricsService nothing is exported, for the tier kept behind the off-heap one
+    private void registerShortUrlTier(CaffeineCacheManager cacheManager, MetricsService metricsService, String cacheName,
+                                      long maxWeightMb, long refreshSeconds, Function<String, Mono<ShortUrl>> fetcher) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .expireAfter(expireAfterWrite(Duration.ofMinutes(caffeineTtl)))
+                .maximumWeight(maxWeightMb * 1024 * 1024)
+                .weigher((key, value) -> weigh((String) key, (ShortUrl) value))
+                .recordStats();
+        Cache<Object, Object> cache;
+        if (refreshSeconds > 0) {
+            BackgroundRefreshLoader<ShortUrl> loader = new BackgroundRefreshLoader<>(fetcher);
+            cache = builder.refreshAfterWrite(Duration.ofSeconds(refreshSeconds)).build(loader);
+            if (metricsService != null) {
+                metricsService.registerCacheRefreshes(cacheName, loader::refreshCount, loader::failureCount);
+            }
+        } else {
+            cache = builder.build();
+        }
+        cacheManager.registerCustomCache(cacheName, cache);
+        if (metricsService != null) {
+            metricsService.registerCaffeineCache(cacheName, cache);
+        }
+    }
+
+    /**
+     * expireAfterWrite as a per-entry expiry: the same ttl from every create, update and
+     * refresh, but Policy.expireVariably() can also put an entry with less, as L1WarmStart
+     * does so a warmed entry expires when the one it was snapshotted from would have.
+     */
+    public static Expiry<Object, Object> expireAfterWrite(Duration ttl) {
+        long ttlNanos = ttl.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    static int weigh(String key, ShortUrl value) {
+        int weight = ENTRY_OVERHEAD_BYTES + key.length();
+        if (value.getShortUrl() != null) {
+            weight += value.getShortUrl().length();
+        }
+        if (value.getOriginalUrl() != null) {
+            weight += value.getOriginalUrl().length();
+        }
+        return weight;
     }
 
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
+    public LettuceConnectionFactory redisConnectionFactory() {
         return new LettuceConnectionFactory(redisHost, redisPort);
     }
 
+    // L2 tier, see RedisL2Cache. Both templates read JSON and binary values; they differ in what they write
     @Bean
-    public CacheManager redisCacheManager(RedisConnectionFactory redisConnectionFactory) {
-        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofHours(refdisTtl))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()));
-        return RedisCacheManager.builder(redisConnectionFactory)
-                .cacheDefaults(config)
+    public ReactiveRedisTemplate<String, ShortUrl> shortUrlRedisTemplate(ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+        return shortUrlTemplate(reactiveRedisConnectionFactory, new ShortUrlRedisCodec(false));
+    }
+
+    @Bean
+    public ReactiveRedisTemplate<String, ShortUrl> shortUrlBinaryRedisTemplate(ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+        return shortUrlTemplate(reactiveRedisConnectionFactory, new ShortUrlRedisCodec(true));
+    }
+
+    private static ReactiveRedisTemplate<String, ShortUrl> shortUrlTemplate(ReactiveRedisConnectionFactory connectionFactory,
+                                                                           ShortUrlRedisCodec codec) {
+        RedisSerializationContext<String, ShortUrl> context = RedisSerializationContext
+                .<String, ShortUrl>newSerializationContext(RedisSerializer.string())
+                .value(codec)
                 .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
     }
-} 
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.melishorturlapi.config;
 
 import org.socialsignin.spring.data.dynamodb.repository.config.EnableDynamoDBRepositories;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -11,11 +12,29 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.service.SequenceShortCodeGenerator;
+
 import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 @Configuration
 @EnableDynamoDBRepositories(basePackages = "com.melishorturlapi.repository")
 public class DynamoDBConfig {
@@ -32,6 +51,12 @@ public class DynamoDBConfig {
     @Value("${amazon.aws.secretkey}")
     private String secretkey;
 
+    @Value("${amazon.dynamodb.async.max-concurrency:200}")
+    private int asyncMaxConcurrency;
+
+    @Value("${amazon.dynamodb.async.connection-timeout-ms:2000}")
+    private long asyncConnectionTimeoutMs;
+
     @Bean
     public AmazonDynamoDB amazonDynamoDB() {
         BasicAWSCredentials awsCreds = new BasicAWSCredentials(accesKey, secretkey);
@@ -48,29 +73,152 @@ public class DynamoDBConfig {
         return new DynamoDBMapper(amazonDynamoDB);
     }
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "amazon.dynamodb.client", havingValue = "async")
+    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+        return DynamoDbAsyncClient.builder()
+            .endpointOverride(URI.create(amazonDynamoDBEndpoint))
+            .region(Region.of(amazonAWSRegion))
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accesKey, secretkey)))
+            .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(asyncMaxConcurrency)
+                .connectionTimeout(Duration.ofMillis(asyncConnectionTimeoutMs)))
+            .build();
+    }
+
     @Configuration
     public class DynamoDBTableInitializer {
+        private static final Logger logger = LoggerFactory.getLogger(DynamoDBTableInitializer.class);
+        private static final String TABLE_NAME = "ShortUrls";
+        private static final String ORIGINAL_URL_HASH = "OriginalUrlHash";
+
         private final AmazonDynamoDB amazonDynamoDB;
 
+        @Value("${amazon.dynamodb.migration.backfill-original-url-hash:false}")
+        private boolean backfillOriginalUrlHash;
+
+        @Value("${url.shortening.code.strategy:hash}")
+        private String codeStrategy;
+
         public DynamoDBTableInitializer(AmazonDynamoDB amazonDynamoDB) {
             this.amazonDynamoDB = amazonDynamoDB;
         }
 
         @PostConstruct
         public void createTableIfNotExists() {
-            String tableName = "ShortUrls";
+            if ("sequence".equals(codeStrategy)) {
+                createSequenceTableIfNotExists();
+            }
+            TableDescription table;
             try {
-                amazonDynamoDB.describeTable(tableName);
-                // Table exists
+                table = amazonDynamoDB.describeTable(TABLE_NAME).getTable();
             } catch (ResourceNotFoundException e) {
                 // Table does not exist, create it
                 CreateTableRequest request = new CreateTableRequest()
-                        .withTableName(tableName)
+                        .withTableName(TABLE_NAME)
                         .withKeySchema(new KeySchemaElement("ShortUrl", KeyType.HASH))
-                        .withAttributeDefinitions(new AttributeDefinition("ShortUrl", ScalarAttributeType.S))
+                        .withAttributeDefinitions(
+                            new AttributeDefinition("ShortUrl", ScalarAttributeType.S),
+                            new AttributeDefinition(ORIGINAL_URL_HASH, ScalarAttributeType.S))
+                        .withGlobalSecondaryIndexes(originalUrlHashIndex(null))
                         .withBillingMode(BillingMode.PAY_PER_REQUEST);
                 amazonDynamoDB.createTable(request);
+                return;
+            }
+            // Table exists: tablas creadas antes del indice necesitan migracion
+            boolean indexCreated = ensureOriginalUrlHashIndex(table);
+            if (indexCreated || backfillOriginalUrlHash) {
+                // Long scan: off the common pool, and a failure must be visible, since items
+                // left without the hash are missed by findByOriginalUrlHash
+                Mono.fromRunnable(this::backfillOriginalUrlHash)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .subscribe(null, e -> logger.error(
+                                "[DynamoDB] Backfill of {} failed, re-run with amazon.dynamodb.migration.backfill-original-url-hash=true",
+                                ORIGINAL_URL_HASH, e));
             }
         }
+
+        // Counter items for SequenceShortCodeGenerator
+        private void createSequenceTableIfNotExists() {
+            try {
+                amazonDynamoDB.describeTable(SequenceShortCodeGenerator.SEQUENCE_TABLE);
+            } catch (ResourceNotFoundException e) {
+                amazonDynamoDB.createTable(new CreateTableRequest()
+                        .withTableName(SequenceShortCodeGenerator.SEQUENCE_TABLE)
+                        .withKeySchema(new KeySchemaElement(SequenceShortCodeGenerator.SEQUENCE_KEY, KeyType.HASH))
+                        .withAttributeDefinitions(new AttributeDefinition(SequenceShortCodeGenerator.SEQUENCE_KEY, ScalarAttributeType.S))
+                        .withBillingMode(BillingMode.PAY_PER_REQUEST));
+            }
+        }
+
+        private GlobalSecondaryIndex originalUrlHashIndex(ProvisionedThroughput throughput) {
+            return new GlobalSecondaryIndex()
+                    .withIndexName(ShortUrl.ORIGINAL_URL_HASH_INDEX)
+                    .withKeySchema(new KeySchemaElement(ORIGINAL_URL_HASH, KeyType.HASH))
+                    .withProjection(new Projection().withProjectionType(ProjectionType.ALL))
+                    .withProvisionedThroughput(throughput);
+        }
+
+        private boolean ensureOriginalUrlHashIndex(TableDescription table) {
+            if (table.getGlobalSecondaryIndexes() != null && table.getGlobalSecondaryIndexes().stream()
+                    .anyMatch(gsi -> ShortUrl.ORIGINAL_URL_HASH_INDEX.equals(gsi.getIndexName()))) {
+                return false;
+            }
+            // Provisioned tables need throughput on the new index, on-demand tables must not have it
+            ProvisionedThroughput throughput = null;
+            boolean onDemand = table.getBillingModeSummary() != null
+                    && BillingMode.PAY_PER_REQUEST.toString().equals(table.getBillingModeSummary().getBillingMode());
+            if (!onDemand && table.getProvisionedThroughput() != null) {
+                throughput = new ProvisionedThroughput(
+                        table.getProvisionedThroughput().getReadCapacityUnits(),
+                        table.getProvisionedThroughput().getWriteCapacityUnits());
+            }
+            GlobalSecondaryIndex index = originalUrlHashIndex(throughput);
+            try {
+                amazonDynamoDB.updateTable(new UpdateTableRequest()
+                        .withTableName(TABLE_NAME)
+                        .withAttributeDefinitions(new AttributeDefinition(ORIGINAL_URL_HASH, ScalarAttributeType.S))
+                        .withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate()
+                                .withCreate(new CreateGlobalSecondaryIndexAction()
+                                        .withIndexName(index.getIndexName())
+                                        .withKeySchema(index.getKeySchema())
+                                        .withProjection(index.getProjection())
+                                        .withProvisionedThroughput(index.getProvisionedThroughput()))));
+                logger.info("[DynamoDB] Creating index {} on table {}", ShortUrl.ORIGINAL_URL_HASH_INDEX, TABLE_NAME);
+                return true;
+            } catch (ResourceInUseException e) {
+                // Another node is already running the migration
+                logger.info("[DynamoDB] Table {} is being updated by another node: {}", TABLE_NAME, e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * Writes OriginalUrlHash on items saved before the index existed, so DynamoDB
+         * indexes them. Idempotent, safe to run from several nodes at once.
+         */
+        void backfillOriginalUrlHash() {
+            logger.info("[DynamoDB] Backfilling {} on table {}", ORIGINAL_URL_HASH, TABLE_NAME);
+            Map<String, AttributeValue> lastKey = null;
+            long updated = 0;
+            do {
+                ScanResult page = amazonDynamoDB.scan(new ScanRequest()
+                        .withTableName(TABLE_NAME)
+                        .withProjectionExpression("ShortUrl, OriginalUrl")
+                        .withFilterExpression("attribute_exists(OriginalUrl) AND attribute_not_exists(" + ORIGINAL_URL_HASH + ")")
+                        .withExclusiveStartKey(lastKey));
+                for (Map<String, AttributeValue> item : page.getItems()) {
+                    amazonDynamoDB.updateItem(new UpdateItemRequest()
+                            .withTableName(TABLE_NAME)
+                            .withKey(Map.of("ShortUrl", item.get("ShortUrl")))
+                            .withUpdateExpression("SET " + ORIGINAL_URL_HASH + " = :h")
+                            .withExpressionAttributeValues(Map.of(
+                                ":h", new AttributeValue(ShortUrl.hashOriginalUrl(item.get("OriginalUrl").getS())))));
+                    updated++;
+                }
+                lastKey = page.getLastEvaluatedKey();
+            } while (lastKey != null && !lastKey.isEmpty());
+            logger.info("[DynamoDB] Backfilled {} on {} items", ORIGINAL_URL_HASH, updated);
+        }
     }
 }
\ No newline at end of file
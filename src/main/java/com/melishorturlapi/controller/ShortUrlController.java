@@ -3,17 +3,22 @@ package com.melishorturlapi.controller;
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.melishorturlapi.config.AppConfig;
 import com.melishorturlapi.filters.ReactorMDC;
+import com.melishorturlapi.logging.LogSampler;
 import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.model.ShortUrlBatchResult;
 import com.melishorturlapi.model.UrlRequest;
 import com.melishorturlapi.service.MetricsService;
 import com.melishorturlapi.service.ShortUrlService;
+import com.melishorturlapi.stats.LinkStatsEngine;
 
 import io.opentelemetry.api.trace.Span;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,11 +26,20 @@ import org.slf4j.LoggerFactory;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/shorturl")
 public class ShortUrlController {
     private Logger logger = LoggerFactory.getLogger(ShortUrlController.class);
+    private static final LogSampler.Category LOOKUP_LOG = LogSampler.category("lookup");
+    private static final LogSampler.Category NOT_FOUND_LOG = LogSampler.category("not-found");
 
     @Autowired
     private ShortUrlService shortUrlService;
@@ -36,6 +50,9 @@ public class ShortUrlController {
     @Autowired
     private MetricsService metricsService;
 
+    @Autowired
+    private LinkStatsEngine linkStatsEngine;
+
     @PostMapping
     public Mono<ResponseEntity<String>> createShortUrl(@RequestBody UrlRequest request) {
         Span span = Span.current();
@@ -43,47 +60,153 @@ public class ShortUrlController {
         metricsService.incrementEndpointHit("urlService", "createShortUrl");
         String originalUrl = request.getOriginalUrl();
         
+        String invalid = validateUrl(originalUrl);
+        if (invalid != null) {
+            return ReactorMDC.withRequestId(Mono.just(ResponseEntity.badRequest().body(invalid)));
+        }
+        return ReactorMDC.withRequestId(shortUrlService.getShortUrlByOriginalUrl(originalUrl)
+            .flatMap(url -> Mono.just(ResponseEntity.ok("Short URL creada (existente): " + appConfig.getBaseShortUrl() + url.getShortUrl())))
+            .switchIfEmpty(
+                Mono.defer(() -> shortUrlService.generateShortUrl(originalUrl))
+                    .flatMap(code -> {
+                        ShortUrl newShortUrl = new ShortUrl();
+                        newShortUrl.setOriginalUrl(originalUrl);
+                        newShortUrl.setShortUrl(code);
+                        newShortUrl.setCreatedAt(DateTime.now().getMillis());
+                        newShortUrl.setRedirectCount(0L);
+                        return shortUrlService.createShortUrl(newShortUrl)
+                            .map(saved -> {
+                                metricsService.incrementShortUrlCreated();
+                                return ResponseEntity.ok("Short URL creada: " + appConfig.getBaseShortUrl() + saved.getShortUrl());
+                            });
+                    })
+            ));
+    }
+
+    // Array JSON o NDJSON de {"originalUrl": ...}; una respuesta por item, en el orden de entrada
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<?>> createShortUrls(@RequestBody Flux<UrlRequest> requests) {
+        metricsService.incrementEndpointHit("urlService", "createShortUrlBatch");
+        int maxSize = appConfig.getBatchMaxSize();
+        return ReactorMDC.withRequestId(requests
+            .map(request -> request.getOriginalUrl() == null ? "" : request.getOriginalUrl())
+            .take(maxSize + 1L)
+            .collectList()
+            .flatMap(urls -> {
+                if (urls.size() > maxSize) {
+                    return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("El lote supera el maximo de " + maxSize + " urls"));
+                }
+                if (urls.isEmpty()) {
+                    return Mono.just(ResponseEntity.badRequest().body("El lote no contiene urls"));
+                }
+                return createBatch(urls).map(ResponseEntity::ok);
+            })
+            .onErrorResume(e -> {
+                logger.error("[createShortUrls] Batch failed: {}", e.toString());
+                return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error creando urls"));
+            }));
+    }
+
+    // Valid urls are deduplicated before reaching the service, then every input position gets
+    // the result of its url
+    private Mono<List<ShortUrlBatchResult>> createBatch(List<String> urls) {
+        Map<String, ShortUrlBatchResult> invalid = new HashMap<>();
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String url : urls) {
+            String error = validateUrl(url);
+            if (error != null) {
+                invalid.put(url, ShortUrlBatchResult.failed(url, ShortUrlBatchResult.Status.INVALID, error));
+            } else {
+                distinct.add(url);
+            }
+        }
+        return shortUrlService.createShortUrls(new ArrayList<>(distinct))
+            .collectMap(ShortUrlBatchResult::getOriginalUrl, result -> {
+                if (result.getStatus() == ShortUrlBatchResult.Status.CREATED) {
+                    metricsService.incrementShortUrlCreated();
+                }
+                if (result.getShortUrl() != null) {
+                    result.setShortUrl(appConfig.getBaseShortUrl() + result.getShortUrl());
+                }
+                return result;
+            })
+            .map(results -> {
+                results.putAll(invalid);
+                List<ShortUrlBatchResult> ordered = new ArrayList<>(urls.size());
+                for (String url : urls) {
+                    ShortUrlBatchResult result = results.get(url);
+                    ordered.add(result != null ? result
+                        : ShortUrlBatchResult.failed(url, ShortUrlBatchResult.Status.FAILED, "No fue posible guardar la url"));
+                }
+                return ordered;
+            });
+    }
+
+    // Mensaje de error para la url, o null si se puede acortar
+    private static String validateUrl(String originalUrl) {
         if (originalUrl == null || originalUrl.trim().isEmpty()) {
-            return ReactorMDC.withRequestId(Mono.just(ResponseEntity.badRequest().body("No es posible acortar una url vacia")));
+            return "No es posible acortar una url vacia";
         }
         try {
             URI uri = new URI(originalUrl);
             uri.toURL();
         } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
-            return ReactorMDC.withRequestId(Mono.just(ResponseEntity.badRequest().body("Formato de URL invalido")));
+            return "Formato de URL invalido";
         }
-        return ReactorMDC.withRequestId(shortUrlService.getShortUrlByOriginalUrl(originalUrl)
-            .flatMap(url -> Mono.just(ResponseEntity.ok("Short URL creada (existente): " + appConfig.getBaseShortUrl() + url.getShortUrl())))
-            .switchIfEmpty(
-                Mono.defer(() -> {
-                    ShortUrl newShortUrl = new ShortUrl();
-                    newShortUrl.setOriginalUrl(originalUrl);
-                    newShortUrl.setShortUrl(shortUrlService.generateShortUrl(originalUrl));
-                    newShortUrl.setCreatedAt(DateTime.now().getMillis());
-                    newShortUrl.setRedirectCount(0L);
-                    return shortUrlService.createShortUrl(newShortUrl)
-                        .map(saved -> {
-                            metricsService.incrementShortUrlCreated();
-                            return ResponseEntity.ok("Short URL creada: " + appConfig.getBaseShortUrl() + saved.getShortUrl());
-                        });
-                })
-            ));
+        return null;
+    }
+
+    // Array JSON de codigos; responde codigo -> url original (null si no existe), en el orden de entrada
+    @PostMapping("/resolve")
+    public Mono<ResponseEntity<?>> resolveShortUrls(@RequestBody List<String> shortUrls) {
+        metricsService.incrementEndpointHit("urlService", "resolveShortUrls");
+        int maxSize = appConfig.getResolveMaxSize();
+        if (shortUrls.size() > maxSize) {
+            return ReactorMDC.withRequestId(Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body("El lote supera el maximo de " + maxSize + " codigos")));
+        }
+        // Un null llegaria a los caches de Caffeine, que no aceptan claves null
+        for (String shortUrl : shortUrls) {
+            if (shortUrl == null || shortUrl.isBlank()) {
+                return ReactorMDC.withRequestId(Mono.just(ResponseEntity.badRequest().body("El lote contiene codigos nulos o vacios")));
+            }
+        }
+        return ReactorMDC.withRequestId(shortUrlService.getShortUrls(shortUrls)
+            .<ResponseEntity<?>>map(found -> {
+                Map<String, String> resolved = new LinkedHashMap<>();
+                for (String shortUrl : shortUrls) {
+                    ShortUrl url = found.get(shortUrl);
+                    resolved.put(shortUrl, url != null ? url.getOriginalUrl() : null);
+                }
+                return ResponseEntity.ok(resolved);
+            })
+            .onErrorResume(e -> {
+                logger.error("[resolveShortUrls] Resolve failed: {}", e.toString());
+                return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error resolviendo codigos"));
+            }));
     }
 
     @GetMapping("/view/{shortUrl}")
     public Mono<ResponseEntity<String>> getOriginal(@PathVariable String shortUrl) {
         Span span = Span.current();
         span.setAttribute("request.shortUrl", shortUrl);
-        logger.info("[getOriginal] Received request for shortUrl: {}", shortUrl);
+        if (LOOKUP_LOG.tryAcquire()) {
+            logger.info("[getOriginal] Received request for shortUrl: {}", shortUrl);
+        }
         metricsService.incrementEndpointHit("urlService", "getOriginal");        
         return ReactorMDC.withRequestId(shortUrlService.getShortUrl(shortUrl)
             .map(t -> {
-                logger.info("[getOriginal] Found shortUrl: {} -> original: {}", shortUrl, t.getOriginalUrl());
-                metricsService.incrementViewUrl(t.getShortUrl(), t.getOriginalUrl());
+                if (LOOKUP_LOG.tryAcquire()) {
+                    logger.info("[getOriginal] Found shortUrl: {} -> original: {}", shortUrl, t.getOriginalUrl());
+                }
+                metricsService.incrementViewUrl(t.getShortUrl());
+                linkStatsEngine.recordView(t.getShortUrl());
                 return ResponseEntity.ok("Url original: " + t.getOriginalUrl());
             })
             .switchIfEmpty(Mono.fromCallable(() -> {
-                logger.warn("[getOriginal] shortUrl not found: {}", shortUrl);
+                if (NOT_FOUND_LOG.tryAcquire()) {
+                    logger.warn("[getOriginal] shortUrl not found: {}", shortUrl);
+                }
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("El codigo no corresponde a una url acortada");
             })));
     }
@@ -9,7 +9,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.melishorturlapi.service.MetricsService;
+import com.melishorturlapi.service.RedirectCountService;
 import com.melishorturlapi.service.ShortUrlService;
+import com.melishorturlapi.stats.HotLinksTracker;
+import com.melishorturlapi.stats.LinkStatsEngine;
 
 import reactor.core.publisher.Mono;
 
@@ -22,12 +25,26 @@ public class ShortUrlRedirectController {
 
     @Autowired
     private ShortUrlService shortUrlService;
+
+    @Autowired
+    private RedirectCountService redirectCountService;
+
+    @Autowired
+    private LinkStatsEngine linkStatsEngine;
+
+    @Autowired
+    private HotLinksTracker hotLinksTracker;
         // Redirect to the original URL
     @GetMapping("/{shortUrl}")
     public Mono<ResponseEntity<Void>> redirectToOriginal(@PathVariable String shortUrl) {
         metricsService.incrementEndpointHit("shortUrlService", "redirectToOriginal");
         return shortUrlService.getShortUrl(shortUrl)
-            .doOnNext(url -> metricsService.incrementRedirectCalls(url.getShortUrl()))
+            .doOnNext(url -> {
+                metricsService.incrementRedirectCalls(url.getShortUrl());
+                redirectCountService.increment(url.getShortUrl());
+                linkStatsEngine.recordRedirect(url.getShortUrl());
+                hotLinksTracker.recordRedirect(url.getShortUrl());
+            })
             .map(url -> ResponseEntity.status(HttpStatus.FOUND)
                                         .header("Location", url.getOriginalUrl())
                                         .<Void>build())
@@ -2,12 +2,22 @@ package com.melishorturlapi.controller;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.melishorturlapi.model.LinkStats;
 import com.melishorturlapi.service.MetricsService;
+import com.melishorturlapi.service.RedirectCountService;
+import com.melishorturlapi.service.ShortUrlService;
+import com.melishorturlapi.stats.HotLinksTracker;
+import com.melishorturlapi.stats.LinkStatsEngine;
+import com.melishorturlapi.stats.StatsWindow;
+
+import reactor.core.publisher.Mono;
 
 @RestController
 public class ShortUrlStatsController {
@@ -15,9 +25,56 @@ public class ShortUrlStatsController {
     @Autowired
     private MetricsService metricsService;
 
+    @Autowired
+    private LinkStatsEngine linkStatsEngine;
+
+    @Autowired
+    private HotLinksTracker hotLinksTracker;
+
+    @Autowired
+    private ShortUrlService shortUrlService;
+
+    @Autowired
+    private RedirectCountService redirectCountService;
+
+    // Los n codigos con mas redirects en la ventana (5m, 1h...), estimados con sketches en memoria
+    @GetMapping("/api/v1/stats/top")
+    public ResponseEntity<?> getTop(@RequestParam(defaultValue = "10") int n,
+                                    @RequestParam(defaultValue = "5m") String window) {
+        metricsService.incrementEndpointHit("getTop", "statsService");
+        if (n < 1 || n > hotLinksTracker.candidates()) {
+            return ResponseEntity.badRequest().body("n debe estar entre 1 y " + hotLinksTracker.candidates());
+        }
+        int windowMinutes;
+        try {
+            windowMinutes = hotLinksTracker.windowMinutes(window);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Ventana invalida, usar entre 1m y " + hotLinksTracker.maxWindowMinutes() + "m");
+        }
+        return ResponseEntity.ok().body(hotLinksTracker.top(n, windowMinutes));
+    }
+
+    // Redirects y vistas en la ventana pedida (minute, hour o day), desde memoria, mas el
+    // RedirectCount de la copia cacheada (L1/L2, la misma lectura que un redirect) y los redirects
+    // de este nodo que aun no se escribieron
     @GetMapping("/api/v1/stats/{shortUrl}")
-    public ResponseEntity<String> getStats(@PathVariable String shortUrl) {
+    public Mono<ResponseEntity<?>> getStats(@PathVariable String shortUrl,
+                                            @RequestParam(defaultValue = "hour") String window) {
         metricsService.incrementEndpointHit("getStats", "statsService");
-        return ResponseEntity.ok().body(shortUrl + " has 38 hits");
+        StatsWindow statsWindow;
+        try {
+            statsWindow = StatsWindow.named(window);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body("Ventana invalida, usar minute, hour o day"));
+        }
+        return shortUrlService.getShortUrl(shortUrl)
+            .<ResponseEntity<?>>map(url -> {
+                LinkStats stats = linkStatsEngine.stats(shortUrl, statsWindow);
+                long stored = url.getRedirectCount() != null ? url.getRedirectCount() : 0;
+                stats.setTotalRedirects(stored + redirectCountService.pendingCount(shortUrl));
+                return ResponseEntity.ok().body(stats);
+            })
+            .switchIfEmpty(Mono.fromCallable(() ->
+                ResponseEntity.status(HttpStatus.NOT_FOUND).body("El codigo no corresponde a una url acortada")));
     }
-}
\ No newline at end of file
+}
@@ -1,72 +1,185 @@
 package com.melishorturlapi.filters;
 
+import com.melishorturlapi.ratelimit.RouteClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import org.reactivestreams.Publisher;
 
+/**
+ * Logs a sample of API calls with their bodies. Whether a request is captured is decided
+ * once, when it arrives, from api.logging.&lt;route class&gt;.sample-rate (see
+ * {@link RouteClass}; 0 turns a class off, 1 captures all of it). Requests not sampled go down
+ * the chain untouched, which by default is every redirect.
+ *
+ * A captured call keeps retained slices of the first api.logging.max-bytes of each body as
+ * they stream past, instead of joining and copying them, and logs one line when the exchange
+ * completes; the slices are released right after. A call that fails is logged when the error
+ * response commits, with its status and the error, since the WebExceptionHandler writes it
+ * after the filters have returned.
+ */
 @Component
 public class ApiLoggingWebFilter implements WebFilter {
     private static final Logger logger = LoggerFactory.getLogger(ApiLoggingWebFilter.class);
 
+    private final double[] sampleRates = new double[RouteClass.values().length];
+    private final int maxBytes;
+
+    @Autowired
+    public ApiLoggingWebFilter(@Value("${api.logging.redirect.sample-rate:0}") double redirectSampleRate,
+                               @Value("${api.logging.create.sample-rate:0.01}") double createSampleRate,
+                               @Value("${api.logging.admin.sample-rate:1}") double adminSampleRate,
+                               @Value("${api.logging.max-bytes:2048}") int maxBytes) {
+        this.sampleRates[RouteClass.REDIRECT.ordinal()] = redirectSampleRate;
+        this.sampleRates[RouteClass.CREATE.ordinal()] = createSampleRate;
+        this.sampleRates[RouteClass.ADMIN.ordinal()] = adminSampleRate;
+        this.maxBytes = maxBytes;
+    }
+
     @Override
-    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
-        ServerHttpResponse response = exchange.getResponse();
-
-        // Buffer and log the request body
-        return DataBufferUtils.join(request.getBody())
-            .defaultIfEmpty(exchange.getResponse().bufferFactory().wrap(new byte[0]))
-            .flatMap(dataBuffer -> {
-                byte[] bodyBytes = new byte[dataBuffer.readableByteCount()];
-                dataBuffer.read(bodyBytes);
-                DataBufferUtils.release(dataBuffer);
-                String requestBody = new String(bodyBytes, StandardCharsets.UTF_8);
-                logger.info("--- API CALL ---\nMethod: {}\nURI: {}\nHeaders: {}\nRequest Body: {}",
-                        request.getMethod(), request.getURI(), request.getHeaders(), requestBody);
-
-                // Decorate the request with the cached body
-                ServerHttpRequest mutatedRequest = request.mutate().build();
-                mutatedRequest = new org.springframework.http.server.reactive.ServerHttpRequestDecorator(mutatedRequest) {
-                    @Override
-                    public Flux<DataBuffer> getBody() {
-                        return Flux.just(exchange.getResponse().bufferFactory().wrap(bodyBytes));
-                    }
-                };
-
-                // Buffer and log the response body
-                ServerHttpResponse mutatedResponse = response;
-                org.springframework.http.server.reactive.ServerHttpResponseDecorator responseDecorator =
-                        new org.springframework.http.server.reactive.ServerHttpResponseDecorator(mutatedResponse) {
-                    @Override
-                    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
-                        if (body instanceof Flux) {
-                            Flux<? extends DataBuffer> fluxBody = (Flux<? extends DataBuffer>) body;
-                            return super.writeWith(
-                                    fluxBody.doOnNext(dataBuffer -> {
-                                        byte[] content = new byte[dataBuffer.readableByteCount()];
-                                        dataBuffer.read(content);
-                                        String responseBody = new String(content, StandardCharsets.UTF_8);
-                                        logger.info("Response Status: {}\nResponse Body: {}", getStatusCode(), responseBody);
-                                    })
-                            );
-                        }
-                        return super.writeWith(body);
-                    }
-                };
-
-                return chain.filter(exchange.mutate().request(mutatedRequest).response(responseDecorator).build());
+        RouteClass routeClass = RouteClass.of(request.getMethod(), request.getPath().value());
+        if (routeClass == null || !sampled(sampleRates[routeClass.ordinal()])) {
+            return chain.filter(exchange);
+        }
+
+        BodySlices requestBody = new BodySlices(maxBytes);
+        BodySlices responseBody = new BodySlices(maxBytes);
+        ServerHttpRequest capturedRequest = new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().doOnNext(requestBody::add);
+            }
+        };
+        ServerHttpResponse capturedResponse = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                return super.writeWith(Flux.from(body).doOnNext(responseBody::add));
+            }
+
+            @Override
+            public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+                return super.writeAndFlushWith(Flux.from(body).map(part -> Flux.from(part).doOnNext(responseBody::add)));
+            }
+        };
+
+        return chain.filter(exchange.mutate().request(capturedRequest).response(capturedResponse).build())
+            .doOnError(error -> {
+                String requestText = requestBody.takeText();
+                String responseText = responseBody.takeText();
+                ServerHttpResponse response = exchange.getResponse();
+                if (response.isCommitted()) {
+                    log(request, response.getStatusCode(), requestText, responseText, error);
+                    return;
+                }
+                // The WebExceptionHandler writes the error response after this filter returns, to the
+                // original response past the capture, so its status is only known once it commits
+                response.beforeCommit(() -> Mono.fromRunnable(
+                    () -> log(request, response.getStatusCode(), requestText, responseText, error)));
+            })
+            .doFinally(signal -> {
+                if (signal != SignalType.ON_ERROR) {
+                    log(request, capturedResponse.getStatusCode(), requestBody.takeText(), responseBody.takeText(), null);
+                }
             });
     }
-}
\ No newline at end of file
+
+    private static void log(ServerHttpRequest request, HttpStatus status, String requestText, String responseText, Throwable error) {
+        if (error == null) {
+            logger.info("--- API CALL ---\nMethod: {}\nURI: {}\nHeaders: {}\nRequest Body: {}\nResponse Status: {}\nResponse Body: {}",
+                request.getMethod(), request.getURI(), request.getHeaders(), requestText, status, responseText);
+        } else {
+            logger.info("--- API CALL ---\nMethod: {}\nURI: {}\nHeaders: {}\nRequest Body: {}\nResponse Status: {}\nResponse Body: {}\nError: {}",
+                request.getMethod(), request.getURI(), request.getHeaders(), requestText, status, responseText, error.toString());
+        }
+    }
+
+    private static boolean sampled(double rate) {
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    // Retained views of the first limit bytes of a body; the buffers themselves flow on unchanged
+    static final class BodySlices {
+        private final int limit;
+        private final List<DataBuffer> slices = new ArrayList<>(2);
+        private int captured;
+        private long total;
+
+        BodySlices(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized void add(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            total += readable;
+            int length = Math.min(readable, limit - captured);
+            if (length > 0) {
+                slices.add(buffer.retainedSlice(buffer.readPosition(), length));
+                captured += length;
+            }
+        }
+
+        // Copied into one array and decoded in one pass, so a character split across buffers stays whole
+        synchronized String text() {
+            byte[] bytes = new byte[captured];
+            int offset = 0;
+            for (DataBuffer slice : slices) {
+                int length = slice.readableByteCount();
+                slice.asByteBuffer().get(bytes, offset, length);
+                offset += length;
+            }
+            boolean truncated = total > captured;
+            String text = new String(bytes, 0, truncated ? wholeCharacters(bytes) : bytes.length, StandardCharsets.UTF_8);
+            return truncated ? text + "... (" + total + " bytes)" : text;
+        }
+
+        /** The text, after which the slices are released. */
+        synchronized String takeText() {
+            try {
+                return text();
+            } finally {
+                release();
+            }
+        }
+
+        synchronized void release() {
+            slices.forEach(DataBufferUtils::release);
+            slices.clear();
+        }
+
+        // Length without a UTF-8 sequence the limit cut short, so a truncated body does not end in U+FFFD
+        private static int wholeCharacters(byte[] bytes) {
+            for (int i = bytes.length - 1; i >= 0 && i >= bytes.length - 4; i--) {
+                int b = bytes[i] & 0xFF;
+                if ((b & 0xC0) == 0x80) {
+                    continue;
+                }
+                int sequence = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+                return i + sequence > bytes.length ? i : bytes.length;
+            }
+            return bytes.length;
+        }
+    }
+}
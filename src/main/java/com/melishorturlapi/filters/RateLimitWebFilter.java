@@ -1,11 +1,18 @@
 package com.melishorturlapi.filters;
 
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import com.melishorturlapi.logging.LogSampler;
+import com.melishorturlapi.ratelimit.ClientKeyResolver;
+import com.melishorturlapi.ratelimit.RateLimiter;
+import com.melishorturlapi.ratelimit.RedisRateLimiter;
+import com.melishorturlapi.ratelimit.RouteClass;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
@@ -13,19 +20,41 @@ import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
-import java.time.Duration;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Per-client rate limiting by route class, see {@link RateLimiter}, or cluster-wide with
+ * rate.limit.mode=redis, see {@link RedisRateLimiter}. Requests allowed locally go straight
+ * down the chain without allocating or logging; rejected ones get a 429 with Retry-After.
+ */
 @Component
 public class RateLimitWebFilter implements WebFilter {
     private static final Logger logger = LoggerFactory.getLogger(RateLimitWebFilter.class);
-    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    // A client hammering past its limit would otherwise log every rejected request
+    private static final LogSampler.Category REJECTED_LOG = LogSampler.category("rate-limit");
 
-    @Value("${rate.limit.enabled:true}")
-    private boolean rateLimitEnabled;
+    private final RateLimiter rateLimiter;
+    private final RedisRateLimiter redisRateLimiter;
+    private final ClientKeyResolver clientKeyResolver;
+    private final boolean rateLimitEnabled;
 
-    public RateLimitWebFilter() {
-        logger.info("[RateLimit] RateLimitWebFilter constructor called - filter is being instantiated");
+    @Autowired
+    public RateLimitWebFilter(RateLimiter rateLimiter, ObjectProvider<RedisRateLimiter> redisRateLimiter,
+                              ClientKeyResolver clientKeyResolver,
+                              @Value("${rate.limit.enabled:true}") boolean rateLimitEnabled) {
+        this(rateLimiter, redisRateLimiter.getIfAvailable(), clientKeyResolver, rateLimitEnabled);
+    }
+
+    public RateLimitWebFilter(RateLimiter rateLimiter, ClientKeyResolver clientKeyResolver, boolean rateLimitEnabled) {
+        this(rateLimiter, (RedisRateLimiter) null, clientKeyResolver, rateLimitEnabled);
+    }
+
+    public RateLimitWebFilter(RateLimiter rateLimiter, RedisRateLimiter redisRateLimiter,
+                              ClientKeyResolver clientKeyResolver, boolean rateLimitEnabled) {
+        this.rateLimiter = rateLimiter;
+        this.redisRateLimiter = redisRateLimiter;
+        this.clientKeyResolver = clientKeyResolver;
+        this.rateLimitEnabled = rateLimitEnabled;
     }
 
     @PostConstruct
@@ -35,35 +64,36 @@ public class RateLimitWebFilter implements WebFilter {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        // If rate limiting is disabled, just continue with the chain
         if (!rateLimitEnabled) {
-            logger.debug("[RateLimit] Rate limiting is disabled, allowing request");
             return chain.filter(exchange);
         }
-
-        String clientIp = exchange.getRequest().getRemoteAddress() != null ? 
-            exchange.getRequest().getRemoteAddress().getAddress().getHostAddress() : "unknown";
-        
-        logger.info("[RateLimit] Request from IP: {}, URI: {}", clientIp, exchange.getRequest().getURI());
-        
-        Bucket bucket = buckets.computeIfAbsent(clientIp, k -> {
-            logger.info("[RateLimit] Creating new bucket for IP: {}", clientIp);
-            return Bucket.builder()
-                .addLimit(Bandwidth.classic(10, Refill.greedy(10, Duration.ofSeconds(20))))
-                .build();
-        });
-        
-        boolean consumed = bucket.tryConsume(1);
-        logger.info("[RateLimit] IP: {}, Tokens consumed: {}, Remaining: {}", 
-                   clientIp, consumed, bucket.getAvailableTokens());
-        
-        if (consumed) {
-            logger.info("[RateLimit] Allowing request for IP: {}", clientIp);
+        ServerHttpRequest request = exchange.getRequest();
+        RouteClass routeClass = RouteClass.of(request.getMethod(), request.getPath().value());
+        if (routeClass == null) {
             return chain.filter(exchange);
-        } else {
-            logger.warn("[RateLimit] Rate limiting request for IP: {}", clientIp);
-            exchange.getResponse().setStatusCode(org.springframework.http.HttpStatus.TOO_MANY_REQUESTS);
-            return exchange.getResponse().setComplete();
         }
+        long clientKey = clientKeyResolver.clientKey(request);
+        long wait = redisRateLimiter != null
+            ? redisRateLimiter.tryAcquire(routeClass, clientKey)
+            : rateLimiter.tryAcquire(routeClass, clientKey);
+        if (wait == 0) {
+            return chain.filter(exchange);
+        }
+        if (wait == RedisRateLimiter.ASK_REDIS) {
+            return redisRateLimiter.acquireRemote(routeClass, clientKey)
+                .flatMap(remoteWait -> remoteWait == 0 ? chain.filter(exchange) : reject(exchange, routeClass, remoteWait));
+        }
+        return reject(exchange, routeClass, wait);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, RouteClass routeClass, long wait) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (logger.isDebugEnabled() && REJECTED_LOG.tryAcquire()) {
+            logger.debug("[RateLimit] Rejecting {} {} ({} limit)", request.getMethod(), request.getPath(), routeClass.key());
+        }
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
     }
-}
\ No newline at end of file
+}
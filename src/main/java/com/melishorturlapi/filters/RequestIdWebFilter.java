@@ -1,39 +1,49 @@
 package com.melishorturlapi.filters;
 
+import com.melishorturlapi.logging.LogSampler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
-import reactor.util.context.Context;
-
-import java.util.UUID;
 
+/**
+ * Gives every request an ID, from the shorturl-request-id header when the caller sent one and
+ * otherwise from {@link RequestIds} (the OTel trace ID, or a time-ordered ULID). The ID is
+ * echoed in the response header and put in the Reactor context for {@link ReactorMDC}.
+ */
 @Component
 public class RequestIdWebFilter implements WebFilter {
 
     public static final String REQUEST_ID_HEADER = "shorturl-request-id";
     public static final String REQUEST_ID_KEY = "shorturlRequestId";
 
+    private static final Logger logger = LoggerFactory.getLogger(RequestIdWebFilter.class);
+    private static final LogSampler.Category REQUEST_LOG = LogSampler.category("request");
+
     @Override
     public Mono<Void> filter(@NonNull ServerWebExchange exchange,@NonNull WebFilterChain chain) {
         String requestId = exchange.getRequest().getHeaders().getFirst(REQUEST_ID_HEADER);
         if (requestId == null || requestId.isEmpty()) {
-            requestId = UUID.randomUUID().toString();
+            requestId = RequestIds.next();
         }
 
         // Agrega el header a la respuesta
         exchange.getResponse().getHeaders().add(REQUEST_ID_HEADER, requestId);
 
-        // Loguea el requestId y la ruta al inicio de cada request
-        String path = exchange.getRequest().getPath().toString();
-        String method = exchange.getRequest().getMethodValue();
-        org.slf4j.LoggerFactory.getLogger(RequestIdWebFilter.class)
-            .info("Request started: method={}, path={}, shorturl-request-id={}", method, path, requestId);
+        // Loguea el requestId y la ruta al inicio del request, con muestreo (ver LogSampler)
+        if (REQUEST_LOG.tryAcquire()) {
+            String path = exchange.getRequest().getPath().toString();
+            String method = exchange.getRequest().getMethodValue();
+            logger.info("Request started: method={}, path={}, shorturl-request-id={}", method, path, requestId);
+        }
 
-        // Propaga el requestId en el contexto reactivo
+        // Propaga el requestId en el contexto reactivo; put directo, sin un Context.of intermedio
+        String id = requestId;
         return chain.filter(exchange)
-                .contextWrite(Context.of(REQUEST_ID_KEY, requestId));
+                .contextWrite(context -> context.put(REQUEST_ID_KEY, id));
     }
 }
@@ -0,0 +1,58 @@
+package com.melishorturlapi.filters;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request IDs for requests that arrive without one. Inside a traced request the OTel trace ID
+ * is the ID, so logs and traces share one identifier; otherwise a ULID is generated: 26
+ * Crockford base32 chars, 48 bits of milliseconds then 80 random bits, so IDs sort by the time
+ * they were issued (to the millisecond; IDs of the same millisecond are in random order).
+ *
+ * Milliseconds come from System.nanoTime() offset to the wall clock once, at class load, so
+ * they never go backwards when NTP steps the clock. The random bits come from ThreadLocalRandom:
+ * unlike UUID.randomUUID() there is no shared SecureRandom to contend on, and request IDs need
+ * uniqueness, not unpredictability.
+ */
+final class RequestIds {
+
+    static final int LENGTH = 26;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final long BASE_MILLIS = System.currentTimeMillis();
+    private static final long BASE_NANOS = System.nanoTime();
+    private static final long FORTY_BITS = (1L << 40) - 1;
+
+    private RequestIds() {
+    }
+
+    /** The current trace ID when a span is active, else a new ULID. */
+    static String next() {
+        SpanContext span = Span.current().getSpanContext();
+        return span.isValid() ? span.getTraceId() : ulid(currentMillis());
+    }
+
+    static long currentMillis() {
+        return BASE_MILLIS + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - BASE_NANOS);
+    }
+
+    static String ulid(long millis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[LENGTH];
+        encode(chars, 0, millis, 10);
+        encode(chars, 10, random.nextLong() & FORTY_BITS, 8);
+        encode(chars, 18, random.nextLong() & FORTY_BITS, 8);
+        return new String(chars);
+    }
+
+    // The low 5 * count bits of value as count chars, most significant first
+    private static void encode(char[] chars, int offset, long value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = CROCKFORD[(int) (value & 31)];
+            value >>>= 5;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.melishorturlapi.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * Logback's AsyncAppender (a bounded array queue drained by one worker thread into the
+ * attached appenders), counting what it throws away. Configured with neverBlock, a request
+ * thread never waits on the console: once the queue passes the discarding threshold, events
+ * of INFO and below are dropped, and once it is full everything is. Both are counted here and
+ * exported by {@link LoggingGovernance}, so a slow sink shows up as a metric instead of as
+ * request latency.
+ */
+public class DroppingAsyncAppender extends AsyncAppender {
+
+    private static final LongAdder DROPPED = new LongAdder();
+    private static volatile DroppingAsyncAppender current;
+
+    public static long dropped() {
+        return DROPPED.sum();
+    }
+
+    /** Events waiting for the worker, 0 before logback has started the appender. */
+    public static int queued() {
+        DroppingAsyncAppender appender = current;
+        return appender != null && appender.isStarted() ? appender.getNumberOfElementsInQueue() : 0;
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        current = this;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Events the threshold lets through but a full queue refuses; racy by a few, fine for a counter
+        if (getRemainingCapacity() == 0 && (getDiscardingThreshold() == 0 || !super.isDiscardable(event))) {
+            DROPPED.increment();
+        }
+        super.append(event);
+    }
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        boolean discardable = super.isDiscardable(event);
+        if (discardable) {
+            DROPPED.increment();
+        }
+        return discardable;
+    }
+}
@@ -0,0 +1,102 @@
+package com.melishorturlapi.logging;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-category token buckets for log lines written on every request. Call sites hold a
+ * category in a static field, like their logger, and only log when it grants a token:
+ *
+ *     if (LOOKUP_LOG.tryAcquire()) { logger.info(...); }
+ *
+ * Each category allows its per-second rate, with up to a second's worth in a burst; what it
+ * refuses is counted as suppressed instead. Rates come from logging.sample.* once the context
+ * is up (see {@link LoggingGovernance}); until then every category uses DEFAULT_PER_SECOND.
+ */
+public final class LogSampler {
+
+    public static final double DEFAULT_PER_SECOND = 10;
+
+    private static final Map<String, Category> CATEGORIES = new ConcurrentHashMap<>();
+    private static volatile ToDoubleFunction<String> rates = name -> DEFAULT_PER_SECOND;
+
+    private LogSampler() {
+    }
+
+    public static Category category(String name) {
+        return CATEGORIES.computeIfAbsent(name, key -> new Category(key, rates.applyAsDouble(key)));
+    }
+
+    /** Sets the rate of every category, current and future. */
+    public static synchronized void configure(ToDoubleFunction<String> perSecond) {
+        rates = perSecond;
+        CATEGORIES.values().forEach(category -> category.setRate(perSecond.applyAsDouble(category.name())));
+    }
+
+    /** Drops a category from the registry, for tests that make their own. */
+    static void remove(String name) {
+        CATEGORIES.remove(name);
+    }
+
+    static Collection<Category> categories() {
+        return Collections.unmodifiableCollection(CATEGORIES.values());
+    }
+
+    /**
+     * GCRA over one AtomicLong, like the request rate limiter: a line at now is allowed while
+     * the theoretical arrival time is at most a second ahead of it.
+     */
+    public static final class Category {
+        private final String name;
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+        private final LongAdder suppressed = new LongAdder();
+        private volatile long emissionNanos;
+        private volatile long toleranceNanos;
+        private volatile boolean off;
+
+        Category(String name, double perSecond) {
+            this.name = name;
+            setRate(perSecond);
+        }
+
+        /** True if this line may be logged; otherwise it is counted as suppressed. */
+        public boolean tryAcquire() {
+            if (!off) {
+                long now = System.nanoTime();
+                long emission = emissionNanos;
+                long current;
+                while ((current = tat.get()) - now <= toleranceNanos) {
+                    long start = current - now > 0 ? current : now;
+                    if (tat.compareAndSet(current, start + emission)) {
+                        return true;
+                    }
+                }
+            }
+            suppressed.increment();
+            return false;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public long suppressed() {
+            return suppressed.sum();
+        }
+
+        // 0 or less turns the category off
+        void setRate(double perSecond) {
+            off = perSecond <= 0;
+            if (!off) {
+                emissionNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / perSecond));
+                toleranceNanos = Math.max(0, TimeUnit.SECONDS.toNanos(1) - emissionNanos);
+            }
+        }
+    }
+}
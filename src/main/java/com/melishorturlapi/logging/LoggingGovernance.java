@@ -0,0 +1,45 @@
+package com.melishorturlapi.logging;
+
+import com.melishorturlapi.service.MetricsService;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies logging.sample.per-second (and logging.sample.&lt;category&gt;.per-second overrides)
+ * to the {@link LogSampler} categories, and exports what the sampler suppressed and what
+ * {@link DroppingAsyncAppender} dropped.
+ */
+@Component
+public class LoggingGovernance {
+
+    private final Environment environment;
+    private final MetricsService metricsService;
+    private final double defaultPerSecond;
+
+    public LoggingGovernance(Environment environment, MetricsService metricsService,
+                             @Value("${logging.sample.per-second:" + LogSampler.DEFAULT_PER_SECOND + "}") double defaultPerSecond) {
+        this.environment = environment;
+        this.metricsService = metricsService;
+        this.defaultPerSecond = defaultPerSecond;
+    }
+
+    @PostConstruct
+    public void configure() {
+        LogSampler.configure(name -> environment.getProperty("logging.sample." + name + ".per-second", Double.class, defaultPerSecond));
+    }
+
+    // Categories live in static fields of beans, so by now every one of them exists
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerMetrics() {
+        for (LogSampler.Category category : LogSampler.categories()) {
+            metricsService.registerSuppressedLogs(category.name(), category::suppressed);
+        }
+        metricsService.registerLogPipeline(DroppingAsyncAppender::dropped, DroppingAsyncAppender::queued);
+    }
+}
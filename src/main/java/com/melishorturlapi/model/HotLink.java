@@ -0,0 +1,31 @@
+package com.melishorturlapi.model;
+
+// Elemento de GET /api/v1/stats/top: codigo y redirects estimados en la ventana pedida
+public class HotLink {
+    private String shortUrl;
+    private long redirects;
+
+    public HotLink() {
+    }
+
+    public HotLink(String shortUrl, long redirects) {
+        this.shortUrl = shortUrl;
+        this.redirects = redirects;
+    }
+
+    public String getShortUrl() {
+        return shortUrl;
+    }
+
+    public void setShortUrl(String shortUrl) {
+        this.shortUrl = shortUrl;
+    }
+
+    public long getRedirects() {
+        return redirects;
+    }
+
+    public void setRedirects(long redirects) {
+        this.redirects = redirects;
+    }
+}
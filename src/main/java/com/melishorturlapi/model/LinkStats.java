@@ -0,0 +1,74 @@
+package com.melishorturlapi.model;
+
+// Respuesta de GET /api/v1/stats/{shortUrl}: redirects y vistas del codigo en la ventana pedida,
+// mas el total historico de redirects: RedirectCount tal como estaba al cachearse el link (L1/L2,
+// hasta cache.redis.ttl de antiguedad) + pendientes de este nodo; es una cota inferior.
+// tracked es false si el motor en memoria no tiene contadores del codigo (sin actividad en el dia,
+// o llego con la tabla llena, stats.max-codes); redirects y views valen 0 y no son confiables
+public class LinkStats {
+    private String shortUrl;
+    private String window;
+    private long redirects;
+    private long views;
+    private boolean tracked;
+    private long totalRedirects;
+
+    public LinkStats() {
+    }
+
+    public LinkStats(String shortUrl, String window, long redirects, long views, boolean tracked) {
+        this.shortUrl = shortUrl;
+        this.window = window;
+        this.redirects = redirects;
+        this.views = views;
+        this.tracked = tracked;
+    }
+
+    public String getShortUrl() {
+        return shortUrl;
+    }
+
+    public void setShortUrl(String shortUrl) {
+        this.shortUrl = shortUrl;
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public void setWindow(String window) {
+        this.window = window;
+    }
+
+    public long getRedirects() {
+        return redirects;
+    }
+
+    public void setRedirects(long redirects) {
+        this.redirects = redirects;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public void setViews(long views) {
+        this.views = views;
+    }
+
+    public boolean isTracked() {
+        return tracked;
+    }
+
+    public void setTracked(boolean tracked) {
+        this.tracked = tracked;
+    }
+
+    public long getTotalRedirects() {
+        return totalRedirects;
+    }
+
+    public void setTotalRedirects(long totalRedirects) {
+        this.totalRedirects = totalRedirects;
+    }
+}
@@ -2,13 +2,21 @@ package com.melishorturlapi.model;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.*;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
 @DynamoDBTable(tableName = "ShortUrls")
 public class ShortUrl {
 
+    public static final String ORIGINAL_URL_HASH_INDEX = "OriginalUrlHashIndex";
+
     private String shortUrl;
     private String originalUrl;
+    private String originalUrlHash;
     private Long createdAt;
-    private Long redirectCount; //no se usa - se delega a la telemetria
+    private Long redirectCount; // lo acumula RedirectCountService (write-behind), no se escribe en cada redirect
 
     @DynamoDBHashKey(attributeName = "ShortUrl")
     public String getShortUrl() {
@@ -26,6 +34,20 @@ public class ShortUrl {
 
     public void setOriginalUrl(String originalUrl) {
         this.originalUrl = originalUrl;
+        this.originalUrlHash = null;
+    }
+
+    // Clave del GSI usado para deduplicar; se deriva de originalUrl para que todo save la lleve
+    @DynamoDBIndexHashKey(attributeName = "OriginalUrlHash", globalSecondaryIndexName = ORIGINAL_URL_HASH_INDEX)
+    public String getOriginalUrlHash() {
+        if (originalUrlHash == null && originalUrl != null) {
+            originalUrlHash = hashOriginalUrl(originalUrl);
+        }
+        return originalUrlHash;
+    }
+
+    public void setOriginalUrlHash(String originalUrlHash) {
+        this.originalUrlHash = originalUrlHash;
     }
 
     @DynamoDBAttribute(attributeName = "CreatedAt")
@@ -45,4 +67,18 @@ public class ShortUrl {
     public void setRedirectCount(Long redirectCount) {
         this.redirectCount = redirectCount;
     }
-}
\ No newline at end of file
+
+    /**
+     * SHA-256 of the original url, base64url encoded. Urls can exceed the 2048 byte
+     * limit of a DynamoDB key, the hash always fits.
+     */
+    public static String hashOriginalUrl(String originalUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(originalUrl.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.melishorturlapi.model;
+
+// Resultado por item de POST /api/v1/shorturl/batch, en el mismo orden que la entrada
+public class ShortUrlBatchResult {
+
+    public enum Status { CREATED, EXISTING, INVALID, FAILED }
+
+    private String originalUrl;
+    private String shortUrl;
+    private Status status;
+    private String error;
+
+    public ShortUrlBatchResult() {
+    }
+
+    public ShortUrlBatchResult(String originalUrl, String shortUrl, Status status, String error) {
+        this.originalUrl = originalUrl;
+        this.shortUrl = shortUrl;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static ShortUrlBatchResult of(String originalUrl, String shortUrl, Status status) {
+        return new ShortUrlBatchResult(originalUrl, shortUrl, status, null);
+    }
+
+    public static ShortUrlBatchResult failed(String originalUrl, Status status, String error) {
+        return new ShortUrlBatchResult(originalUrl, null, status, error);
+    }
+
+    public String getOriginalUrl() {
+        return originalUrl;
+    }
+
+    public void setOriginalUrl(String originalUrl) {
+        this.originalUrl = originalUrl;
+    }
+
+    public String getShortUrl() {
+        return shortUrl;
+    }
+
+    public void setShortUrl(String shortUrl) {
+        this.shortUrl = shortUrl;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,225 @@
+package com.melishorturlapi.ratelimit;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns a request into the 64 bit client key it is rate limited by. The client is the peer
+ * address, unless the peer is one of rate.limit.trusted-proxies: then X-Forwarded-For is
+ * walked from the right, skipping trusted hops, and the first untrusted entry is the client.
+ * Entries left of it are whatever the client sent and are never believed. With no trusted
+ * proxies configured the header is ignored altogether.
+ *
+ * IPv4 entries are parsed in place into the same key as the peer address would give, so the
+ * common path allocates nothing. IPv6 forwarded entries are keyed by their text and only
+ * parsed when IPv6 proxies are configured.
+ */
+@Component
+public class ClientKeyResolver {
+
+    public static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    static final long UNKNOWN_CLIENT = 1;
+    private static final long IPV4_TAG = 4L << 32;
+
+    private final int[] v4Networks;
+    private final int[] v4Masks;
+    private final byte[][] v6Networks;
+    private final int[] v6Prefixes;
+
+    public ClientKeyResolver(@Value("${rate.limit.trusted-proxies:}") List<String> trustedProxies) {
+        List<int[]> v4 = new ArrayList<>();
+        List<byte[]> v6 = new ArrayList<>();
+        List<Integer> v6Prefix = new ArrayList<>();
+        for (String proxy : trustedProxies) {
+            String cidr = proxy.trim();
+            if (cidr.isEmpty()) {
+                continue;
+            }
+            int slash = cidr.indexOf('/');
+            InetAddress network = parseLiteral(slash < 0 ? cidr : cidr.substring(0, slash));
+            int bits = network != null ? network.getAddress().length * 8 : 0;
+            int prefix = slash < 0 ? bits : Integer.parseInt(cidr.substring(slash + 1));
+            if (network == null || prefix < 0 || prefix > bits) {
+                throw new IllegalArgumentException("Invalid trusted proxy: " + proxy);
+            }
+            if (network instanceof Inet4Address) {
+                int mask = prefix == 0 ? 0 : -1 << (32 - prefix);
+                v4.add(new int[] {network.hashCode() & mask, mask});
+            } else {
+                v6.add(network.getAddress());
+                v6Prefix.add(prefix);
+            }
+        }
+        this.v4Networks = v4.stream().mapToInt(entry -> entry[0]).toArray();
+        this.v4Masks = v4.stream().mapToInt(entry -> entry[1]).toArray();
+        this.v6Networks = v6.toArray(new byte[0][]);
+        this.v6Prefixes = v6Prefix.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public long clientKey(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        InetAddress address = remote != null ? remote.getAddress() : null;
+        if (address == null) {
+            return UNKNOWN_CLIENT;
+        }
+        if (!isTrusted(address)) {
+            return key(address);
+        }
+        String forwarded = request.getHeaders().getFirst(FORWARDED_FOR);
+        return forwarded != null ? forwardedClient(forwarded, key(address)) : key(address);
+    }
+
+    // Rightmost untrusted entry; if every hop is trusted, the leftmost one
+    long forwardedClient(String forwarded, long peerKey) {
+        long client = peerKey;
+        int end = forwarded.length();
+        while (end > 0) {
+            int comma = forwarded.lastIndexOf(',', end - 1);
+            int from = comma + 1;
+            int to = end;
+            while (from < to && forwarded.charAt(from) == ' ') {
+                from++;
+            }
+            while (to > from && forwarded.charAt(to - 1) == ' ') {
+                to--;
+            }
+            if (from < to) {
+                long v4 = parseIpv4(forwarded, from, to);
+                client = v4 >= 0 ? IPV4_TAG | v4 : textKey(forwarded, from, to);
+                boolean trusted = v4 >= 0 ? isTrustedV4((int) v4) : isTrustedText(forwarded, from, to);
+                if (!trusted) {
+                    return client;
+                }
+            }
+            end = comma < 0 ? 0 : comma;
+        }
+        return client;
+    }
+
+    private boolean isTrusted(InetAddress address) {
+        if (address instanceof Inet4Address) {
+            return isTrustedV4(address.hashCode());
+        }
+        return v6Networks.length > 0 && isTrustedV6(address.getAddress());
+    }
+
+    private boolean isTrustedV4(int address) {
+        for (int i = 0; i < v4Networks.length; i++) {
+            if ((address & v4Masks[i]) == v4Networks[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isTrustedV6(byte[] address) {
+        for (int i = 0; i < v6Networks.length; i++) {
+            if (address.length == v6Networks[i].length && prefixMatches(address, v6Networks[i], v6Prefixes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isTrustedText(String text, int from, int to) {
+        if (v6Networks.length == 0) {
+            return false;
+        }
+        InetAddress address = parseLiteral(text.substring(from, to));
+        return address != null && isTrustedV6(address.getAddress());
+    }
+
+    // Inet4Address.hashCode is the address itself, read without copying it out
+    private static long key(InetAddress address) {
+        if (address instanceof Inet4Address) {
+            return IPV4_TAG | (address.hashCode() & 0xFFFFFFFFL);
+        }
+        byte[] bytes = address.getAddress();
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long textKey(String text, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Dotted IPv4, optionally with a :port, as an unsigned int; -1 if it is not one. */
+    static long parseIpv4(CharSequence text, int from, int to) {
+        int value = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                value = value << 8 | octet;
+                octet = -1;
+                dots++;
+            } else if (c == ':' && dots == 3) {
+                break;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (value << 8 | octet) & 0xFFFFFFFFL;
+    }
+
+    private static boolean prefixMatches(byte[] address, byte[] network, int prefix) {
+        int full = prefix / 8;
+        for (int i = 0; i < full; i++) {
+            if (address[i] != network[i]) {
+                return false;
+            }
+        }
+        int rest = prefix % 8;
+        if (rest == 0) {
+            return true;
+        }
+        int mask = 0xFF << (8 - rest) & 0xFF;
+        return (address[full] & mask) == (network[full] & mask);
+    }
+
+    // Only literals: InetAddress.getByName would resolve anything else through DNS
+    private static InetAddress parseLiteral(String text) {
+        if (text.indexOf(':') < 0 && (text.indexOf('.') < 0 || parseIpv4(text, 0, text.length()) < 0)) {
+            return null;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean literal = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == ':' || c == '.';
+            if (!literal) {
+                return null;
+            }
+        }
+        try {
+            return InetAddress.getByName(text);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
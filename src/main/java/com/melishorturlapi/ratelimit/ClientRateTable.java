@@ -0,0 +1,38 @@
+package com.melishorturlapi.ratelimit;
+
+/**
+ * Per-client GCRA state: each slot holds a theoretical arrival time (TAT). A request at now
+ * is allowed while max(TAT, now) - now stays within the burst tolerance, and pushes TAT one
+ * emission interval further. That is a token bucket of burst + 1 tokens refilled one per
+ * interval, in one long. A TAT in the past is a full bucket, the same as no state at all,
+ * which is what lets {@link ClientSlotTable} reuse the slot.
+ */
+final class ClientRateTable extends ClientSlotTable {
+
+    ClientRateTable(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    boolean idle(long tat, long now) {
+        return tat <= now;
+    }
+
+    /**
+     * Takes one request of key at now (nanos, never negative); returns 0 if allowed, else the
+     * nanos until it would be.
+     */
+    long tryAcquire(long key, long now, long emissionNanos, long toleranceNanos) {
+        int slot = slot(key, now);
+        while (true) {
+            long tat = values.get(slot);
+            long start = Math.max(tat, now);
+            if (start - now > toleranceNanos) {
+                return start - now - toleranceNanos;
+            }
+            if (values.compareAndSet(slot, tat, start + emissionNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.melishorturlapi.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-capacity, lock-free map of 64 bit client keys to one long of state each, for the
+ * limiter tables. Subclasses say when a state is as good as none ({@link #idle}); an idle
+ * slot is taken over by the next newcomer probing past it, so clients expire without a
+ * sweep. Only when all PROBES slots around a newcomer are busy is the one with the lowest
+ * state evicted and reset to 0; under a flood of distinct addresses that is the cost of a
+ * bounded table. Races on a slot being taken over may let one stale update through.
+ */
+abstract class ClientSlotTable {
+
+    static final int PROBES = 16;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    final AtomicLongArray values;
+    private final LongAdder evictions = new LongAdder();
+
+    ClientSlotTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity) * 2 - 1);
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.values = new AtomicLongArray(size);
+    }
+
+    /** True if the state means nothing anymore at now. */
+    abstract boolean idle(long value, long now);
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    int capacity() {
+        return keys.length();
+    }
+
+    /** Slots in use by clients whose state still matters at now. */
+    int activeClients(long now) {
+        int active = 0;
+        for (int i = 0; i < keys.length(); i++) {
+            if (keys.get(i) != 0 && !idle(values.get(i), now)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /** Slot of key, or -1 if it has none. */
+    int find(long key) {
+        key = nonZero(key);
+        int home = (int) mix(key) & mask;
+        for (int i = 0; i < PROBES; i++) {
+            int pos = (home + i) & mask;
+            long current = keys.get(pos);
+            if (current == key) {
+                return pos;
+            }
+            if (current == 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /** Slot of key, taking a free, idle or (failing those) the lowest busy one if it has none. */
+    int slot(long key, long now) {
+        key = nonZero(key);
+        int home = (int) mix(key) & mask;
+        while (true) {
+            int idle = -1;
+            long idleKey = 0;
+            int lowest = -1;
+            long lowestKey = 0;
+            long lowestValue = Long.MAX_VALUE;
+            boolean lostFreeSlot = false;
+            for (int i = 0; i < PROBES; i++) {
+                int pos = (home + i) & mask;
+                long current = keys.get(pos);
+                if (current == key) {
+                    return pos;
+                }
+                if (current == 0) {
+                    // Keys never go back to 0, so key cannot sit further along the probe
+                    if (keys.compareAndSet(pos, 0, key)) {
+                        return pos;
+                    }
+                    lostFreeSlot = true;
+                    break;
+                }
+                long value = values.get(pos);
+                if (idle < 0 && idle(value, now)) {
+                    idle = pos;
+                    idleKey = current;
+                }
+                if (value < lowestValue) {
+                    lowest = pos;
+                    lowestKey = current;
+                    lowestValue = value;
+                }
+            }
+            if (lostFreeSlot) {
+                continue;
+            }
+            if (idle >= 0) {
+                if (keys.compareAndSet(idle, idleKey, key)) {
+                    return idle;
+                }
+                continue;
+            }
+            if (keys.compareAndSet(lowest, lowestKey, key)) {
+                values.set(lowest, 0);
+                evictions.increment();
+                return lowest;
+            }
+        }
+    }
+
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    // fmix64, so keys differing only in high bits still spread over the low index bits
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
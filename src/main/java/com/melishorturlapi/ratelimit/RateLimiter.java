@@ -0,0 +1,114 @@
+package com.melishorturlapi.ratelimit;
+
+import com.melishorturlapi.service.MetricsService;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-client, per-route-class request limits: rate.limit.&lt;class&gt;.requests per
+ * rate.limit.&lt;class&gt;.period-seconds, allowed as a burst and then refilled evenly. State
+ * lives in one {@link ClientRateTable} of rate.limit.max-clients slots, keyed by client and
+ * route class, so memory is fixed however many addresses show up.
+ */
+@Component
+public class RateLimiter {
+
+    private final MetricsService metricsService;
+    private final ClientRateTable table;
+    private final LongSupplier clock;
+    private final int[] requests = new int[RouteClass.values().length];
+    private final Duration[] periods = new Duration[RouteClass.values().length];
+    private final long[] emissionNanos = new long[RouteClass.values().length];
+    private final long[] toleranceNanos = new long[RouteClass.values().length];
+    private final LongAdder[] rejected = new LongAdder[RouteClass.values().length];
+
+    @Autowired
+    public RateLimiter(MetricsService metricsService,
+                       @Value("${rate.limit.max-clients:65536}") int maxClients,
+                       @Value("${rate.limit.redirect.requests:100}") int redirectRequests,
+                       @Value("${rate.limit.redirect.period-seconds:10}") long redirectPeriodSeconds,
+                       @Value("${rate.limit.create.requests:10}") int createRequests,
+                       @Value("${rate.limit.create.period-seconds:20}") long createPeriodSeconds,
+                       @Value("${rate.limit.admin.requests:30}") int adminRequests,
+                       @Value("${rate.limit.admin.period-seconds:60}") long adminPeriodSeconds) {
+        this(metricsService, maxClients, nanoClock());
+        limit(RouteClass.REDIRECT, redirectRequests, Duration.ofSeconds(redirectPeriodSeconds));
+        limit(RouteClass.CREATE, createRequests, Duration.ofSeconds(createPeriodSeconds));
+        limit(RouteClass.ADMIN, adminRequests, Duration.ofSeconds(adminPeriodSeconds));
+    }
+
+    RateLimiter(MetricsService metricsService, int maxClients, LongSupplier clock) {
+        this.metricsService = metricsService;
+        this.table = new ClientRateTable(maxClients);
+        this.clock = clock;
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    /** Sets the limit of a route class: requests per period, all of them usable at once. */
+    void limit(RouteClass routeClass, int requests, Duration period) {
+        if (requests < 1 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Invalid " + routeClass.key() + " rate limit: " + requests + " per " + period);
+        }
+        this.requests[routeClass.ordinal()] = requests;
+        this.periods[routeClass.ordinal()] = period;
+        long emission = Math.max(1, period.toNanos() / requests);
+        emissionNanos[routeClass.ordinal()] = emission;
+        toleranceNanos[routeClass.ordinal()] = emission * (requests - 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerMetrics() {
+        for (RouteClass routeClass : RouteClass.values()) {
+            metricsService.registerRateLimitRejections(routeClass.key(), rejected[routeClass.ordinal()]::sum);
+        }
+        metricsService.registerRateLimitClients(() -> table.activeClients(clock.getAsLong()), table::evictions);
+    }
+
+    /** Takes one request of the client; 0 if allowed, else the nanos until it would be. */
+    public long tryAcquire(RouteClass routeClass, long clientKey) {
+        int route = routeClass.ordinal();
+        long wait = table.tryAcquire(routeKey(routeClass, clientKey), clock.getAsLong(), emissionNanos[route], toleranceNanos[route]);
+        if (wait > 0) {
+            rejected[route].increment();
+        }
+        return wait;
+    }
+
+    /** Table key of a client's limit for one route class. */
+    static long routeKey(RouteClass routeClass, long clientKey) {
+        return clientKey * 31 + routeClass.ordinal();
+    }
+
+    int requests(RouteClass routeClass) {
+        return requests[routeClass.ordinal()];
+    }
+
+    Duration period(RouteClass routeClass) {
+        return periods[routeClass.ordinal()];
+    }
+
+    /** Counts a rejection decided elsewhere, e.g. by the cluster-wide limiter. */
+    void recordRejected(RouteClass routeClass) {
+        rejected[routeClass.ordinal()].increment();
+    }
+
+    ClientRateTable table() {
+        return table;
+    }
+
+    // Relative to startup, so the table's idea of "now" is never negative
+    private static LongSupplier nanoClock() {
+        long origin = System.nanoTime();
+        return () -> System.nanoTime() - origin;
+    }
+}
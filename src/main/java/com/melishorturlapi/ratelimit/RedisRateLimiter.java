@@ -0,0 +1,177 @@
+package com.melishorturlapi.ratelimit;
+
+import com.melishorturlapi.service.MetricsService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Cluster-wide limits for rate.limit.mode=redis: every client and route class has one token
+ * bucket in Redis (same size and refill as the local {@link RateLimiter}), updated by a Lua
+ * script on Redis time so all nodes share one quota.
+ *
+ * A node takes tokens in batches of up to rate.limit.redis.prefetch and keeps them in a
+ * {@link TokenLeaseTable} for rate.limit.redis.lease-ms, so a busy client costs one round
+ * trip per batch rather than per request. Only a client whose last lease here ran out before
+ * expiring gets a batch; any other asks for one token, so a client spread thinly over many
+ * nodes does not strand a batch on each. Tokens a lease leaves unused are given back to the
+ * bucket on the client's next call from this node (capped at the bucket size, as if never
+ * taken), so they are only lost for clients that do not come back. Refusals are remembered
+ * until Redis says a token is due.
+ *
+ * When Redis errors or takes longer than rate.limit.redis.timeout-ms, that request and all
+ * others for rate.limit.redis.backoff-ms are decided by the local limiter alone, i.e. per
+ * node limits, rather than failing or waiting on Redis.
+ */
+@Component
+@ConditionalOnProperty(name = "rate.limit.mode", havingValue = "redis")
+public class RedisRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+    /** {@link #tryAcquire} result when only Redis can decide, see {@link #acquireRemote}. */
+    public static final long ASK_REDIS = -1;
+
+    static final String KEY_PREFIX = "shorturl:ratelimit:";
+
+    // KEYS[1] bucket; ARGV capacity, tokens per ms, tokens wanted, unused tokens given back.
+    // Returns tokens granted, or minus the millis until one is available
+    static final RedisScript<Long> TOKEN_BUCKET = RedisScript.of(
+        "if redis.replicate_commands then redis.replicate_commands() end\n"
+            + "local capacity = tonumber(ARGV[1])\n"
+            + "local rate = tonumber(ARGV[2])\n"
+            + "local wanted = tonumber(ARGV[3])\n"
+            + "local returned = tonumber(ARGV[4])\n"
+            + "local time = redis.call('TIME')\n"
+            + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n"
+            + "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n"
+            + "local tokens = tonumber(state[1]) or capacity\n"
+            + "local ts = tonumber(state[2]) or now\n"
+            + "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate + returned)\n"
+            + "local granted = math.min(wanted, math.floor(tokens))\n"
+            + "tokens = tokens - granted\n"
+            + "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))\n"
+            + "redis.call('PEXPIRE', KEYS[1], math.ceil((capacity - tokens) / rate) + 1000)\n"
+            + "if granted > 0 then return granted end\n"
+            + "return -math.max(1, math.ceil((1 - tokens) / rate))\n",
+        Long.class);
+
+    private final RateLimiter localLimiter;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final MetricsService metricsService;
+    private final TokenLeaseTable leases;
+    private final int[] batch = new int[RouteClass.values().length];
+    private final long leaseMillis;
+    private final Duration timeout;
+    private final long backoffMillis;
+    private final LongSupplier clock;
+
+    private final LongAdder remoteCalls = new LongAdder();
+    private final LongAdder remoteFailures = new LongAdder();
+    private volatile long localOnlyUntil;
+
+    @Autowired
+    public RedisRateLimiter(RateLimiter localLimiter,
+                            ReactiveStringRedisTemplate redisTemplate,
+                            MetricsService metricsService,
+                            @Value("${rate.limit.max-clients:65536}") int maxClients,
+                            @Value("${rate.limit.redis.prefetch:5}") int prefetch,
+                            @Value("${rate.limit.redis.lease-ms:1000}") long leaseMillis,
+                            @Value("${rate.limit.redis.timeout-ms:50}") long timeoutMillis,
+                            @Value("${rate.limit.redis.backoff-ms:5000}") long backoffMillis) {
+        this(localLimiter, redisTemplate, metricsService, maxClients, prefetch, leaseMillis, timeoutMillis, backoffMillis,
+            System::currentTimeMillis);
+    }
+
+    RedisRateLimiter(RateLimiter localLimiter, ReactiveStringRedisTemplate redisTemplate, MetricsService metricsService,
+                     int maxClients, int prefetch, long leaseMillis, long timeoutMillis, long backoffMillis,
+                     LongSupplier clock) {
+        this.localLimiter = localLimiter;
+        this.redisTemplate = redisTemplate;
+        this.metricsService = metricsService;
+        this.leases = new TokenLeaseTable(maxClients);
+        this.leaseMillis = leaseMillis;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.backoffMillis = backoffMillis;
+        this.clock = clock;
+        // A tenth of the limit at most, so one node never holds much of a small quota
+        for (RouteClass routeClass : RouteClass.values()) {
+            batch[routeClass.ordinal()] = Math.max(1, Math.min(prefetch, localLimiter.requests(routeClass) / 10));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerMetrics() {
+        metricsService.registerRateLimitRemote(remoteCalls::sum, remoteFailures::sum, () -> leases.activeClients(clock.getAsLong()));
+    }
+
+    /**
+     * Decides from the local lease if it can: 0 if allowed, the nanos until allowed if
+     * refused, or {@link #ASK_REDIS}.
+     */
+    public long tryAcquire(RouteClass routeClass, long clientKey) {
+        long now = clock.getAsLong();
+        if (now < localOnlyUntil) {
+            return localLimiter.tryAcquire(routeClass, clientKey);
+        }
+        long taken = leases.take(RateLimiter.routeKey(routeClass, clientKey), now);
+        if (taken == 0) {
+            return 0;
+        }
+        if (taken > 0) {
+            localLimiter.recordRejected(routeClass);
+            return TimeUnit.MILLISECONDS.toNanos(taken);
+        }
+        return ASK_REDIS;
+    }
+
+    /** Takes tokens from the client's Redis bucket, leasing any extra; same result as tryAcquire. */
+    public Mono<Long> acquireRemote(RouteClass routeClass, long clientKey) {
+        long key = RateLimiter.routeKey(routeClass, clientKey);
+        long start = clock.getAsLong();
+        int returned = leases.reclaim(key, start);
+        int wanted = leases.exhausted(key, start) ? batch[routeClass.ordinal()] : 1;
+        double tokensPerMilli = (double) localLimiter.requests(routeClass) / localLimiter.period(routeClass).toMillis();
+        remoteCalls.increment();
+        return redisTemplate.execute(TOKEN_BUCKET,
+                List.of(KEY_PREFIX + routeClass.key() + ":" + Long.toHexString(clientKey)),
+                List.of(Integer.toString(localLimiter.requests(routeClass)), Double.toString(tokensPerMilli), Integer.toString(wanted),
+                    Integer.toString(returned)))
+            .next()
+            .timeout(timeout)
+            .map(result -> {
+                long now = clock.getAsLong();
+                if (result > 0) {
+                    leases.grant(key, now, (int) (result - 1), leaseMillis);
+                    return 0L;
+                }
+                leases.deny(key, now, -result);
+                localLimiter.recordRejected(routeClass);
+                return TimeUnit.MILLISECONDS.toNanos(-result);
+            })
+            .onErrorResume(e -> {
+                remoteFailures.increment();
+                long now = clock.getAsLong();
+                if (now >= localOnlyUntil) {
+                    logger.warn("[RateLimit] Redis limiter unavailable, enforcing per node limits for {} ms: {}", backoffMillis, e.toString());
+                }
+                localOnlyUntil = now + backoffMillis;
+                return Mono.just(localLimiter.tryAcquire(routeClass, clientKey));
+            });
+    }
+}
@@ -0,0 +1,35 @@
+package com.melishorturlapi.ratelimit;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * Groups of routes with their own per-client rate limit and API logging sample rate.
+ * REDIRECT covers the read side (redirects, views, resolve), CREATE the shortening endpoints
+ * and ADMIN deletes and stats. Health and actuator routes are in none, so probes are never
+ * limited or logged.
+ */
+public enum RouteClass {
+    REDIRECT, CREATE, ADMIN;
+
+    private static final String API = "/api/v1/shorturl";
+
+    /** Route class of the request, or null if it is not rate limited. */
+    public static RouteClass of(HttpMethod method, String path) {
+        if (path.startsWith("/actuator") || path.startsWith("/api/v1/health")) {
+            return null;
+        }
+        if (method == HttpMethod.DELETE || path.startsWith("/api/v1/stats")) {
+            return ADMIN;
+        }
+        if (method == HttpMethod.POST && path.startsWith(API)
+            && (path.length() == API.length() || path.equals(API + "/batch"))) {
+            return CREATE;
+        }
+        return REDIRECT;
+    }
+
+    /** Lower-case name, as used in properties and metric attributes. */
+    public String key() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,86 @@
+package com.melishorturlapi.ratelimit;
+
+/**
+ * Tokens a node took from the cluster-wide bucket of a client ahead of time, so most requests
+ * are decided here. Each slot packs expiry millis &lt;&lt; 16 | tokens left; the DENIED token
+ * count instead remembers a refusal until the expiry, so a client over its limit does not send
+ * every request on to Redis.
+ */
+final class TokenLeaseTable extends ClientSlotTable {
+
+    /** Client has no lease here. */
+    static final long COLD = -1;
+    /** Client had a lease that ran out or expired: a hot client, worth prefetching for. */
+    static final long EXPIRED = -2;
+
+    static final int MAX_TOKENS = 0xFFFE;
+    private static final int DENIED = 0xFFFF;
+    private static final long TOKENS = 0xFFFF;
+
+    TokenLeaseTable(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    boolean idle(long value, long now) {
+        return value >>> 16 <= now;
+    }
+
+    /** 0 if a leased token was taken, else millis the client is still refused for, COLD or EXPIRED. */
+    long take(long key, long nowMillis) {
+        int slot = find(key);
+        if (slot < 0) {
+            return COLD;
+        }
+        while (true) {
+            long value = values.get(slot);
+            long expiry = value >>> 16;
+            long tokens = value & TOKENS;
+            if (expiry <= nowMillis || tokens == 0) {
+                return EXPIRED;
+            }
+            if (tokens == DENIED) {
+                return expiry - nowMillis;
+            }
+            if (values.compareAndSet(slot, value, value - 1)) {
+                return 0;
+            }
+        }
+    }
+
+    /** True if the client used up its lease before it expired, so it can use a batch within one. */
+    boolean exhausted(long key, long nowMillis) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        long value = values.get(slot);
+        return (value & TOKENS) == 0 && value >>> 16 > nowMillis;
+    }
+
+    /** Takes the tokens an expired lease left unused, for the caller to give back; 0 if none. */
+    int reclaim(long key, long nowMillis) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        while (true) {
+            long value = values.get(slot);
+            long tokens = value & TOKENS;
+            if (value >>> 16 > nowMillis || tokens == 0 || tokens == DENIED) {
+                return 0;
+            }
+            if (values.compareAndSet(slot, value, value - tokens)) {
+                return (int) tokens;
+            }
+        }
+    }
+
+    void grant(long key, long nowMillis, int tokens, long leaseMillis) {
+        values.set(slot(key, nowMillis), (nowMillis + leaseMillis) << 16 | Math.min(tokens, MAX_TOKENS));
+    }
+
+    void deny(long key, long nowMillis, long refusedMillis) {
+        values.set(slot(key, nowMillis), (nowMillis + refusedMillis) << 16 | DENIED);
+    }
+}
@@ -0,0 +1,42 @@
+package com.melishorturlapi.repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * DynamoDB batch limits shared by both repositories.
+ */
+final class BatchRequests {
+
+    /** Items per BatchWriteItem call. */
+    static final int MAX_WRITE_ITEMS = 25;
+    /** Keys per BatchGetItem call. */
+    static final int MAX_GET_KEYS = 100;
+    /** Retries of unprocessed items/keys before giving up on them. */
+    static final int MAX_RETRIES = 8;
+
+    private BatchRequests() {}
+
+    static <T> List<List<T>> partition(Collection<T> values, int size) {
+        List<List<T>> chunks = new ArrayList<>((values.size() + size - 1) / size);
+        List<T> chunk = new ArrayList<>(Math.min(size, values.size()));
+        for (T value : values) {
+            chunk.add(value);
+            if (chunk.size() == size) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(size);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    // Exponential backoff for unprocessed items, 50 ms doubling up to 5 s
+    static Duration backoff(int attempt) {
+        return Duration.ofMillis(Math.min(5_000, 50L << Math.min(attempt, 7)));
+    }
+}
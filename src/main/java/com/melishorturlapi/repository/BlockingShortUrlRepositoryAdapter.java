@@ -0,0 +1,138 @@
+package com.melishorturlapi.repository;
+
+import static com.melishorturlapi.repository.BatchRequests.*;
+import static com.melishorturlapi.repository.ShortUrlItemMapper.REDIRECT_COUNT;
+import static com.melishorturlapi.repository.ShortUrlItemMapper.SHORT_URL;
+import static com.melishorturlapi.repository.ShortUrlItemMapper.TABLE_NAME;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.melishorturlapi.model.ShortUrl;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs the AWS SDK v1 backed {@link ShortUrlRepository} on boundedElastic.
+ */
+@Repository
+@ConditionalOnProperty(name = "amazon.dynamodb.client", havingValue = "sync", matchIfMissing = true)
+public class BlockingShortUrlRepositoryAdapter implements ReactiveShortUrlRepository {
+    private static final Logger logger = LoggerFactory.getLogger(BlockingShortUrlRepositoryAdapter.class);
+
+    private final ShortUrlRepository shortUrlRepository;
+    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final int batchConcurrency;
+
+    public BlockingShortUrlRepositoryAdapter(ShortUrlRepository shortUrlRepository, DynamoDBMapper dynamoDBMapper,
+                                             AmazonDynamoDB amazonDynamoDB,
+                                             @Value("${amazon.dynamodb.batch.concurrency:8}") int batchConcurrency) {
+        this.shortUrlRepository = shortUrlRepository;
+        this.dynamoDBMapper = dynamoDBMapper;
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    @Override
+    public Mono<ShortUrl> findByShortUrl(String shortUrl) {
+        return Mono.fromCallable(() -> shortUrlRepository.findByShortUrl(shortUrl))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<ShortUrl> findByOriginalUrlHash(String originalUrlHash) {
+        return Mono.fromCallable(() -> shortUrlRepository.findByOriginalUrlHash(originalUrlHash))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapIterable(urls -> urls);
+    }
+
+    @Override
+    public Mono<ShortUrl> save(ShortUrl shortUrl) {
+        return Mono.fromCallable(() -> shortUrlRepository.save(shortUrl))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // DynamoDBMapper retries unprocessed items itself and reports what is left as failed batches
+    @Override
+    public Flux<ShortUrl> saveAll(List<ShortUrl> shortUrls) {
+        return Flux.fromIterable(partition(shortUrls, MAX_WRITE_ITEMS))
+            .flatMap(chunk -> Mono.fromCallable(() -> written(chunk, dynamoDBMapper.batchSave(chunk)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.warn("[BatchWrite] Chunk of {} items failed: {}", chunk.size(), e.getMessage());
+                    return Mono.just(List.of());
+                }), batchConcurrency)
+            .flatMapIterable(written -> written);
+    }
+
+    @Override
+    public Flux<ShortUrl> findAllByShortUrl(Collection<String> shortUrls) {
+        return Flux.fromIterable(partition(shortUrls, MAX_GET_KEYS))
+            .flatMap(chunk -> Mono.fromCallable(() -> dynamoDBMapper.batchLoad(chunk.stream().map(code -> {
+                    ShortUrl key = new ShortUrl();
+                    key.setShortUrl(code);
+                    return key;
+                }).collect(Collectors.toList())))
+                .subscribeOn(Schedulers.boundedElastic()), batchConcurrency)
+            .flatMapIterable(loaded -> loaded.values())
+            .flatMapIterable(items -> items)
+            .cast(ShortUrl.class);
+    }
+
+    private static List<ShortUrl> written(List<ShortUrl> chunk, List<DynamoDBMapper.FailedBatch> failedBatches) {
+        if (failedBatches.isEmpty()) {
+            return chunk;
+        }
+        Set<String> failed = new HashSet<>();
+        for (DynamoDBMapper.FailedBatch failedBatch : failedBatches) {
+            logger.warn("[BatchWrite] Items left unprocessed: {}", failedBatch.getException() != null
+                ? failedBatch.getException().getMessage() : "no error reported");
+            for (List<WriteRequest> requests : failedBatch.getUnprocessedItems().values()) {
+                for (WriteRequest request : requests) {
+                    failed.add(request.getPutRequest().getItem().get(SHORT_URL).getS());
+                }
+            }
+        }
+        return chunk.stream()
+            .filter(shortUrl -> !failed.contains(shortUrl.getShortUrl()))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public Mono<Void> addRedirectCount(String shortUrl, long delta) {
+        UpdateItemRequest request = new UpdateItemRequest()
+            .withTableName(TABLE_NAME)
+            .withKey(Map.of(SHORT_URL, new AttributeValue(shortUrl)))
+            .withUpdateExpression("ADD " + REDIRECT_COUNT + " :d")
+            .withConditionExpression("attribute_exists(" + SHORT_URL + ")")
+            .withExpressionAttributeValues(Map.of(":d", new AttributeValue().withN(Long.toString(delta))));
+        return Mono.<Void>fromRunnable(() -> amazonDynamoDB.updateItem(request))
+            .subscribeOn(Schedulers.boundedElastic())
+            .onErrorResume(ConditionalCheckFailedException.class, e -> Mono.empty());
+    }
+
+    @Override
+    public Mono<Void> deleteByShortUrl(String shortUrl) {
+        return Mono.<Void>fromRunnable(() -> shortUrlRepository.deleteById(shortUrl))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,179 @@
+package com.melishorturlapi.repository;
+
+import static com.melishorturlapi.repository.BatchRequests.*;
+import static com.melishorturlapi.repository.ShortUrlItemMapper.*;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Non-blocking ShortUrls access on the AWS SDK v2 {@link DynamoDbAsyncClient}: no
+ * thread is parked while DynamoDB answers.
+ */
+@Repository
+@ConditionalOnProperty(name = "amazon.dynamodb.client", havingValue = "async")
+public class DynamoDbAsyncShortUrlRepository implements ReactiveShortUrlRepository {
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDbAsyncShortUrlRepository.class);
+
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+    private final int batchConcurrency;
+
+    public DynamoDbAsyncShortUrlRepository(DynamoDbAsyncClient dynamoDbAsyncClient,
+                                           @Value("${amazon.dynamodb.batch.concurrency:8}") int batchConcurrency) {
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    @Override
+    public Mono<ShortUrl> findByShortUrl(String shortUrl) {
+        GetItemRequest request = GetItemRequest.builder()
+            .tableName(TABLE_NAME)
+            .key(key(shortUrl))
+            .build();
+        return Mono.fromFuture(() -> dynamoDbAsyncClient.getItem(request))
+            .filter(GetItemResponse::hasItem)
+            .map(response -> fromItem(response.item()));
+    }
+
+    @Override
+    public Flux<ShortUrl> findByOriginalUrlHash(String originalUrlHash) {
+        QueryRequest request = QueryRequest.builder()
+            .tableName(TABLE_NAME)
+            .indexName(ShortUrl.ORIGINAL_URL_HASH_INDEX)
+            .keyConditionExpression(ORIGINAL_URL_HASH + " = :h")
+            .expressionAttributeValues(Map.of(":h", AttributeValue.builder().s(originalUrlHash).build()))
+            .build();
+        return Flux.from(dynamoDbAsyncClient.queryPaginator(request).items())
+            .map(ShortUrlItemMapper::fromItem);
+    }
+
+    @Override
+    public Mono<ShortUrl> save(ShortUrl shortUrl) {
+        PutItemRequest request = PutItemRequest.builder()
+            .tableName(TABLE_NAME)
+            .item(toItem(shortUrl))
+            .build();
+        return Mono.fromFuture(() -> dynamoDbAsyncClient.putItem(request))
+            .thenReturn(shortUrl);
+    }
+
+    @Override
+    public Flux<ShortUrl> saveAll(List<ShortUrl> shortUrls) {
+        return Flux.fromIterable(partition(shortUrls, MAX_WRITE_ITEMS))
+            .flatMap(chunk -> {
+                List<WriteRequest> requests = chunk.stream()
+                    .map(shortUrl -> WriteRequest.builder().putRequest(PutRequest.builder().item(toItem(shortUrl)).build()).build())
+                    .collect(Collectors.toList());
+                return writeWithRetries(requests, 0)
+                    .map(failed -> chunk.stream()
+                        .filter(shortUrl -> !failed.contains(shortUrl.getShortUrl()))
+                        .collect(Collectors.toList()))
+                    .onErrorResume(e -> {
+                        logger.warn("[BatchWrite] Chunk of {} items failed: {}", chunk.size(), e.getMessage());
+                        return Mono.just(List.of());
+                    });
+            }, batchConcurrency)
+            .flatMapIterable(written -> written);
+    }
+
+    @Override
+    public Flux<ShortUrl> findAllByShortUrl(Collection<String> shortUrls) {
+        return Flux.fromIterable(partition(shortUrls, MAX_GET_KEYS))
+            .flatMap(chunk -> getWithRetries(chunk.stream().map(ShortUrlItemMapper::key).collect(Collectors.toList()), 0),
+                batchConcurrency)
+            .map(ShortUrlItemMapper::fromItem);
+    }
+
+    // Codes still unprocessed after MAX_RETRIES attempts
+    private Mono<Set<String>> writeWithRetries(List<WriteRequest> requests, int attempt) {
+        BatchWriteItemRequest request = BatchWriteItemRequest.builder()
+            .requestItems(Map.of(TABLE_NAME, requests))
+            .build();
+        return Mono.fromFuture(() -> dynamoDbAsyncClient.batchWriteItem(request))
+            .flatMap(response -> {
+                List<WriteRequest> unprocessed = response.unprocessedItems().getOrDefault(TABLE_NAME, List.of());
+                if (unprocessed.isEmpty()) {
+                    return Mono.just(Set.<String>of());
+                }
+                if (attempt >= MAX_RETRIES) {
+                    logger.warn("[BatchWrite] {} items still unprocessed after {} retries", unprocessed.size(), attempt);
+                    Set<String> failed = new HashSet<>();
+                    unprocessed.forEach(write -> failed.add(write.putRequest().item().get(SHORT_URL).s()));
+                    return Mono.just(failed);
+                }
+                return Mono.delay(backoff(attempt)).then(Mono.defer(() -> writeWithRetries(unprocessed, attempt + 1)));
+            });
+    }
+
+    private Flux<Map<String, AttributeValue>> getWithRetries(List<Map<String, AttributeValue>> keys, int attempt) {
+        BatchGetItemRequest request = BatchGetItemRequest.builder()
+            .requestItems(Map.of(TABLE_NAME, KeysAndAttributes.builder().keys(keys).build()))
+            .build();
+        return Mono.fromFuture(() -> dynamoDbAsyncClient.batchGetItem(request))
+            .flatMapMany(response -> {
+                Flux<Map<String, AttributeValue>> items = Flux.fromIterable(response.responses().getOrDefault(TABLE_NAME, List.of()));
+                KeysAndAttributes unprocessed = response.unprocessedKeys().get(TABLE_NAME);
+                if (unprocessed == null || !unprocessed.hasKeys() || unprocessed.keys().isEmpty()) {
+                    return items;
+                }
+                if (attempt >= MAX_RETRIES) {
+                    return Flux.error(new IllegalStateException(unprocessed.keys().size() + " keys still unprocessed after " + attempt + " retries"));
+                }
+                return items.concatWith(Mono.delay(backoff(attempt))
+                    .thenMany(Flux.defer(() -> getWithRetries(unprocessed.keys(), attempt + 1))));
+            });
+    }
+
+    @Override
+    public Mono<Void> addRedirectCount(String shortUrl, long delta) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+            .tableName(TABLE_NAME)
+            .key(key(shortUrl))
+            .updateExpression("ADD " + REDIRECT_COUNT + " :d")
+            .conditionExpression("attribute_exists(" + SHORT_URL + ")")
+            .expressionAttributeValues(Map.of(":d", AttributeValue.builder().n(Long.toString(delta)).build()))
+            .build();
+        return Mono.fromFuture(() -> dynamoDbAsyncClient.updateItem(request))
+            .then()
+            .onErrorResume(ConditionalCheckFailedException.class, e -> Mono.empty());
+    }
+
+    @Override
+    public Mono<Void> deleteByShortUrl(String shortUrl) {
+        DeleteItemRequest request = DeleteItemRequest.builder()
+            .tableName(TABLE_NAME)
+            .key(key(shortUrl))
+            .build();
+        return Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(request))
+            .then();
+    }
+}
@@ -0,0 +1,42 @@
+package com.melishorturlapi.repository;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.util.Collection;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive access to the ShortUrls table. The implementation is selected with
+ * amazon.dynamodb.client: "sync" (default) wraps {@link ShortUrlRepository} on
+ * boundedElastic, "async" uses the Netty based AWS SDK v2 client.
+ */
+public interface ReactiveShortUrlRepository {
+
+    Mono<ShortUrl> findByShortUrl(String shortUrl);
+
+    Flux<ShortUrl> findByOriginalUrlHash(String originalUrlHash);
+
+    Mono<ShortUrl> save(ShortUrl shortUrl);
+
+    /**
+     * Writes with BatchWriteItem in 25 item chunks, several chunks in flight. Emits the items
+     * that were written; items not emitted were still unprocessed after retries or failed.
+     * BatchWriteItem puts cannot be conditional, so callers check the codes are free in bulk
+     * first (see ShortCodeGenerator.generateAll).
+     */
+    Flux<ShortUrl> saveAll(List<ShortUrl> shortUrls);
+
+    /** Items for the codes that exist, read with BatchGetItem in 100 key chunks, in no particular order. */
+    Flux<ShortUrl> findAllByShortUrl(Collection<String> shortUrls);
+
+    /**
+     * UpdateItem ADD of delta to RedirectCount, only if the code still exists (a deleted code
+     * completes empty instead of coming back as a bare counter item).
+     */
+    Mono<Void> addRedirectCount(String shortUrl, long delta);
+
+    Mono<Void> deleteByShortUrl(String shortUrl);
+}
@@ -0,0 +1,64 @@
+package com.melishorturlapi.repository;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Maps {@link ShortUrl} to AWS SDK v2 items using the same attribute names and
+ * types DynamoDBMapper writes, so both clients can share the table.
+ */
+final class ShortUrlItemMapper {
+
+    static final String TABLE_NAME = "ShortUrls";
+    static final String SHORT_URL = "ShortUrl";
+    static final String ORIGINAL_URL = "OriginalUrl";
+    static final String ORIGINAL_URL_HASH = "OriginalUrlHash";
+    static final String CREATED_AT = "CreatedAt";
+    static final String REDIRECT_COUNT = "RedirectCount";
+
+    private ShortUrlItemMapper() {}
+
+    static Map<String, AttributeValue> key(String shortUrl) {
+        return Map.of(SHORT_URL, AttributeValue.builder().s(shortUrl).build());
+    }
+
+    static Map<String, AttributeValue> toItem(ShortUrl shortUrl) {
+        Map<String, AttributeValue> item = new HashMap<>(8);
+        item.put(SHORT_URL, AttributeValue.builder().s(shortUrl.getShortUrl()).build());
+        if (shortUrl.getOriginalUrl() != null) {
+            item.put(ORIGINAL_URL, AttributeValue.builder().s(shortUrl.getOriginalUrl()).build());
+            item.put(ORIGINAL_URL_HASH, AttributeValue.builder().s(shortUrl.getOriginalUrlHash()).build());
+        }
+        if (shortUrl.getCreatedAt() != null) {
+            item.put(CREATED_AT, AttributeValue.builder().n(shortUrl.getCreatedAt().toString()).build());
+        }
+        if (shortUrl.getRedirectCount() != null) {
+            item.put(REDIRECT_COUNT, AttributeValue.builder().n(shortUrl.getRedirectCount().toString()).build());
+        }
+        return item;
+    }
+
+    static ShortUrl fromItem(Map<String, AttributeValue> item) {
+        ShortUrl shortUrl = new ShortUrl();
+        shortUrl.setShortUrl(stringOf(item, SHORT_URL));
+        shortUrl.setOriginalUrl(stringOf(item, ORIGINAL_URL));
+        shortUrl.setOriginalUrlHash(stringOf(item, ORIGINAL_URL_HASH));
+        shortUrl.setCreatedAt(longOf(item, CREATED_AT));
+        shortUrl.setRedirectCount(longOf(item, REDIRECT_COUNT));
+        return shortUrl;
+    }
+
+    private static String stringOf(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null ? value.s() : null;
+    }
+
+    private static Long longOf(Map<String, AttributeValue> item, String name) {
+        AttributeValue value = item.get(name);
+        return value != null && value.n() != null ? Long.valueOf(value.n()) : null;
+    }
+}
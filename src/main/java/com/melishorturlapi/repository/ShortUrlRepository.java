@@ -2,12 +2,12 @@ package com.melishorturlapi.repository;
 
 import com.melishorturlapi.model.ShortUrl;
 
-import org.socialsignin.spring.data.dynamodb.repository.EnableScan;
+import java.util.List;
+
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-@EnableScan
 public interface ShortUrlRepository extends CrudRepository<ShortUrl, String> {
 
     // find short URL by short code
@@ -16,5 +16,6 @@ public interface ShortUrlRepository extends CrudRepository<ShortUrl, String> {
     // delete short URL by short code
     void deleteByShortUrl(String shortUrl);
 
-    ShortUrl findByOriginalUrl(String originalUrl);
-}
\ No newline at end of file
+    // Query over OriginalUrlHashIndex (no scan); see ShortUrl.hashOriginalUrl
+    List<ShortUrl> findByOriginalUrlHash(String originalUrlHash);
+}
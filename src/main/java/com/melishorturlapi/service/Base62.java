@@ -0,0 +1,67 @@
+package com.melishorturlapi.service;
+
+/**
+ * Fixed-length base62 encoding of non-negative longs, alphabet 0-9A-Za-z.
+ */
+public final class Base62 {
+
+    static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    static final int BASE = ALPHABET.length;
+
+    private Base62() {}
+
+    /** 62^length, the number of distinct codes of that length. Valid for length <= 10. */
+    public static long capacity(int length) {
+        if (length < 1 || length > 10) {
+            throw new IllegalArgumentException("Base62 length must be between 1 and 10: " + length);
+        }
+        long capacity = 1;
+        for (int i = 0; i < length; i++) {
+            capacity *= BASE;
+        }
+        return capacity;
+    }
+
+    /** Encodes value left-padded with '0' to exactly length chars. */
+    public static String encode(long value, int length) {
+        if (value < 0 || value >= capacity(length)) {
+            throw new IllegalArgumentException("Value " + value + " does not fit in " + length + " base62 chars");
+        }
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value % BASE)];
+            value /= BASE;
+        }
+        return new String(chars);
+    }
+
+    /** Value of a base62 string of 1 to 10 chars, or -1 if it is longer or has other chars. */
+    public static long decode(CharSequence chars) {
+        int length = chars.length();
+        if (length < 1 || length > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digit(chars.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * BASE + digit;
+        }
+        return value;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 36;
+        }
+        return -1;
+    }
+}
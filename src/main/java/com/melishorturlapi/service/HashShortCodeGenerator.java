@@ -0,0 +1,86 @@
+package com.melishorturlapi.service;
+
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hashes the url with {@link UrlHashService} and probes DynamoDB until the code is free: one
+ * or more reads per create. The saves that follow are unconditional, so the probe always
+ * reads, even when {@link com.melishorturlapi.cache.ShortCodeFilter} says a code is unused: a
+ * false negative there would silently overwrite an existing link.
+ */
+@Service
+@ConditionalOnProperty(name = "url.shortening.code.strategy", havingValue = "hash", matchIfMissing = true)
+public class HashShortCodeGenerator implements ShortCodeGenerator {
+
+    private final UrlHashService urlHashService;
+    private final ReactiveShortUrlRepository shortUrlRepository;
+
+    public HashShortCodeGenerator(UrlHashService urlHashService, ReactiveShortUrlRepository shortUrlRepository) {
+        this.urlHashService = urlHashService;
+        this.shortUrlRepository = shortUrlRepository;
+    }
+
+    @Override
+    public Mono<String> generate(String originalUrl) {
+        return probeFreeCode(originalUrl, 0, new HashSet<>());
+    }
+
+    // First-attempt codes are checked with batch reads; only codes already taken, or taken
+    // twice within the batch, fall back to the one-read-per-attempt probe
+    @Override
+    public Mono<List<String>> generateAll(List<String> originalUrls) {
+        List<String> codes = firstCodes(originalUrls).get();
+        Mono<Set<String>> taken = codes.isEmpty()
+            ? Mono.just(Set.of())
+            : shortUrlRepository.findAllByShortUrl(new HashSet<>(codes)).map(ShortUrl::getShortUrl).collect(HashSet::new, Set::add);
+        return taken.flatMap(takenCodes -> {
+            Set<String> reserved = new HashSet<>();
+            List<Integer> collided = new ArrayList<>();
+            for (int i = 0; i < codes.size(); i++) {
+                String code = codes.get(i);
+                if (takenCodes.contains(code) || !reserved.add(code)) {
+                    collided.add(i);
+                }
+            }
+            return Flux.fromIterable(collided)
+                .concatMap(i -> probeFreeCode(originalUrls.get(i), 1, reserved).doOnNext(code -> codes.set(i, code)))
+                .then(Mono.just(codes));
+        });
+    }
+
+    @Override
+    public Optional<List<String>> firstCodes(List<String> originalUrls) {
+        List<String> codes = new ArrayList<>(originalUrls.size());
+        for (String originalUrl : originalUrls) {
+            codes.add(urlHashService.hashUrl(originalUrl));
+        }
+        return Optional.of(codes);
+    }
+
+    // Hash the url (plus ":attempt" after a collision) until the code is neither taken nor reserved
+    private Mono<String> probeFreeCode(String originalUrl, int attempt, Set<String> reserved) {
+        String code = urlHashService.hashUrl(attempt == 0 ? originalUrl : originalUrl + ":" + attempt);
+        if (reserved.contains(code)) {
+            return probeFreeCode(originalUrl, attempt + 1, reserved);
+        }
+        return shortUrlRepository.findByShortUrl(code)
+            .flatMap(taken -> probeFreeCode(originalUrl, attempt + 1, reserved))
+            .switchIfEmpty(Mono.fromCallable(() -> {
+                reserved.add(code);
+                return code;
+            }));
+    }
+}
@@ -5,11 +5,39 @@ import io.opentelemetry.api.metrics.LongCounter;
 import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import com.melishorturlapi.stats.CountMinSketch;
+import com.melishorturlapi.stats.TopKTracker;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PreDestroy;
 
 @Service
 public class MetricsService {
 
+    // Per-code series only for the top-K codes of each counter, the rest share one "other" series.
+    // Metrics are exported with delta temporality, so a series not written in an export interval
+    // is dropped; the codes that get one are also capped per decay period, see CodeSeries
+    static final String OTHER_CODES = "__other__";
+    private static final AttributeKey<String> SHORT_URL = AttributeKey.stringKey("shortUrl");
+    private static final AttributeKey<String> SERVICE = AttributeKey.stringKey("service");
+    private static final AttributeKey<String> ENDPOINT = AttributeKey.stringKey("endpoint");
+    private static final Attributes OTHER_CODES_ATTRIBUTES = Attributes.of(SHORT_URL, OTHER_CODES);
+    private static final Duration TOP_CODES_PROMOTE = Duration.ofSeconds(1);
+    private static final Attributes CREATED_ATTRIBUTES = Attributes.of(AttributeKey.stringKey("event"), "shorturl_created");
+
     private final Meter meter = GlobalOpenTelemetry.getMeter("com.melishorturlapi");
     private final LongCounter redirectCounter = meter.counterBuilder("shorturl_redirect")
         .setDescription("Number of redirects per shortUrl")
@@ -31,23 +59,311 @@ public class MetricsService {
         .setUnit("1")
         .build();
 
+    private final CodeSeries redirectSeries;
+    private final CodeSeries viewSeries;
+    private final TopKTracker<Attributes> topRedirectCodes;
+    private final TopKTracker<Attributes> topViewCodes;
+    private final Map<String, Map<String, Attributes>> endpointAttributes = new ConcurrentHashMap<>();
+
+    private final Duration topCodesDecay;
+    private Disposable promoter;
+    private Disposable decayer;
+
+    public MetricsService(@Value("${metrics.top-codes.k:100}") int topCodes,
+                          @Value("${metrics.top-codes.sketch-width:8192}") int sketchWidth,
+                          @Value("${metrics.top-codes.decay-minutes:10}") long decayMinutes,
+                          @Value("${metrics.top-codes.max-series:1000}") int maxCodeSeries) {
+        this.redirectSeries = new CodeSeries(maxCodeSeries);
+        this.viewSeries = new CodeSeries(maxCodeSeries);
+        this.topRedirectCodes = new TopKTracker<>(topCodes, new CountMinSketch(4, sketchWidth), redirectSeries::attributes);
+        this.topViewCodes = new TopKTracker<>(topCodes, new CountMinSketch(4, sketchWidth), viewSeries::attributes);
+        this.topCodesDecay = Duration.ofMinutes(decayMinutes);
+    }
+
+    // Halving the sketches lets codes that are hot now displace codes that were hot hours ago, and
+    // resetting the series lets the codes that are hot now get one of their own. Candidates join
+    // the top-K every second, off the request path; until then they count as "other"
+    @EventListener(ApplicationReadyEvent.class)
+    public void startTopCodesDecay() {
+        promoter = Flux.interval(TOP_CODES_PROMOTE, TOP_CODES_PROMOTE)
+            .subscribe(tick -> {
+                topRedirectCodes.promote();
+                topViewCodes.promote();
+            });
+        decayer = Flux.interval(topCodesDecay, topCodesDecay)
+            .subscribe(tick -> {
+                topRedirectCodes.decay();
+                topViewCodes.decay();
+                redirectSeries.reset(topRedirectCodes.members());
+                viewSeries.reset(topViewCodes.members());
+            });
+    }
+
+    @PreDestroy
+    public void stopTopCodesDecay() {
+        if (promoter != null) {
+            promoter.dispose();
+        }
+        if (decayer != null) {
+            decayer.dispose();
+        }
+    }
+
     public void incrementRedirectCalls(String shortUrl) {
-        redirectCounter.add(1, Attributes.of(AttributeKey.stringKey("shortUrl"), shortUrl));
+        redirectCounter.add(1, attributesFor(topRedirectCodes, shortUrl));
     }
 
     public void incrementEndpointHit(String service, String endpointName) {
-        endpointHitCounter.add(1, Attributes.of(
-            AttributeKey.stringKey("service"), service,
-            AttributeKey.stringKey("endpoint"), endpointName
-        ));
+        Map<String, Attributes> byEndpoint = endpointAttributes.get(service);
+        Attributes attributes = byEndpoint != null ? byEndpoint.get(endpointName) : null;
+        if (attributes == null) {
+            attributes = endpointAttributes
+                .computeIfAbsent(service, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(endpointName, key -> Attributes.of(SERVICE, service, ENDPOINT, endpointName));
+        }
+        endpointHitCounter.add(1, attributes);
+    }
+
+    public void incrementViewUrl(String shortUrl) {
+        viweCounter.add(1, attributesFor(topViewCodes, shortUrl));
+    }
+
+    private static Attributes attributesFor(TopKTracker<Attributes> topCodes, String shortUrl) {
+        Attributes attributes = topCodes.offer(shortUrl);
+        return attributes != null ? attributes : OTHER_CODES_ATTRIBUTES;
+    }
+
+    /**
+     * The per-code attribute sets one counter has handed out since the last reset. A code that
+     * leaves the top-K and comes back gets its old set again, and once max codes have had one,
+     * codes joining the top-K for the first time report as "other" until the next reset. A reset
+     * keeps only the codes still in the top-K, so with delta temporality a counter exports at most
+     * max + 1 series per export interval, however much the top-K churns, and a code that turns
+     * hot late still gets its own series within one decay period.
+     */
+    static final class CodeSeries {
+        private final int max;
+        private final Map<String, Attributes> issued = new ConcurrentHashMap<>();
+
+        CodeSeries(int max) {
+            this.max = max;
+        }
+
+        // Called by TopKTracker.promote when a code joins, synchronized with reset so the size check does not race
+        synchronized Attributes attributes(String shortUrl) {
+            Attributes attributes = issued.get(shortUrl);
+            if (attributes == null) {
+                if (issued.size() >= max) {
+                    return OTHER_CODES_ATTRIBUTES;
+                }
+                attributes = Attributes.of(SHORT_URL, shortUrl);
+                issued.put(shortUrl, attributes);
+            }
+            return attributes;
+        }
+
+        /** Forgets the codes not in members, freeing their places for the codes that are hot now. */
+        synchronized void reset(Set<String> members) {
+            issued.keySet().retainAll(members);
+        }
+
+        int size() {
+            return issued.size();
+        }
+    }
+
+    // Cache miss loads that reached L2/DynamoDB, and misses that joined a load already in flight
+    public void registerCacheLoads(String cacheName, LongSupplier loads, LongSupplier coalesced) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("cache"), cacheName);
+        meter.counterBuilder("shorturl_cache_load")
+            .setDescription("Cache miss loads executed")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(loads.getAsLong(), attributes));
+        meter.counterBuilder("shorturl_cache_load_coalesced")
+            .setDescription("Cache miss loads deduplicated by single-flight")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(coalesced.getAsLong(), attributes));
+    }
+
+    // Caffeine L1 tiers, from recordStats(); weight is in bytes for the weighed ShortUrl tiers
+    public void registerCaffeineCache(String cacheName, com.github.benmanes.caffeine.cache.Cache<?, ?> cache) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("cache"), cacheName);
+        meter.counterBuilder("shorturl_l1_hit")
+            .setDescription("L1 lookups answered from memory")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(cache.stats().hitCount(), attributes));
+        meter.counterBuilder("shorturl_l1_miss")
+            .setDescription("L1 lookups not found in memory")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(cache.stats().missCount(), attributes));
+        meter.counterBuilder("shorturl_l1_eviction")
+            .setDescription("L1 entries evicted by size or expiry")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(cache.stats().evictionCount(), attributes));
+        meter.gaugeBuilder("shorturl_l1_weight")
+            .setDescription("L1 size, in bytes for weighed tiers, entries otherwise")
+            .setUnit("By")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(cache.estimatedSize()))
+                .orElse(cache.estimatedSize()), attributes));
+    }
+
+    // Off-heap shortUrlCache, see OffHeapShortUrlCache; resets are segments dropped whole when full
+    public void registerOffHeapCache(String cacheName, LongSupplier hits, LongSupplier misses, LongSupplier entries,
+                                     LongSupplier arenaBytesUsed, LongSupplier reservedBytes, LongSupplier resets) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("cache"), cacheName);
+        meter.counterBuilder("shorturl_l1_hit")
+            .setDescription("L1 lookups answered from memory")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(hits.getAsLong(), attributes));
+        meter.counterBuilder("shorturl_l1_miss")
+            .setDescription("L1 lookups not found in memory")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(misses.getAsLong(), attributes));
+        meter.gaugeBuilder("shorturl_l1_offheap_entries")
+            .setDescription("Entries in the off-heap L1")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(entries.getAsLong(), attributes));
+        meter.gaugeBuilder("shorturl_l1_offheap_arena_used")
+            .setDescription("Off-heap arena bytes written since the last segment resets")
+            .setUnit("By")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(arenaBytesUsed.getAsLong(), attributes));
+        meter.gaugeBuilder("shorturl_l1_offheap_reserved")
+            .setDescription("Direct memory reserved by the off-heap L1")
+            .setUnit("By")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(reservedBytes.getAsLong(), attributes));
+        meter.counterBuilder("shorturl_l1_offheap_resets")
+            .setDescription("Off-heap L1 segments dropped because they were full")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(resets.getAsLong(), attributes));
+    }
+
+    // refreshAfterWrite reloads of an L1 tier, see BackgroundRefreshLoader
+    public void registerCacheRefreshes(String cacheName, LongSupplier refreshes, LongSupplier failures) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("cache"), cacheName);
+        meter.counterBuilder("shorturl_l1_refresh")
+            .setDescription("L1 entries reloaded in the background")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(refreshes.getAsLong(), attributes));
+        meter.counterBuilder("shorturl_l1_refresh_failure")
+            .setDescription("L1 background reloads that failed")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(failures.getAsLong(), attributes));
+    }
+
+    // Bloom filter of issued codes, see ShortCodeFilter
+    public void registerCodeFilter(DoubleSupplier expectedFpp, LongSupplier sizeBytes, LongSupplier entries, LongSupplier skipped) {
+        meter.gaugeBuilder("shorturl_code_filter_fpp")
+            .setDescription("Expected false-positive rate of the code filter")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(expectedFpp.getAsDouble()));
+        meter.gaugeBuilder("shorturl_code_filter_size")
+            .setDescription("Memory used by the code filter bit arrays")
+            .setUnit("By")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(sizeBytes.getAsLong()));
+        meter.gaugeBuilder("shorturl_code_filter_entries")
+            .setDescription("Codes added to the code filter")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(entries.getAsLong()));
+        meter.counterBuilder("shorturl_code_filter_skipped")
+            .setDescription("Lookups answered as absent without reaching L2 or DynamoDB")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(skipped.getAsLong()));
+    }
+
+    // Write-behind redirect counts, see RedirectCountService
+    public void registerRedirectCounts(LongSupplier pendingCodes, LongSupplier flushed) {
+        meter.gaugeBuilder("shorturl_redirect_count_pending_codes")
+            .setDescription("Codes with redirects not yet written to DynamoDB")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(pendingCodes.getAsLong()));
+        meter.counterBuilder("shorturl_redirect_count_flushed")
+            .setDescription("Redirects written to ShortUrl.RedirectCount")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(flushed.getAsLong()));
+    }
+
+    // In-memory per-code stats, see LinkStatsEngine
+    public void registerLinkStats(LongSupplier trackedCodes, LongSupplier dropped) {
+        meter.gaugeBuilder("shorturl_link_stats_codes")
+            .setDescription("Codes tracked by the link stats engine")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(trackedCodes.getAsLong()));
+        meter.counterBuilder("shorturl_link_stats_dropped")
+            .setDescription("Events not tracked because the stats table was full")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(dropped.getAsLong()));
+    }
+
+    // Requests answered 429 by RateLimitWebFilter, per route class
+    public void registerRateLimitRejections(String routeClass, LongSupplier rejected) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("route"), routeClass);
+        meter.counterBuilder("shorturl_rate_limited")
+            .setDescription("Requests rejected by the per-client rate limiter")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(rejected.getAsLong(), attributes));
+    }
+
+    public void registerRateLimitClients(LongSupplier activeClients, LongSupplier evictions) {
+        meter.gaugeBuilder("shorturl_rate_limit_active_clients")
+            .setDescription("Clients currently using part of their rate limit")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(activeClients.getAsLong()));
+        meter.counterBuilder("shorturl_rate_limit_evictions")
+            .setDescription("Active clients dropped from the full rate limiter table")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(evictions.getAsLong()));
+    }
+
+    // rate.limit.mode=redis: round trips to the shared buckets, and those that fell back to local limits
+    public void registerRateLimitRemote(LongSupplier calls, LongSupplier failures, LongSupplier leasedClients) {
+        meter.counterBuilder("shorturl_rate_limit_redis_calls")
+            .setDescription("Token requests sent to the Redis rate limiter")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(calls.getAsLong()));
+        meter.counterBuilder("shorturl_rate_limit_redis_failures")
+            .setDescription("Redis rate limiter calls that failed or timed out and were decided locally")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(failures.getAsLong()));
+        meter.gaugeBuilder("shorturl_rate_limit_leased_clients")
+            .setDescription("Clients with prefetched tokens or a remembered refusal on this node")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(leasedClients.getAsLong()));
+    }
+
+    // Hot-path log lines refused by LogSampler, per category
+    public void registerSuppressedLogs(String category, LongSupplier suppressed) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("category"), category);
+        meter.counterBuilder("shorturl_log_suppressed")
+            .setDescription("Log lines not written because their category was over its rate")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(suppressed.getAsLong(), attributes));
     }
 
-    public void incrementViewUrl(String shortUrl, String originalUrl) {
-        viweCounter.add(1, Attributes.of(AttributeKey.stringKey("shortUrl"), shortUrl));
-        viweCounter.add(1, Attributes.of(AttributeKey.stringKey("originalUrl"), originalUrl));
+    // Async appender in front of the console, see DroppingAsyncAppender
+    public void registerLogPipeline(LongSupplier dropped, LongSupplier queued) {
+        meter.counterBuilder("shorturl_log_dropped")
+            .setDescription("Log events dropped because the async appender queue was (nearly) full")
+            .setUnit("1")
+            .buildWithCallback(measurement -> measurement.record(dropped.getAsLong()));
+        meter.gaugeBuilder("shorturl_log_queued")
+            .setDescription("Log events waiting to be written")
+            .setUnit("1")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(queued.getAsLong()));
     }
 
     public void incrementShortUrlCreated() {
-        createShorturlCounter.add(1, Attributes.of(AttributeKey.stringKey("event"), "shorturl_created"));
+        createShorturlCounter.add(1, CREATED_ATTRIBUTES);
     }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package com.melishorturlapi.service;
+
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Write-behind redirect counts: redirects only bump a LongAdder per code, and every
+ * flush-interval the deltas go to ShortUrl.RedirectCount with one UpdateItem ADD per code.
+ * A delta whose update fails is added back and retried on the next flush; a crash loses at
+ * most one interval of counts.
+ */
+@Service
+public class RedirectCountService {
+    private static final Logger logger = LoggerFactory.getLogger(RedirectCountService.class);
+
+    private final ReactiveShortUrlRepository shortUrlRepository;
+    private final MetricsService metricsService;
+    private final Duration flushInterval;
+    private final int flushConcurrency;
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final LongAdder flushed = new LongAdder();
+    private Disposable flusher;
+
+    public RedirectCountService(ReactiveShortUrlRepository shortUrlRepository,
+                                MetricsService metricsService,
+                                @Value("${redirect.count.flush-interval-ms:5000}") long flushIntervalMs,
+                                @Value("${redirect.count.flush-concurrency:16}") int flushConcurrency) {
+        this.shortUrlRepository = shortUrlRepository;
+        this.metricsService = metricsService;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.flushConcurrency = flushConcurrency;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        metricsService.registerRedirectCounts(pending::size, flushed::sum);
+        // concatMap: a slow flush delays the next one instead of overlapping it
+        flusher = Flux.interval(flushInterval, flushInterval)
+            .concatMap(tick -> flush())
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        try {
+            flush().block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            logger.warn("[RedirectCountService] Final flush did not finish, {} codes unflushed: {}", pending.size(), e.toString());
+        }
+    }
+
+    public void increment(String shortUrl) {
+        pending.computeIfAbsent(shortUrl, code -> new LongAdder()).increment();
+    }
+
+    /** Redirects counted here and not yet written to DynamoDB. */
+    public long pendingCount(String shortUrl) {
+        LongAdder adder = pending.get(shortUrl);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    Mono<Void> flush() {
+        return Flux.fromIterable(pending.entrySet())
+            .flatMap(entry -> {
+                long delta = drain(entry.getKey(), entry.getValue());
+                if (delta == 0) {
+                    return Mono.empty();
+                }
+                return shortUrlRepository.addRedirectCount(entry.getKey(), delta)
+                    .doOnSuccess(v -> flushed.add(delta))
+                    .onErrorResume(e -> {
+                        logger.warn("[RedirectCountService] Could not flush {} redirects of {}: {}", delta, entry.getKey(), e.toString());
+                        pending.computeIfAbsent(entry.getKey(), code -> new LongAdder()).add(delta);
+                        return Mono.empty();
+                    });
+            }, flushConcurrency)
+            .then();
+    }
+
+    // sumThenReset swaps every cell to 0, so concurrent increments land in this delta or the next.
+    // Codes idle for a whole interval are dropped; the re-check picks up an increment that raced
+    // the removal
+    private long drain(String shortUrl, LongAdder adder) {
+        long delta = adder.sumThenReset();
+        if (delta == 0 && pending.remove(shortUrl, adder)) {
+            long late = adder.sumThenReset();
+            if (late > 0) {
+                pending.computeIfAbsent(shortUrl, code -> new LongAdder()).add(late);
+            }
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,167 @@
+package com.melishorturlapi.service;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.melishorturlapi.cache.SingleFlight;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Issues codes from blocks of a DynamoDB atomic counter (UpdateItem ADD). Each node leases
+ * block-size ids at a time and encodes them locally, so creates need no collision-check reads.
+ * Ids are optionally run through a keyed {@link FeistelPermutation} so codes are not guessable.
+ * Unused ids of a block are lost on restart; codes only need to be unique, not dense.
+ */
+@Service
+@ConditionalOnProperty(name = "url.shortening.code.strategy", havingValue = "sequence")
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(SequenceShortCodeGenerator.class);
+
+    public static final String SEQUENCE_TABLE = "ShortUrlSequences";
+    public static final String SEQUENCE_KEY = "Name";
+    static final String SEQUENCE_NAME = "shortUrl";
+    static final String SEQUENCE_VALUE = "Value";
+    // The placeholder once shipped in application.properties; as public as no key at all
+    static final String PLACEHOLDER_KEY = "change-me";
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ReactiveShortUrlRepository shortUrlRepository;
+    private final int blockSize;
+    private final int codeLength;
+    private final long capacity;
+    private final FeistelPermutation permutation;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+    private final SingleFlight<Block> leases = new SingleFlight<>();
+
+    public SequenceShortCodeGenerator(AmazonDynamoDB amazonDynamoDB,
+                                      ReactiveShortUrlRepository shortUrlRepository,
+                                      @Value("${url.shortening.code.sequence.block-size:1000}") int blockSize,
+                                      @Value("${url.shortening.code.sequence.length:7}") int codeLength,
+                                      @Value("${url.shortening.code.sequence.permute:true}") boolean permute,
+                                      @Value("${url.shortening.code.sequence.permutation-key:}") String permutationKey) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.shortUrlRepository = shortUrlRepository;
+        this.blockSize = blockSize;
+        this.codeLength = codeLength;
+        this.capacity = Base62.capacity(codeLength);
+        if (permute && (permutationKey == null || permutationKey.isBlank() || PLACEHOLDER_KEY.equals(permutationKey))) {
+            throw new IllegalStateException("url.shortening.code.sequence.permutation-key must be set to a secret value "
+                + "when url.shortening.code.sequence.permute=true");
+        }
+        this.permutation = permute ? new FeistelPermutation(capacity, permutationKey) : null;
+    }
+
+    @Override
+    public Mono<String> generate(String originalUrl) {
+        return Mono.defer(() -> {
+            long id = current.get().next();
+            if (id >= 0) {
+                return Mono.just(encode(id));
+            }
+            // Block exhausted: concurrent callers share a single lease, then retry
+            return leases.execute(SEQUENCE_NAME, this::leaseBlock).then(generate(originalUrl));
+        });
+    }
+
+    // Codes only collide with codes issued some other way (the hash strategy, a reset counter).
+    // A batch is written with BatchWriteItem, whose puts cannot be conditional, so its codes
+    // are checked in one BatchGetItem pass and the taken ones replaced
+    @Override
+    public Mono<List<String>> generateAll(List<String> originalUrls) {
+        return Flux.fromIterable(originalUrls)
+            .concatMap(this::generate)
+            .collectList()
+            .flatMap(codes -> replaceTaken(codes, IntStream.range(0, codes.size()).boxed().collect(Collectors.toList())));
+    }
+
+    private Mono<List<String>> replaceTaken(List<String> codes, List<Integer> positions) {
+        if (positions.isEmpty()) {
+            return Mono.just(codes);
+        }
+        List<String> checked = new ArrayList<>(positions.size());
+        positions.forEach(i -> checked.add(codes.get(i)));
+        return shortUrlRepository.findAllByShortUrl(checked)
+            .map(ShortUrl::getShortUrl)
+            .collect(Collectors.toSet())
+            .flatMap(taken -> {
+                List<Integer> retaken = new ArrayList<>();
+                for (int i : positions) {
+                    if (taken.contains(codes.get(i))) {
+                        retaken.add(i);
+                    }
+                }
+                if (retaken.isEmpty()) {
+                    return Mono.just(codes);
+                }
+                logger.warn("[SequenceShortCodeGenerator] {} batch codes already taken, issuing others", retaken.size());
+                return Flux.fromIterable(retaken)
+                    .concatMap(i -> generate(null).doOnNext(code -> codes.set(i, code)))
+                    .then(Mono.defer(() -> replaceTaken(codes, retaken)));
+            });
+    }
+
+    String encode(long id) {
+        if (id >= capacity) {
+            throw new IllegalStateException("Sequence exhausted the " + codeLength + " char code space");
+        }
+        return Base62.encode(permutation != null ? permutation.permute(id) : id, codeLength);
+    }
+
+    // One UpdateItem per block-size creates, so the blocking v1 client on boundedElastic is enough
+    private Mono<Block> leaseBlock() {
+        return Mono.fromCallable(() -> {
+            UpdateItemResult result = amazonDynamoDB.updateItem(new UpdateItemRequest()
+                .withTableName(SEQUENCE_TABLE)
+                .withKey(Map.of(SEQUENCE_KEY, new AttributeValue(SEQUENCE_NAME)))
+                .withUpdateExpression("ADD #value :blockSize")
+                .withExpressionAttributeNames(Map.of("#value", SEQUENCE_VALUE))
+                .withExpressionAttributeValues(Map.of(":blockSize", new AttributeValue().withN(Integer.toString(blockSize))))
+                .withReturnValues(ReturnValue.UPDATED_NEW));
+            long end = Long.parseLong(result.getAttributes().get(SEQUENCE_VALUE).getN());
+            Block block = new Block(end - blockSize, end);
+            current.set(block);
+            logger.info("[SequenceShortCodeGenerator] Leased ids [{}, {})", end - blockSize, end);
+            return block;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static final class Block {
+        static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+
+        // Next id of the block, or -1 once it is used up
+        long next() {
+            long id = next.getAndIncrement();
+            return id < end ? id : -1;
+        }
+    }
+}
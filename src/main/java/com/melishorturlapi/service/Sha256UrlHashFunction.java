@@ -0,0 +1,38 @@
+package com.melishorturlapi.service;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 through one MessageDigest per thread, so hashing does not look up a provider
+ * or allocate a digest on every call.
+ */
+public class Sha256UrlHashFunction implements UrlHashFunction {
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    @Override
+    public int digestLength() {
+        return DIGEST_LENGTH;
+    }
+
+    @Override
+    public void hash(byte[] input, int length, byte[] out) {
+        MessageDigest digest = digests.get();
+        digest.update(input, 0, length);
+        try {
+            digest.digest(out, 0, DIGEST_LENGTH);
+        } catch (DigestException e) {
+            throw new IllegalStateException("SHA-256 digest failed", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.melishorturlapi.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Produces a free short code for a new link. Selected with url.shortening.code.strategy:
+ * "hash" (default, {@link HashShortCodeGenerator}) or "sequence" ({@link SequenceShortCodeGenerator}).
+ */
+public interface ShortCodeGenerator {
+
+    Mono<String> generate(String originalUrl);
+
+    /**
+     * One distinct free code per url, in the same order, checked against the table: batches
+     * are written with unconditional BatchWriteItem puts.
+     */
+    default Mono<List<String>> generateAll(List<String> originalUrls) {
+        return Flux.fromIterable(originalUrls)
+            .concatMap(this::generate)
+            .collectList();
+    }
+
+    /**
+     * For strategies that derive codes from urls: the first code each url is given when free,
+     * in the same order, so a batch can find the urls already stored with one BatchGetItem
+     * pass instead of a Query per url. A url is only missed if it was stored under a later
+     * code whose predecessors were since freed, or under another strategy; it then gets a
+     * second code. Empty for strategies whose codes say nothing about the url.
+     */
+    default Optional<List<String>> firstCodes(List<String> originalUrls) {
+        return Optional.empty();
+    }
+}
@@ -1,12 +1,21 @@
 package com.melishorturlapi.service;
 
+import com.melishorturlapi.cache.L1Invalidator;
+import com.melishorturlapi.cache.RedisL2Cache;
+import com.melishorturlapi.cache.ShortCodeFilter;
+import com.melishorturlapi.cache.SingleFlight;
+import com.melishorturlapi.config.CacheConfig;
+import com.melishorturlapi.logging.LogSampler;
 import com.melishorturlapi.model.ShortUrl;
-import com.melishorturlapi.repository.ShortUrlRepository;
+import com.melishorturlapi.model.ShortUrlBatchResult;
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
+import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.Cache;
@@ -14,6 +23,19 @@ import org.springframework.cache.CacheManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
@@ -21,39 +43,59 @@ import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOper
 @Service
 public class ShortUrlService {
 
-    private static final String SHORT_URL_CACHE = "shortUrlCache";
-    private static final String ORIGINAL_URL_CACHE = "shortUrlByOriginalCache";
+    private static final String SHORT_URL_CACHE = CacheConfig.SHORT_URL_CACHE;
+    private static final String ORIGINAL_URL_CACHE = CacheConfig.ORIGINAL_URL_CACHE;
 
     @Autowired
-    private ShortUrlRepository shortUrlRepository;
+    private ReactiveShortUrlRepository shortUrlRepository;
 
     @Autowired
     @Qualifier("caffeineCacheManager")
     private CacheManager caffeineCacheManager;
 
     @Autowired
-    @Qualifier("redisCacheManager")
-    private CacheManager redisCacheManager;
+    private RedisL2Cache redisL2Cache;
+
+    @Autowired
+    private ShortCodeFilter shortCodeFilter;
 
     @Autowired
-    private UrlHashService urlHashService;
+    private L1Invalidator l1Invalidator;
+
+    @Autowired
+    private ShortCodeGenerator shortCodeGenerator;
 
     @Autowired
     private CircuitBreakerRegistry circuitBreakerRegistry;
 
+    @Autowired
+    private MetricsService metricsService;
+
+    @Value("${url.shortening.batch.lookup-concurrency:32}")
+    private int batchLookupConcurrency = 32;
+
+    // One in-flight L2/DB load per (cacheName, key), shared by concurrent misses
+    private final Map<String, SingleFlight<ShortUrl>> cacheLoads = Map.of(
+        SHORT_URL_CACHE, new SingleFlight<>(),
+        ORIGINAL_URL_CACHE, new SingleFlight<>());
 
     private static final Logger logger = LoggerFactory.getLogger(ShortUrlService.class);
+    // Written per lookup, see LogSampler
+    private static final LogSampler.Category LOOKUP_LOG = LogSampler.category("lookup");
+    private static final LogSampler.Category CACHE_LOG = LogSampler.category("cache");
+    private static final LogSampler.Category NOT_FOUND_LOG = LogSampler.category("not-found");
 
+    @PostConstruct
+    public void registerCacheLoadMetrics() {
+        cacheLoads.forEach((cacheName, flight) ->
+            metricsService.registerCacheLoads(cacheName, flight::loadCount, flight::coalescedCount));
+    }
     
     public Mono<ShortUrl> createShortUrlCB(ShortUrl shortUrl) {
         CircuitBreaker cb = circuitBreakerRegistry.circuitBreaker("shortUrlService");
     
-        return Mono.fromCallable(() -> {
-                ShortUrl result = shortUrlRepository.save(shortUrl);
-                evictFromBothCaches(SHORT_URL_CACHE, shortUrl.getShortUrl());
-                evictFromBothCaches(ORIGINAL_URL_CACHE, shortUrl.getOriginalUrl());
-                return result;
-            })
+        return shortUrlRepository.save(shortUrl)
+            .flatMap(saved -> evictSaved(saved).then(shortCodeFilter.recordCreated(saved.getShortUrl())).thenReturn(saved))
             .transformDeferred(CircuitBreakerOperator.of(cb))
             // Fallback solo si el CircuitBreaker dejó pasar y falló
             .onErrorResume(throwable -> {
@@ -63,56 +105,257 @@ public class ShortUrlService {
                 // ✅ Si querés fallback "suave" pero que el CB registre la excepción
                 logger.warn("Fallback ejecutado tras fallo: {}", throwable.toString());
                 return fallbackGetShortUrl(shortUrl.getShortUrl(), throwable);
-            })
-            .subscribeOn(Schedulers.boundedElastic());
+            });
     }
     
 
     @io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker(name = "shortUrlService", fallbackMethod = "fallbackGetShortUrl")
     public Mono<ShortUrl> createShortUrl(ShortUrl shortUrl) {
-        return Mono.fromCallable(() -> {
-            ShortUrl result = shortUrlRepository.save(shortUrl);
-            evictFromBothCaches(SHORT_URL_CACHE, shortUrl.getShortUrl());
-            evictFromBothCaches(ORIGINAL_URL_CACHE, shortUrl.getOriginalUrl());
-            return result;
-        }).subscribeOn(Schedulers.boundedElastic());
+        return shortUrlRepository.save(shortUrl)
+            .flatMap(saved -> evictSaved(saved).then(shortCodeFilter.recordCreated(saved.getShortUrl())).thenReturn(saved));
+    }
+
+    /**
+     * Bulk create for already validated urls, deduplicated here. Urls that already have a code
+     * come back as EXISTING; the rest get their codes in one generateAll call (which checks
+     * them against the table in bulk, as BatchWriteItem puts cannot be conditional) and are
+     * written with saveAll, then written over their L2 entries with one pipelined pass.
+     * Results are emitted in no particular order.
+     */
+    public Flux<ShortUrlBatchResult> createShortUrls(List<String> originalUrls) {
+        List<ShortUrlBatchResult> existing = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String url : new LinkedHashSet<>(originalUrls)) {
+            ShortUrl cached = getFromCache(caffeineCacheManager, ORIGINAL_URL_CACHE, url);
+            if (cached != null) {
+                existing.add(ShortUrlBatchResult.of(url, cached.getShortUrl(), ShortUrlBatchResult.Status.EXISTING));
+            } else {
+                unknown.add(url);
+            }
+        }
+        return findStored(unknown)
+            .flatMapMany(stored -> {
+                List<String> newUrls = new ArrayList<>(unknown.size() - stored.size());
+                for (String url : unknown) {
+                    ShortUrl found = stored.get(url);
+                    if (found != null) {
+                        existing.add(ShortUrlBatchResult.of(url, found.getShortUrl(), ShortUrlBatchResult.Status.EXISTING));
+                    } else {
+                        newUrls.add(url);
+                    }
+                }
+                return Flux.fromIterable(existing).concatWith(insertAll(newUrls));
+            });
+    }
+
+    // Stored links of the urls, by url. With a code strategy that derives codes from urls, one
+    // BatchGetItem pass over their first codes answers almost all of them; a url whose first
+    // code holds another url, and every url under strategies that do not, costs a cached
+    // lookup that may Query OriginalUrlHashIndex, lookup-concurrency at a time
+    private Mono<Map<String, ShortUrl>> findStored(List<String> originalUrls) {
+        if (originalUrls.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        Optional<List<String>> firstCodes = shortCodeGenerator.firstCodes(originalUrls);
+        if (firstCodes.isEmpty()) {
+            return lookUpStored(originalUrls);
+        }
+        List<String> codes = firstCodes.get();
+        return shortUrlRepository.findAllByShortUrl(new HashSet<>(codes))
+            .collectMap(ShortUrl::getShortUrl)
+            .flatMap(atFirstCode -> {
+                Map<String, ShortUrl> stored = new HashMap<>();
+                List<String> displaced = new ArrayList<>();
+                for (int i = 0; i < originalUrls.size(); i++) {
+                    String url = originalUrls.get(i);
+                    ShortUrl item = atFirstCode.get(codes.get(i));
+                    if (item != null && url.equals(item.getOriginalUrl())) {
+                        stored.put(url, item);
+                    } else if (item != null) {
+                        displaced.add(url);
+                    }
+                }
+                return lookUpStored(displaced).map(found -> {
+                    stored.putAll(found);
+                    return stored;
+                });
+            });
+    }
+
+    private Mono<Map<String, ShortUrl>> lookUpStored(List<String> originalUrls) {
+        return Flux.fromIterable(originalUrls)
+            .flatMap(url -> getShortUrlByOriginalUrl(url).map(found -> Map.entry(url, found)), batchLookupConcurrency)
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    private Flux<ShortUrlBatchResult> insertAll(List<String> originalUrls) {
+        if (originalUrls.isEmpty()) {
+            return Flux.empty();
+        }
+        return shortCodeGenerator.generateAll(originalUrls)
+            .flatMapMany(codes -> {
+                long now = DateTime.now().getMillis();
+                List<ShortUrl> toSave = new ArrayList<>(codes.size());
+                for (int i = 0; i < codes.size(); i++) {
+                    ShortUrl shortUrl = new ShortUrl();
+                    shortUrl.setOriginalUrl(originalUrls.get(i));
+                    shortUrl.setShortUrl(codes.get(i));
+                    shortUrl.setCreatedAt(now);
+                    shortUrl.setRedirectCount(0L);
+                    toSave.add(shortUrl);
+                }
+                return shortUrlRepository.saveAll(toSave).collectList()
+                    .flatMapMany(saved -> evictAllSaved(saved).thenMany(Flux.defer(() -> {
+                        Set<String> written = new HashSet<>();
+                        saved.forEach(url -> written.add(url.getShortUrl()));
+                        return Flux.fromIterable(toSave).map(url -> written.contains(url.getShortUrl())
+                            ? ShortUrlBatchResult.of(url.getOriginalUrl(), url.getShortUrl(), ShortUrlBatchResult.Status.CREATED)
+                            : ShortUrlBatchResult.failed(url.getOriginalUrl(), ShortUrlBatchResult.Status.FAILED, "No fue posible guardar la url"));
+                    })));
+            });
+    }
+
+    private Mono<Void> evictAllSaved(List<ShortUrl> saved) {
+        if (saved.isEmpty()) {
+            return Mono.empty();
+        }
+        List<String> codes = new ArrayList<>(saved.size());
+        List<String> originalUrls = new ArrayList<>(saved.size());
+        Map<String, ShortUrl> byCode = new HashMap<>();
+        for (ShortUrl url : saved) {
+            codes.add(url.getShortUrl());
+            originalUrls.add(url.getOriginalUrl());
+            byCode.put(url.getShortUrl(), url);
+            evictFromCache(caffeineCacheManager, CacheConfig.SHORT_URL_NEGATIVE_CACHE, url.getShortUrl());
+            evictFromCache(caffeineCacheManager, SHORT_URL_CACHE, url.getShortUrl());
+            evictFromCache(caffeineCacheManager, ORIGINAL_URL_CACHE, url.getOriginalUrl());
+        }
+        // Overwrite rather than delete the codes, see evictSaved
+        return redisL2Cache.putAll(SHORT_URL_CACHE, byCode)
+            .then(redisL2Cache.evictAll(ORIGINAL_URL_CACHE, originalUrls))
+            .then(l1Invalidator.publish(Map.of(
+                CacheConfig.SHORT_URL_NEGATIVE_CACHE, codes,
+                SHORT_URL_CACHE, codes,
+                ORIGINAL_URL_CACHE, originalUrls)))
+            .then(shortCodeFilter.recordCreated(codes));
     }
 
     @io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker(name = "shortUrlService", fallbackMethod = "fallbackGetShortUrl")
     public Mono<ShortUrl> getShortUrl(String shortUrl) {
-        logger.info("[getShortUrl] Called with shortUrl: {}", shortUrl);
-        return getCachedOrFetch(SHORT_URL_CACHE, shortUrl, 
-            () -> Mono.fromCallable(() -> shortUrlRepository.findByShortUrl(shortUrl)).subscribeOn(Schedulers.boundedElastic()));
+        if (LOOKUP_LOG.tryAcquire()) {
+            logger.info("[getShortUrl] Called with shortUrl: {}", shortUrl);
+        }
+        if (!shortCodeFilter.mightExist(shortUrl)) {
+            if (logger.isDebugEnabled() && NOT_FOUND_LOG.tryAcquire()) {
+                logger.debug("[getShortUrl] Code {} not in the issued codes filter, skipping DB", shortUrl);
+            }
+            // Still ask L1/L2: a code created on another node may not have reached the filter yet
+            return getCachedOrFetch(SHORT_URL_CACHE, shortUrl, false, Mono::empty);
+        }
+        // Unknown codes (bots, typos) are cached as negative entries so 404 storms stay in memory
+        return getCachedOrFetch(SHORT_URL_CACHE, shortUrl, true,
+            () -> shortUrlRepository.findByShortUrl(shortUrl));
+    }
+
+    /**
+     * Resolves many codes in three round trips at most: L1 for all of them, one MGET for the
+     * L1 misses, one BatchGetItem pass for what L2 does not know. Found links are written back
+     * to L1 and L2, unknown codes become negative entries. Codes the issued codes filter
+     * rejects are only looked up in L1 and L2. The map only holds codes that exist.
+     */
+    public Mono<Map<String, ShortUrl>> getShortUrls(Collection<String> shortUrls) {
+        Map<String, ShortUrl> found = new HashMap<>();
+        List<String> l1Misses = new ArrayList<>();
+        Set<String> filteredOut = new HashSet<>();
+        for (String shortUrl : new LinkedHashSet<>(shortUrls)) {
+            if (isKnownMissing(shortUrl)) {
+                continue;
+            }
+            if (!shortCodeFilter.mightExist(shortUrl)) {
+                filteredOut.add(shortUrl);
+            }
+            ShortUrl cached = getFromCache(caffeineCacheManager, SHORT_URL_CACHE, shortUrl);
+            if (cached != null) {
+                found.put(shortUrl, cached);
+            } else {
+                l1Misses.add(shortUrl);
+            }
+        }
+        if (l1Misses.isEmpty()) {
+            return Mono.just(found);
+        }
+        return redisL2Cache.getAll(SHORT_URL_CACHE, l1Misses)
+            .flatMap(l2Results -> {
+                List<String> l2Misses = new ArrayList<>();
+                for (String shortUrl : l1Misses) {
+                    ShortUrl l2Result = l2Results.get(shortUrl);
+                    if (l2Result == null) {
+                        if (!filteredOut.contains(shortUrl)) {
+                            l2Misses.add(shortUrl);
+                        }
+                    } else if (RedisL2Cache.isNegative(l2Result)) {
+                        rememberMissing(shortUrl);
+                    } else {
+                        putInCache(caffeineCacheManager, SHORT_URL_CACHE, shortUrl, l2Result);
+                        found.put(shortUrl, l2Result);
+                    }
+                }
+                logger.debug("[getShortUrls] {} codes: {} L1 misses, {} L2 misses", shortUrls.size(), l1Misses.size(), l2Misses.size());
+                if (l2Misses.isEmpty()) {
+                    return Mono.just(found);
+                }
+                return shortUrlRepository.findAllByShortUrl(l2Misses)
+                    .collectMap(ShortUrl::getShortUrl)
+                    .flatMap(dbResults -> {
+                        List<String> missing = new ArrayList<>();
+                        for (String shortUrl : l2Misses) {
+                            ShortUrl dbResult = dbResults.get(shortUrl);
+                            if (dbResult == null) {
+                                rememberMissing(shortUrl);
+                                missing.add(shortUrl);
+                            } else {
+                                putInCache(caffeineCacheManager, SHORT_URL_CACHE, shortUrl, dbResult);
+                                found.put(shortUrl, dbResult);
+                            }
+                        }
+                        return redisL2Cache.putAll(SHORT_URL_CACHE, dbResults)
+                            .then(redisL2Cache.putNegativeAll(SHORT_URL_CACHE, missing))
+                            .thenReturn(found);
+                    });
+            });
     }
 
     public Mono<ShortUrl> getShortUrlByOriginalUrl(String originalUrl) {
-        return getCachedOrFetch(ORIGINAL_URL_CACHE, originalUrl, 
-            () -> Mono.fromCallable(() -> shortUrlRepository.findByOriginalUrl(originalUrl)).subscribeOn(Schedulers.boundedElastic()));
+        return getCachedOrFetch(ORIGINAL_URL_CACHE, originalUrl, false,
+            () -> findByOriginalUrl(originalUrl));
+    }
+
+    // One Query on OriginalUrlHashIndex; compare the full url in case two urls share a hash
+    private Mono<ShortUrl> findByOriginalUrl(String originalUrl) {
+        return shortUrlRepository.findByOriginalUrlHash(ShortUrl.hashOriginalUrl(originalUrl))
+            .filter(url -> originalUrl.equals(url.getOriginalUrl()))
+            .next();
     }
 
     public Mono<Void> deleteShortUrl(String shortUrl) {
-        return Mono.fromRunnable(() -> {
-            ShortUrl url = shortUrlRepository.findByShortUrl(shortUrl);
-            shortUrlRepository.deleteById(shortUrl);
-            evictFromBothCaches(SHORT_URL_CACHE, shortUrl);
-            if (url != null) {
-                evictFromBothCaches(ORIGINAL_URL_CACHE, url.getOriginalUrl());
-            }
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+        return shortUrlRepository.findByShortUrl(shortUrl)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .flatMap(url -> shortUrlRepository.deleteByShortUrl(shortUrl)
+                .then(evictFromBothCaches(SHORT_URL_CACHE, shortUrl))
+                .then(url.map(u -> evictFromBothCaches(ORIGINAL_URL_CACHE, u.getOriginalUrl())).orElse(Mono.empty()))
+                .then(l1Invalidator.publish(url
+                    .map(u -> Map.of(SHORT_URL_CACHE, List.of(shortUrl), ORIGINAL_URL_CACHE, Collections.singletonList(u.getOriginalUrl())))
+                    .orElse(Map.of(SHORT_URL_CACHE, List.of(shortUrl))))))
+            .then();
     }
 
     public Mono<ShortUrl> getShortUrlStats(String shortUrl) {
-        return Mono.fromCallable(() -> shortUrlRepository.findById(shortUrl).orElse(null)).subscribeOn(Schedulers.boundedElastic());
+        return shortUrlRepository.findByShortUrl(shortUrl);
     }
 
-    public String generateShortUrl(String originalUrl) {
-        String code = urlHashService.hashUrl(originalUrl);
-        int attempt = 1;
-        while (shortUrlRepository.findByShortUrl(code) != null) {
-            code = urlHashService.hashUrl(originalUrl + ":" + attempt);
-            attempt++;
-        }
-        return code;
+    public Mono<String> generateShortUrl(String originalUrl) {
+        return shortCodeGenerator.generate(originalUrl);
     }
 
     public Mono<ShortUrl> fallbackGetShortUrl(String shortUrl, Throwable t) {
@@ -120,37 +363,105 @@ public class ShortUrlService {
         return Mono.error(t);
     }
 
-    private Mono<ShortUrl> getCachedOrFetch(String cacheName, String key, java.util.function.Supplier<Mono<ShortUrl>> fetcher) {
+    private Mono<ShortUrl> getCachedOrFetch(String cacheName, String key, boolean cacheMisses,
+                                            java.util.function.Supplier<Mono<ShortUrl>> fetcher) {
         // Try Caffeine cache first (L1)
         ShortUrl cached = getFromCache(caffeineCacheManager, cacheName, key);
         if (cached != null) {
-            logger.info("[getCachedOrFetch] L1 cache hit for key: {} in cache: {}", key, cacheName);
+            if (CACHE_LOG.tryAcquire()) {
+                logger.info("[getCachedOrFetch] L1 cache hit for key: {} in cache: {}", key, cacheName);
+            }
             return Mono.just(cached);
         }
+        if (cacheMisses && isKnownMissing(key)) {
+            if (logger.isDebugEnabled() && CACHE_LOG.tryAcquire()) {
+                logger.debug("[getCachedOrFetch] L1 negative hit for key: {} in cache: {}", key, cacheName);
+            }
+            return Mono.empty();
+        }
 
-        // Try Redis cache (L2)
-        cached = getFromCache(redisCacheManager, cacheName, key);
-        if (cached != null) {
-            logger.info("[getCachedOrFetch] L2 cache hit for key: {} in cache: {}", key, cacheName);
-            // Populate L1 cache for next time
-            putInCache(caffeineCacheManager, cacheName, key, cached);
-            return Mono.just(cached);
+        // Concurrent misses for the same key wait on a single L2/DB load.
+        // Negative entries travel through the load as values so every waiter sees them, then are dropped here
+        return cacheLoads.get(cacheName).execute(key, () -> loadFromL2OrDb(cacheName, key, cacheMisses, fetcher))
+            .filter(url -> !RedisL2Cache.isNegative(url));
+    }
+
+    private Mono<ShortUrl> loadFromL2OrDb(String cacheName, String key, boolean cacheMisses,
+                                          java.util.function.Supplier<Mono<ShortUrl>> fetcher) {
+        // Try Redis cache (L2), without blocking the calling thread
+        return redisL2Cache.get(cacheName, key)
+            .doOnNext(l2Result -> {
+                if (RedisL2Cache.isNegative(l2Result)) {
+                    if (logger.isDebugEnabled() && CACHE_LOG.tryAcquire()) {
+                        logger.debug("[getCachedOrFetch] L2 negative hit for key: {} in cache: {}", key, cacheName);
+                    }
+                    rememberMissing(key);
+                    return;
+                }
+                if (CACHE_LOG.tryAcquire()) {
+                    logger.info("[getCachedOrFetch] L2 cache hit for key: {} in cache: {}", key, cacheName);
+                }
+                // Populate L1 cache for next time
+                putInCache(caffeineCacheManager, cacheName, key, l2Result);
+            })
+            .switchIfEmpty(Mono.defer(() -> {
+                if (CACHE_LOG.tryAcquire()) {
+                    logger.info("[getCachedOrFetch] Cache miss for key: {} in cache: {}. Fetching from DB...", key, cacheName);
+                }
+                // Fetch from database reactively
+                return fetcher.get()
+                    .flatMap(dbResult -> {
+                        if (CACHE_LOG.tryAcquire()) {
+                            logger.info("[getCachedOrFetch] DB fetch result for key: {} in cache: {}: FOUND", key, cacheName);
+                        }
+                        // Populate both caches
+                        putInCache(caffeineCacheManager, cacheName, key, dbResult);
+                        return redisL2Cache.put(cacheName, key, dbResult).thenReturn(dbResult);
+                    })
+                    .switchIfEmpty(Mono.defer(() -> {
+                        if (!cacheMisses) {
+                            return Mono.empty();
+                        }
+                        if (CACHE_LOG.tryAcquire()) {
+                            logger.info("[getCachedOrFetch] DB fetch result for key: {} in cache: {}: NOT FOUND", key, cacheName);
+                        }
+                        rememberMissing(key);
+                        return redisL2Cache.putNegative(cacheName, key).thenReturn(RedisL2Cache.NEGATIVE);
+                    }));
+            }));
+    }
+
+    private boolean isKnownMissing(String shortUrl) {
+        Cache cache = caffeineCacheManager.getCache(CacheConfig.SHORT_URL_NEGATIVE_CACHE);
+        return cache != null && cache.get(shortUrl) != null;
+    }
+
+    private void rememberMissing(String shortUrl) {
+        Cache cache = caffeineCacheManager.getCache(CacheConfig.SHORT_URL_NEGATIVE_CACHE);
+        if (cache != null) {
+            cache.put(shortUrl, Boolean.TRUE);
         }
+    }
 
-        logger.info("[getCachedOrFetch] Cache miss for key: {} in cache: {}. Fetching from DB...", key, cacheName);
-        // Fetch from database reactively
-        return fetcher.get()
-            .doOnNext(dbResult -> {
-                logger.info("[getCachedOrFetch] DB fetch result for key: {} in cache: {}: {}", key, cacheName, dbResult != null ? "FOUND" : "NOT FOUND");
-                // Populate both caches
-                putInCache(redisCacheManager, cacheName, key, dbResult);
-                putInCache(caffeineCacheManager, cacheName, key, dbResult);
-            });
+    private Mono<Void> evictSaved(ShortUrl saved) {
+        // L2 gets the new link over any negative marker of the code rather than a DEL, which a
+        // marker still in flight from a racing lookup could land after (markers are SET NX).
+        // L1 keeps negatives apart
+        evictFromCache(caffeineCacheManager, CacheConfig.SHORT_URL_NEGATIVE_CACHE, saved.getShortUrl());
+        evictFromCache(caffeineCacheManager, SHORT_URL_CACHE, saved.getShortUrl());
+        return redisL2Cache.put(SHORT_URL_CACHE, saved.getShortUrl(), saved)
+            .then(evictFromBothCaches(ORIGINAL_URL_CACHE, saved.getOriginalUrl()))
+            .then(l1Invalidator.publish(Map.of(
+                CacheConfig.SHORT_URL_NEGATIVE_CACHE, Collections.singletonList(saved.getShortUrl()),
+                SHORT_URL_CACHE, Collections.singletonList(saved.getShortUrl()),
+                ORIGINAL_URL_CACHE, Collections.singletonList(saved.getOriginalUrl()))));
     }
 
-    private void evictFromBothCaches(String cacheName, String key) {
-        evictFromCache(caffeineCacheManager, cacheName, key);
-        evictFromCache(redisCacheManager, cacheName, key);
+    private Mono<Void> evictFromBothCaches(String cacheName, String key) {
+        return Mono.defer(() -> {
+            evictFromCache(caffeineCacheManager, cacheName, key);
+            return redisL2Cache.evict(cacheName, key);
+        });
     }
 
     private ShortUrl getFromCache(CacheManager cacheManager, String cacheName, String key) {
@@ -0,0 +1,27 @@
+package com.melishorturlapi.service;
+
+/**
+ * Hash behind {@link UrlHashService}, selected with url.shortening.hash.algorithm:
+ * "sha256" (default) or "murmur3" for deployments that do not need a cryptographic hash.
+ * Implementations must not allocate per call and must be safe to use from several threads.
+ */
+public interface UrlHashFunction {
+
+    /** Number of bytes {@link #hash} writes. */
+    int digestLength();
+
+    /** Hashes input[0, length) into out[0, digestLength()). input and out may be the same array. */
+    void hash(byte[] input, int length, byte[] out);
+
+    static UrlHashFunction named(String algorithm) {
+        switch (algorithm.trim().toLowerCase()) {
+            case "sha256":
+            case "sha-256":
+                return new Sha256UrlHashFunction();
+            case "murmur3":
+                return new Murmur3UrlHashFunction();
+            default:
+                throw new IllegalArgumentException("Unknown url hash algorithm: " + algorithm);
+        }
+    }
+}
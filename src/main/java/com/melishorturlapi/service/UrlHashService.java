@@ -1,18 +1,37 @@
 package com.melishorturlapi.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 @Service
 public class UrlHashService {
     private int codeLength = 6;
-    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private final UrlHashFunction hashFunction;
 
-    public UrlHashService() {}
+    // Urls longer than this are hashed from a one-off array instead of growing the thread's buffer
+    private static final int MAX_RETAINED_INPUT = 8 * 1024;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    public UrlHashService() {
+        this(new Sha256UrlHashFunction());
+    }
     public UrlHashService(int codeLength) {
+        this(codeLength, new Sha256UrlHashFunction());
+    }
+    @Autowired
+    public UrlHashService(@Value("${url.shortening.hash.algorithm:sha256}") String algorithm) {
+        this(UrlHashFunction.named(algorithm));
+    }
+    public UrlHashService(UrlHashFunction hashFunction) {
+        this(6, hashFunction);
+    }
+    public UrlHashService(int codeLength, UrlHashFunction hashFunction) {
         this.codeLength = codeLength;
+        this.hashFunction = hashFunction;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(hashFunction.digestLength()));
     }
     public void setCodeLength(int codeLength) {
         this.codeLength = codeLength;
@@ -22,33 +41,81 @@ public class UrlHashService {
     }
 
     public String hashUrl(String longUrl) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(longUrl.getBytes(StandardCharsets.UTF_8));
-            return encodeBase62(hash).substring(0, codeLength);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
+        Scratch s = scratch.get();
+        int length = s.encode(longUrl);
+        if (length >= 0) {
+            hashFunction.hash(s.input, length, s.digest);
+        } else {
+            byte[] bytes = longUrl.getBytes(StandardCharsets.UTF_8);
+            hashFunction.hash(bytes, bytes.length, s.digest);
         }
+        return encodeBase62(s);
     }
 
-    private String encodeBase62(byte[] input) {
-        StringBuilder sb = new StringBuilder();
-        int value = 0;
+    // Reads the digest 6 bits at a time and drops 62 and 63, so every symbol is equally likely.
+    // Stops as soon as codeLength chars are out; if the digest runs dry it is hashed again.
+    private String encodeBase62(Scratch s) {
+        int length = codeLength;
+        char[] code = s.code(length);
+        byte[] digest = s.digest;
+        int digestLength = digest.length;
+        int produced = 0;
+        int pos = 0;
+        int bits = 0;
         int bitCount = 0;
-        for (byte b : input) {
-            value = (value << 8) | (b & 0xFF);
-            bitCount += 8;
-            while (bitCount >= 6) {
-                bitCount -= 6;
-                int idx = (value >> bitCount) & 0x3F;
-                sb.append(BASE62.charAt(idx % BASE62.length()));
+        while (produced < length) {
+            if (bitCount < 6) {
+                if (pos == digestLength) {
+                    hashFunction.hash(digest, digestLength, digest);
+                    pos = 0;
+                }
+                bits = (bits << 8) | (digest[pos++] & 0xFF);
+                bitCount += 8;
+            }
+            bitCount -= 6;
+            int idx = (bits >>> bitCount) & 0x3F;
+            if (idx < Base62.BASE) {
+                code[produced++] = Base62.ALPHABET[idx];
             }
         }
-        if (sb.length() < codeLength) {
-            while (sb.length() < codeLength) {
-                sb.append('0');
+        return new String(code, 0, length);
+    }
+
+    // Per-thread buffers so hashing allocates nothing but the returned String
+    private static final class Scratch {
+        private byte[] input = new byte[256];
+        private final byte[] digest;
+        private char[] code = new char[16];
+
+        Scratch(int digestLength) {
+            this.digest = new byte[digestLength];
+        }
+
+        // Copies ASCII urls into the input buffer and returns their length, or -1 when the
+        // url has non-ASCII chars or is too long and has to go through String.getBytes
+        int encode(String url) {
+            int length = url.length();
+            if (length > MAX_RETAINED_INPUT) {
+                return -1;
+            }
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = url.charAt(i);
+                if (c >= 0x80) {
+                    return -1;
+                }
+                input[i] = (byte) c;
+            }
+            return length;
+        }
+
+        char[] code(int length) {
+            if (code.length < length) {
+                code = new char[length];
             }
+            return code;
         }
-        return sb.toString();
     }
-} 
\ No newline at end of file
+}
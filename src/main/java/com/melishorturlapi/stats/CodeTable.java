@@ -0,0 +1,205 @@
+package com.melishorturlapi.stats;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Fixed-capacity, lock-free table of per-code ring buffers. Codes map to dense slots through
+ * an open-addressed index; each slot owns BUCKETS_PER_EVENT longs per event in one shared
+ * AtomicLongArray: 60 minute buckets, then 24 hour buckets.
+ *
+ * Every bucket packs (epoch minute or hour) << 32 | count, so a stale bucket is recognised by
+ * its stamp and restarted with a single CAS, never cleared by a sweep.
+ */
+final class CodeTable {
+
+    static final int EVENTS = 2;
+    static final int MINUTES = 60;
+    static final int HOURS = 24;
+    static final int BUCKETS_PER_EVENT = MINUTES + HOURS;
+    static final int LONGS_PER_SLOT = EVENTS * BUCKETS_PER_EVENT;
+
+    private final int capacity;
+    private final AtomicReferenceArray<Entry> index;
+    private final int mask;
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    // Slots reserved by a code that lost its position to the same code and could not hand them back
+    private final Queue<Integer> spareSlots = new ConcurrentLinkedQueue<>();
+    private final AtomicLongArray buckets;
+
+    CodeTable(int capacity) {
+        this.capacity = capacity;
+        int indexSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.index = new AtomicReferenceArray<>(indexSize);
+        this.mask = indexSize - 1;
+        this.buckets = new AtomicLongArray(capacity * LONGS_PER_SLOT);
+    }
+
+    /**
+     * Slot of the code, claiming one if asked to; -1 if absent or the table is full. Entries
+     * are published with their slot already reserved, so no reader ever waits on a writer.
+     */
+    int slot(String code, boolean create) {
+        int pos = spread(code.hashCode()) & mask;
+        int reserved = -1;
+        while (true) {
+            Entry entry = index.get(pos);
+            if (entry == null) {
+                if (!create) {
+                    return -1;
+                }
+                if (reserved < 0 && (reserved = reserveSlot()) < 0) {
+                    return -1;
+                }
+                if (index.compareAndSet(pos, null, new Entry(code, reserved))) {
+                    return reserved;
+                }
+                entry = index.get(pos);
+            }
+            if (entry.code.equals(code)) {
+                if (reserved >= 0) {
+                    releaseSlot(reserved);
+                }
+                return entry.slot;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    void add(int slot, int event, long epochMinute, long delta) {
+        int base = slot * LONGS_PER_SLOT + event * BUCKETS_PER_EVENT;
+        bump(base + (int) (epochMinute % MINUTES), epochMinute, delta);
+        long epochHour = epochMinute / 60;
+        bump(base + MINUTES + (int) (epochHour % HOURS), epochHour, delta);
+    }
+
+    long sum(int slot, int event, StatsWindow window, long epochMinute) {
+        int base = slot * LONGS_PER_SLOT + event * BUCKETS_PER_EVENT;
+        switch (window) {
+            case MINUTE:
+                return countIfStamped(buckets.get(base + (int) (epochMinute % MINUTES)), epochMinute);
+            case HOUR:
+                return sumRange(base, MINUTES, epochMinute - MINUTES + 1, epochMinute);
+            default:
+                long epochHour = epochMinute / 60;
+                return sumRange(base + MINUTES, HOURS, epochHour - HOURS + 1, epochHour);
+        }
+    }
+
+    /** Raw packed bucket, for snapshots. */
+    long bucket(int slot, int offset) {
+        return buckets.get(slot * LONGS_PER_SLOT + offset);
+    }
+
+    void setBucket(int slot, int offset, long packed) {
+        buckets.set(slot * LONGS_PER_SLOT + offset, packed);
+    }
+
+    /** True if any hour bucket of the slot is still inside the day window. */
+    boolean activeWithinDay(int slot, long epochMinute) {
+        long oldestHour = epochMinute / 60 - HOURS + 1;
+        for (int event = 0; event < EVENTS; event++) {
+            int base = slot * LONGS_PER_SLOT + event * BUCKETS_PER_EVENT + MINUTES;
+            for (int i = 0; i < HOURS; i++) {
+                long packed = buckets.get(base + i);
+                if (packed != 0 && stamp(packed) >= oldestHour) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void forEach(ObjIntConsumer<String> action) {
+        for (int pos = 0; pos < index.length(); pos++) {
+            Entry entry = index.get(pos);
+            if (entry != null) {
+                action.accept(entry.code, entry.slot);
+            }
+        }
+    }
+
+    int size() {
+        return nextSlot.get() - spareSlots.size();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    static long stamp(long packed) {
+        return packed >>> 32;
+    }
+
+    static long count(long packed) {
+        return packed & 0xFFFFFFFFL;
+    }
+
+    private int reserveSlot() {
+        Integer spare = spareSlots.poll();
+        if (spare != null) {
+            return spare;
+        }
+        int slot;
+        do {
+            slot = nextSlot.get();
+            if (slot >= capacity) {
+                return -1;
+            }
+        } while (!nextSlot.compareAndSet(slot, slot + 1));
+        return slot;
+    }
+
+    // Never written to: hand it back if it is still the last one taken, else keep it for the next code
+    private void releaseSlot(int slot) {
+        if (!nextSlot.compareAndSet(slot + 1, slot)) {
+            spareSlots.add(slot);
+        }
+    }
+
+    private void bump(int i, long stamp, long delta) {
+        long current;
+        long next;
+        do {
+            current = buckets.get(i);
+            long count = stamp(current) == stamp ? count(current) : 0;
+            next = stamp << 32 | Math.min(0xFFFFFFFFL, count + delta);
+        } while (!buckets.compareAndSet(i, current, next));
+    }
+
+    private long sumRange(int base, int length, long oldest, long newest) {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            long packed = buckets.get(base + i);
+            long stamp = stamp(packed);
+            if (packed != 0 && stamp >= oldest && stamp <= newest) {
+                sum += count(packed);
+            }
+        }
+        return sum;
+    }
+
+    private static long countIfStamped(long packed, long stamp) {
+        return packed != 0 && stamp(packed) == stamp ? count(packed) : 0;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    private static final class Entry {
+        final String code;
+        final int slot;
+
+        Entry(String code, int slot) {
+            this.code = code;
+            this.slot = slot;
+        }
+    }
+}
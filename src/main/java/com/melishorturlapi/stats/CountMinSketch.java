@@ -0,0 +1,105 @@
+package com.melishorturlapi.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min sketch of string keys: depth rows of width counters, estimates never undercount
+ * and overcount by at most e/width of the total with probability 1 - e^-depth. Adds are one
+ * atomic add per row, so concurrent writers never block and nothing is allocated. Sketches of
+ * the same shape merge by adding their counters.
+ */
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || width < 2 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Count-min sketch needs depth >= 1 and a power of two width: " + depth + "x" + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.mask = width - 1;
+        this.counters = new AtomicLongArray(depth * width);
+    }
+
+    /** Adds delta to key and returns its new estimate. */
+    public long add(String key, long delta) {
+        long h = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long value = counters.addAndGet(index(h, row), delta);
+            estimate = Math.min(estimate, value);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long h = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(h, row)));
+        }
+        return estimate;
+    }
+
+    /** Adds other's counters into this one; both must have the same shape. */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge a " + other.depth + "x" + other.width + " sketch into " + depth + "x" + width);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            long value = other.counters.get(i);
+            if (value != 0) {
+                counters.addAndGet(i, value);
+            }
+        }
+    }
+
+    /** Halves every counter, so old traffic fades geometrically instead of counting forever. */
+    public void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            long value;
+            do {
+                value = counters.get(i);
+            } while (value != 0 && !counters.compareAndSet(i, value, value >>> 1));
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    // Row r probes h1 + r * h2 (Kirsch-Mitzenmacher), h2 odd so rows never collapse onto one column
+    private int index(long h, int row) {
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        return row * width + ((h1 + row * h2) & mask);
+    }
+
+    // FNV-1a over the chars, then fmix64; a 32 bit String.hashCode collision would hit every row
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
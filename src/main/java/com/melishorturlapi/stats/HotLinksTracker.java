@@ -0,0 +1,183 @@
+package com.melishorturlapi.stats;
+
+import com.melishorturlapi.model.HotLink;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Most redirected codes over the last few minutes, in bounded memory however many codes are
+ * hit. Redirects land in a ring of one-minute buckets, each a {@link TopKTracker} over its own
+ * {@link CountMinSketch}; a stale bucket is replaced by a fresh one with a single CAS, so the
+ * window slides a minute at a time without sweeps. A redirect only adds to the sketch and
+ * notes the code as a candidate if it beats the weakest member; candidates are promoted every
+ * second for the current and the previous minute, and for every bucket a query reads, so the
+ * O(k) work and the tracker lock stay off the redirect path.
+ *
+ * A query takes the union of the bucket candidates in the window and ranks them by the sum of
+ * their per-bucket estimates. Counts are sketch estimates: never below the true count, and the
+ * sketches of every node have the same shape, so a cluster view can merge them.
+ */
+@Component
+public class HotLinksTracker {
+
+    private static final Duration PROMOTE_INTERVAL = Duration.ofSeconds(1);
+    private static final Pattern WINDOW = Pattern.compile("(\\d{1,4})([mh])");
+
+    private final int maxWindowMinutes;
+    private final int candidates;
+    private final int sketchWidth;
+    private final LongSupplier clock;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private Disposable promoter;
+
+    @Autowired
+    public HotLinksTracker(@Value("${stats.top.max-window-minutes:60}") int maxWindowMinutes,
+                           @Value("${stats.top.candidates:1000}") int candidates,
+                           @Value("${stats.top.sketch-width:2048}") int sketchWidth) {
+        this(maxWindowMinutes, candidates, sketchWidth, System::currentTimeMillis);
+    }
+
+    HotLinksTracker(int maxWindowMinutes, int candidates, int sketchWidth, LongSupplier clock) {
+        this.maxWindowMinutes = maxWindowMinutes;
+        this.candidates = candidates;
+        this.sketchWidth = sketchWidth;
+        this.clock = clock;
+        this.buckets = new AtomicReferenceArray<>(maxWindowMinutes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPromotion() {
+        promoter = Flux.interval(PROMOTE_INTERVAL, PROMOTE_INTERVAL)
+            .subscribe(tick -> promoteRecent());
+    }
+
+    @PreDestroy
+    public void stopPromotion() {
+        if (promoter != null) {
+            promoter.dispose();
+        }
+    }
+
+    public void recordRedirect(String shortUrl) {
+        long minute = epochMinute();
+        Bucket bucket = bucket(minute);
+        if (bucket != null) {
+            bucket.tracker.offer(shortUrl);
+        }
+    }
+
+    /** The n most redirected codes over the last windowMinutes minutes, current one included. */
+    public List<HotLink> top(int n, int windowMinutes) {
+        long now = epochMinute();
+        List<Bucket> inWindow = new ArrayList<>(windowMinutes);
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.minute > now - windowMinutes && bucket.minute <= now) {
+                bucket.tracker.promote();
+                inWindow.add(bucket);
+            }
+        }
+        Set<String> codes = new HashSet<>();
+        for (Bucket bucket : inWindow) {
+            codes.addAll(bucket.tracker.members());
+        }
+        Map<String, Long> totals = new HashMap<>(codes.size() * 2);
+        for (String code : codes) {
+            long total = 0;
+            for (Bucket bucket : inWindow) {
+                total += bucket.tracker.estimate(code);
+            }
+            totals.put(code, total);
+        }
+        List<HotLink> ranked = new ArrayList<>(totals.size());
+        totals.forEach((code, total) -> ranked.add(new HotLink(code, total)));
+        ranked.sort(Comparator.comparingLong(HotLink::getRedirects).reversed().thenComparing(HotLink::getShortUrl));
+        return ranked.size() > n ? new ArrayList<>(ranked.subList(0, n)) : ranked;
+    }
+
+    public int maxWindowMinutes() {
+        return maxWindowMinutes;
+    }
+
+    public int candidates() {
+        return candidates;
+    }
+
+    /** Parses "5m" or "1h" into minutes; rejects anything outside 1..maxWindowMinutes. */
+    public int windowMinutes(String window) {
+        Matcher matcher = WINDOW.matcher(window == null ? "" : window.trim().toLowerCase());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unknown top window: " + window);
+        }
+        int minutes = Integer.parseInt(matcher.group(1)) * ("h".equals(matcher.group(2)) ? 60 : 1);
+        if (minutes < 1 || minutes > maxWindowMinutes) {
+            throw new IllegalArgumentException("Top window out of range: " + window);
+        }
+        return minutes;
+    }
+
+    // The current minute, and the one that just rolled over for the candidates of its last second
+    void promoteRecent() {
+        long now = epochMinute();
+        for (long minute = now - 1; minute <= now; minute++) {
+            Bucket bucket = buckets.get((int) (minute % maxWindowMinutes));
+            if (bucket != null && bucket.minute == minute) {
+                bucket.tracker.promote();
+            }
+        }
+    }
+
+    // Bucket of the minute, replacing the stale one it finds; null if a newer minute already owns the position
+    private Bucket bucket(long minute) {
+        int i = (int) (minute % maxWindowMinutes);
+        while (true) {
+            Bucket current = buckets.get(i);
+            if (current != null && current.minute == minute) {
+                return current;
+            }
+            if (current != null && current.minute > minute) {
+                return null;
+            }
+            Bucket fresh = new Bucket(minute, new TopKTracker<>(candidates, new CountMinSketch(4, sketchWidth), code -> Boolean.TRUE));
+            if (buckets.compareAndSet(i, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private long epochMinute() {
+        return clock.getAsLong() / 60_000;
+    }
+
+    private static final class Bucket {
+        final long minute;
+        final TopKTracker<Boolean> tracker;
+
+        Bucket(long minute, TopKTracker<Boolean> tracker) {
+            this.minute = minute;
+            this.tracker = tracker;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.melishorturlapi.stats;
+
+import com.melishorturlapi.model.LinkStats;
+import com.melishorturlapi.service.MetricsService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Per-code redirect and view counts over the last minute, hour and day, kept in memory by
+ * {@link CodeTable} and fed lock-free from the redirect and view paths. Queries never leave
+ * the process.
+ *
+ * Every compaction interval the table is written to a local snapshot file, which is loaded
+ * back at startup. When the table is three quarters full, compaction also rebuilds it with
+ * only the codes seen within the day; increments racing that swap may be lost, these are
+ * operational stats, not billing. Codes arriving while the table is full are not tracked.
+ */
+@Component
+public class LinkStatsEngine {
+    private static final Logger logger = LoggerFactory.getLogger(LinkStatsEngine.class);
+
+    static final int REDIRECT = 0;
+    static final int VIEW = 1;
+
+    private static final int SNAPSHOT_MAGIC = 0x4C53544B;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int END_OF_BUCKETS = 0xFF;
+
+    private final MetricsService metricsService;
+    private final int maxCodes;
+    private final Path snapshotPath;
+    private final Duration compactionInterval;
+    private final LongSupplier clock;
+
+    private volatile CodeTable table;
+    private final LongAdder dropped = new LongAdder();
+    private Disposable compactor;
+
+    @Autowired
+    public LinkStatsEngine(MetricsService metricsService,
+                           @Value("${stats.max-codes:20000}") int maxCodes,
+                           @Value("${stats.snapshot.path:}") String snapshotPath,
+                           @Value("${stats.compaction-interval-seconds:60}") long compactionIntervalSeconds) {
+        this(metricsService, maxCodes, snapshotPath, Duration.ofSeconds(compactionIntervalSeconds), System::currentTimeMillis);
+    }
+
+    LinkStatsEngine(MetricsService metricsService, int maxCodes, String snapshotPath, Duration compactionInterval,
+                    LongSupplier clock) {
+        this.metricsService = metricsService;
+        this.maxCodes = maxCodes;
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Paths.get(snapshotPath);
+        this.compactionInterval = compactionInterval;
+        this.clock = clock;
+        this.table = new CodeTable(maxCodes);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return;
+        }
+        try {
+            int loaded = readSnapshot(snapshotPath, table, epochMinute());
+            logger.info("[LinkStatsEngine] Loaded {} codes from {}", loaded, snapshotPath);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[LinkStatsEngine] Ignoring unreadable snapshot {}: {}", snapshotPath, e.toString());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        metricsService.registerLinkStats(() -> table.size(), dropped::sum);
+        compactor = Flux.interval(compactionInterval, compactionInterval)
+            .concatMap(tick -> Mono.fromRunnable(this::compact)
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.warn("[LinkStatsEngine] Compaction failed: {}", e.toString());
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (compactor != null) {
+            compactor.dispose();
+        }
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            logger.warn("[LinkStatsEngine] Final snapshot failed: {}", e.toString());
+        }
+    }
+
+    public void recordRedirect(String shortUrl) {
+        record(shortUrl, REDIRECT);
+    }
+
+    public void recordView(String shortUrl) {
+        record(shortUrl, VIEW);
+    }
+
+    public LinkStats stats(String shortUrl, StatsWindow window) {
+        CodeTable current = table;
+        int slot = current.slot(shortUrl, false);
+        if (slot < 0) {
+            return new LinkStats(shortUrl, window.name().toLowerCase(), 0, 0, false);
+        }
+        long now = epochMinute();
+        return new LinkStats(shortUrl, window.name().toLowerCase(),
+            current.sum(slot, REDIRECT, window, now), current.sum(slot, VIEW, window, now), true);
+    }
+
+    /** Rebuilds the table if it is filling up, then writes the snapshot. */
+    void compact() {
+        long now = epochMinute();
+        CodeTable current = table;
+        if (current.size() > maxCodes * 3L / 4) {
+            CodeTable rebuilt = new CodeTable(maxCodes);
+            current.forEach((code, slot) -> {
+                if (current.activeWithinDay(slot, now)) {
+                    int target = rebuilt.slot(code, true);
+                    for (int offset = 0; offset < CodeTable.LONGS_PER_SLOT; offset++) {
+                        rebuilt.setBucket(target, offset, current.bucket(slot, offset));
+                    }
+                }
+            });
+            table = rebuilt;
+            logger.info("[LinkStatsEngine] Rebuilt stats table: {} of {} codes still active", rebuilt.size(), current.size());
+        }
+        if (snapshotPath != null) {
+            writeSnapshot(table, now);
+        }
+    }
+
+    private void record(String shortUrl, int event) {
+        CodeTable current = table;
+        int slot = current.slot(shortUrl, true);
+        if (slot < 0) {
+            dropped.increment();
+            return;
+        }
+        current.add(slot, event, epochMinute(), 1);
+    }
+
+    private long epochMinute() {
+        return clock.getAsLong() / 60_000;
+    }
+
+    // Entries: code, then (offset, packed bucket) for every bucket still inside its window
+    private void writeSnapshot(CodeTable source, long now) {
+        Path tmp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            if (snapshotPath.getParent() != null) {
+                Files.createDirectories(snapshotPath.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                IOException[] failure = new IOException[1];
+                source.forEach((code, slot) -> {
+                    if (failure[0] != null || !source.activeWithinDay(slot, now)) {
+                        return;
+                    }
+                    try {
+                        out.writeBoolean(true);
+                        out.writeUTF(code);
+                        for (int offset = 0; offset < CodeTable.LONGS_PER_SLOT; offset++) {
+                            long packed = source.bucket(slot, offset);
+                            if (isLive(offset, packed, now)) {
+                                out.writeByte(offset);
+                                out.writeLong(packed);
+                            }
+                        }
+                        out.writeByte(END_OF_BUCKETS);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) {
+                    throw failure[0];
+                }
+                out.writeBoolean(false);
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write stats snapshot " + snapshotPath, e);
+        }
+    }
+
+    private static int readSnapshot(Path path, CodeTable target, long now) throws IOException {
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("not a stats snapshot");
+            }
+            while (in.readBoolean()) {
+                String code = in.readUTF();
+                int slot = target.slot(code, true);
+                int offset;
+                while ((offset = in.readUnsignedByte()) != END_OF_BUCKETS) {
+                    long packed = in.readLong();
+                    if (slot >= 0 && offset < CodeTable.LONGS_PER_SLOT && isLive(offset, packed, now)) {
+                        target.setBucket(slot, offset, packed);
+                    }
+                }
+                if (slot >= 0) {
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static boolean isLive(int offset, long packed, long now) {
+        if (packed == 0) {
+            return false;
+        }
+        long stamp = CodeTable.stamp(packed);
+        boolean minuteBucket = offset % CodeTable.BUCKETS_PER_EVENT < CodeTable.MINUTES;
+        return minuteBucket
+            ? stamp > now - CodeTable.MINUTES
+            : stamp > now / 60 - CodeTable.HOURS;
+    }
+}
@@ -0,0 +1,18 @@
+package com.melishorturlapi.stats;
+
+/**
+ * Query windows of {@link LinkStatsEngine}, aligned to its buckets: MINUTE is the current
+ * minute so far, HOUR the last 60 minute buckets, DAY the last 24 hour buckets.
+ */
+public enum StatsWindow {
+    MINUTE, HOUR, DAY;
+
+    public static StatsWindow named(String name) {
+        for (StatsWindow window : values()) {
+            if (window.name().equalsIgnoreCase(name)) {
+                return window;
+            }
+        }
+        throw new IllegalArgumentException("Unknown stats window: " + name);
+    }
+}
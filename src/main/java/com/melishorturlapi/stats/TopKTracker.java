@@ -0,0 +1,119 @@
+package com.melishorturlapi.stats;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Keeps the (approximately) k most frequent keys, each with a value built once when the key
+ * joins, counting every key in a {@link CountMinSketch}. {@link #offer} never blocks or scans:
+ * it adds to the sketch, looks the key up and, if its estimate beats the weakest member, notes
+ * it as a candidate. Candidates join in {@link #promote}, which the owner calls off the hot path
+ * (on a timer, before reading the members); until then offer keeps returning null for them.
+ *
+ * @param <V> what is kept per member, e.g. the metric attributes of a code
+ */
+public final class TopKTracker<V> {
+
+    private final int k;
+    private final int maxCandidates;
+    private final CountMinSketch sketch;
+    private final Function<String, V> valueFactory;
+    private final Map<String, V> members = new ConcurrentHashMap<>();
+
+    // Keys that beat the threshold since the last promote; once full, the rest retry on their next offer
+    private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+
+    // Estimate a newcomer must exceed to take a place once the set is full
+    private volatile long threshold;
+
+    public TopKTracker(int k, CountMinSketch sketch, Function<String, V> valueFactory) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        this.maxCandidates = 4 * k;
+        this.sketch = sketch;
+        this.valueFactory = valueFactory;
+    }
+
+    /** Counts one occurrence of key; returns its value if key is a member, else null. */
+    public V offer(String key) {
+        long estimate = sketch.add(key, 1);
+        V value = members.get(key);
+        if (value == null && estimate > threshold && !candidates.contains(key) && candidates.size() < maxCandidates) {
+            candidates.add(key);
+        }
+        return value;
+    }
+
+    /**
+     * Lets the candidates noted since the last call in, each displacing the weakest member if its
+     * estimate is higher, and raises the threshold to the new weakest member. O((k + candidates)
+     * log k), so call it from a timer or a reader, never per event.
+     */
+    public synchronized void promote() {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        PriorityQueue<Ranked> weakest = new PriorityQueue<>(k + 1, Comparator.comparingLong(ranked -> ranked.estimate));
+        for (String member : members.keySet()) {
+            weakest.add(new Ranked(member, sketch.estimate(member)));
+        }
+        for (Iterator<String> it = candidates.iterator(); it.hasNext(); ) {
+            String key = it.next();
+            it.remove();
+            if (members.containsKey(key)) {
+                continue;
+            }
+            long estimate = sketch.estimate(key);
+            if (weakest.size() >= k) {
+                if (estimate <= weakest.peek().estimate) {
+                    continue;
+                }
+                members.remove(weakest.poll().key);
+            }
+            members.put(key, valueFactory.apply(key));
+            weakest.add(new Ranked(key, estimate));
+        }
+        threshold = weakest.size() >= k ? weakest.peek().estimate : 0;
+    }
+
+    /** Ages every count by half; members stay until a newcomer outgrows them. */
+    public synchronized void decay() {
+        sketch.halve();
+        threshold = threshold >>> 1;
+    }
+
+    /** Sketch estimate of key, member or not. */
+    public long estimate(String key) {
+        return sketch.estimate(key);
+    }
+
+    /** Live view of the current members; call {@link #promote} first for an up to date set. */
+    public Set<String> members() {
+        return members.keySet();
+    }
+
+    public boolean isMember(String key) {
+        return members.containsKey(key);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    private static final class Ranked {
+        final String key;
+        final long estimate;
+
+        Ranked(String key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.melishorturlapi.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundRefreshLoaderTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Map<String, String> source = new HashMap<>();
+    private final BackgroundRefreshLoader<String> loader =
+        new BackgroundRefreshLoader<>(key -> Mono.justOrEmpty(source.get(key)));
+    private final LoadingCache<Object, Object> cache = Caffeine.newBuilder()
+        .refreshAfterWrite(Duration.ofSeconds(60))
+        .executor(Runnable::run)
+        .ticker(nanos::get)
+        .build(loader);
+
+    @Test
+    void miss_isNotLoaded() {
+        source.put("abc", "v1");
+
+        assertNull(cache.get("abc"));
+        assertNull(cache.getIfPresent("abc"));
+        assertEquals(0, loader.refreshCount());
+    }
+
+    @Test
+    void staleEntry_isServedThenReplaced() {
+        cache.put("abc", "v1");
+        source.put("abc", "v2");
+        assertEquals("v1", cache.get("abc"));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertEquals("v1", cache.get("abc"));
+        assertEquals("v2", cache.getIfPresent("abc"));
+        assertEquals(1, loader.refreshCount());
+    }
+
+    @Test
+    void staleEntry_goneFromSource_isRemoved() {
+        cache.put("abc", "v1");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        cache.get("abc");
+
+        assertNull(cache.getIfPresent("abc"));
+    }
+
+    @Test
+    void failedRefresh_keepsOldValue() {
+        BackgroundRefreshLoader<String> failing = new BackgroundRefreshLoader<>(key -> Mono.error(new IllegalStateException("down")));
+        LoadingCache<Object, Object> failingCache = Caffeine.newBuilder()
+            .refreshAfterWrite(Duration.ofSeconds(60))
+            .executor(Runnable::run)
+            .ticker(nanos::get)
+            .build(failing);
+        failingCache.put("abc", "v1");
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        assertEquals("v1", failingCache.get("abc"));
+        assertEquals("v1", failingCache.getIfPresent("abc"));
+        assertTrue(failing.failureCount() >= 1);
+    }
+}
@@ -0,0 +1,117 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.config.CacheConfig;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class L1InvalidatorTest {
+
+    private final InProcessInvalidationBus bus = new InProcessInvalidationBus();
+    private final CacheManager nodeA = new ConcurrentMapCacheManager();
+    private final CacheManager nodeB = new ConcurrentMapCacheManager();
+    private final L1Invalidator invalidatorA = new L1Invalidator(bus, nodeA);
+    private final L1Invalidator invalidatorB = new L1Invalidator(bus, nodeB);
+
+    @BeforeEach
+    void setUp() {
+        invalidatorA.start();
+        invalidatorB.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        invalidatorA.stop();
+        invalidatorB.stop();
+    }
+
+    @Test
+    void publish_evictsTheKeysOnOtherNodesOnly() {
+        nodeA.getCache(CacheConfig.SHORT_URL_CACHE).put("abc", "a");
+        nodeB.getCache(CacheConfig.SHORT_URL_CACHE).put("abc", "b");
+        nodeB.getCache(CacheConfig.SHORT_URL_CACHE).put("keep", "b");
+        nodeB.getCache(CacheConfig.SHORT_URL_NEGATIVE_CACHE).put("new", Boolean.TRUE);
+        nodeB.getCache(CacheConfig.ORIGINAL_URL_CACHE).put("https://example.com/a?b=c\td", "b");
+
+        invalidatorA.publish(Map.of(
+            CacheConfig.SHORT_URL_CACHE, List.of("abc"),
+            CacheConfig.SHORT_URL_NEGATIVE_CACHE, List.of("new"),
+            CacheConfig.ORIGINAL_URL_CACHE, List.of("https://example.com/a?b=c\td"))).block();
+
+        assertNull(nodeB.getCache(CacheConfig.SHORT_URL_CACHE).get("abc"));
+        assertNull(nodeB.getCache(CacheConfig.SHORT_URL_NEGATIVE_CACHE).get("new"));
+        assertNull(nodeB.getCache(CacheConfig.ORIGINAL_URL_CACHE).get("https://example.com/a?b=c\td"));
+        assertNotNull(nodeB.getCache(CacheConfig.SHORT_URL_CACHE).get("keep"));
+        assertNotNull(nodeA.getCache(CacheConfig.SHORT_URL_CACHE).get("abc"));
+    }
+
+    @Test
+    void publish_splitsLargeBatchesAcrossMessages() {
+        List<String> codes = IntStream.range(0, 1200).mapToObj(i -> "c" + i).collect(Collectors.toList());
+        codes.forEach(code -> nodeB.getCache(CacheConfig.SHORT_URL_CACHE).put(code, code));
+
+        invalidatorA.publish(Map.of(CacheConfig.SHORT_URL_CACHE, codes)).block();
+
+        codes.forEach(code -> assertNull(nodeB.getCache(CacheConfig.SHORT_URL_CACHE).get(code)));
+    }
+
+    @Test
+    void subscribe_clearsTheL1TiersItMayHaveMissedInvalidationsFor() {
+        CacheManager nodeC = new ConcurrentMapCacheManager();
+        nodeC.getCache(CacheConfig.SHORT_URL_CACHE).put("abc", "stale");
+        L1Invalidator invalidatorC = new L1Invalidator(bus, nodeC);
+
+        invalidatorC.start();
+
+        assertNull(nodeC.getCache(CacheConfig.SHORT_URL_CACHE).get("abc"));
+        invalidatorC.stop();
+    }
+
+    @Test
+    void reconnect_clearsL1EvenWithoutSubscriptionError() {
+        Sinks.Many<Boolean> changes = Sinks.many().multicast().directBestEffort();
+        InvalidationBus reconnecting = new InvalidationBus() {
+            @Override
+            public Mono<Void> publish(String message) {
+                return bus.publish(message);
+            }
+
+            @Override
+            public Mono<Flux<String>> receive() {
+                return bus.receive();
+            }
+
+            @Override
+            public Flux<Boolean> connectionChanges() {
+                return changes.asFlux();
+            }
+        };
+        CacheManager nodeC = new ConcurrentMapCacheManager();
+        L1Invalidator invalidatorC = new L1Invalidator(reconnecting, nodeC);
+        invalidatorC.start();
+        try {
+            nodeC.getCache(CacheConfig.SHORT_URL_CACHE).put("abc", "c");
+            changes.tryEmitNext(false);
+            assertNotNull(nodeC.getCache(CacheConfig.SHORT_URL_CACHE).get("abc"), "L1 still serves while Redis is down");
+
+            changes.tryEmitNext(true);
+            assertNull(nodeC.getCache(CacheConfig.SHORT_URL_CACHE).get("abc"));
+        } finally {
+            invalidatorC.stop();
+        }
+    }
+}
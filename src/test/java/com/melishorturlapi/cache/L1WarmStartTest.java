@@ -0,0 +1,114 @@
+package com.melishorturlapi.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.melishorturlapi.config.CacheConfig;
+import com.melishorturlapi.model.ShortUrl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class L1WarmStartTest {
+
+    @TempDir
+    Path dir;
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    // Caffeine only tracks frequencies once the cache is half full, so keep it small
+    private static CacheManager node() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(CacheConfig.SHORT_URL_CACHE, Caffeine.newBuilder()
+            .expireAfter(CacheConfig.expireAfterWrite(TTL))
+            .maximumSize(1000)
+            .executor(Runnable::run)
+            .build());
+        return cacheManager;
+    }
+
+    private L1WarmStart warmStart(CacheManager cacheManager, int maxEntries, long maxAgeMinutes) {
+        return new L1WarmStart(cacheManager, mock(L1Invalidator.class), dir.resolve("l1.snapshot").toString(),
+            maxEntries, TTL.toMinutes(), maxAgeMinutes, 5000, 60);
+    }
+
+    private static ShortUrl link(int i) {
+        ShortUrl url = new ShortUrl();
+        url.setShortUrl("code" + i);
+        url.setOriginalUrl("https://www.mercadolibre.com.ar/item/MLA-" + i);
+        url.setCreatedAt(1_700_000_000_000L + i);
+        return url;
+    }
+
+    @Test
+    void snapshot_thenLoad_restoresEntriesOnAFreshNode() {
+        CacheManager before = node();
+        IntStream.range(0, 500).forEach(i -> before.getCache(CacheConfig.SHORT_URL_CACHE).put("code" + i, link(i)));
+        warmStart(before, 1000, 10).snapshot();
+
+        CacheManager after = node();
+        int loaded = warmStart(after, 1000, 10).load();
+
+        assertEquals(500, loaded);
+        ShortUrl restored = after.getCache(CacheConfig.SHORT_URL_CACHE).get("code42", ShortUrl.class);
+        assertEquals(link(42).getOriginalUrl(), restored.getOriginalUrl());
+        assertEquals(link(42).getCreatedAt(), restored.getCreatedAt());
+    }
+
+    @Test
+    void snapshot_keepsOnlyTheHottestEntries() {
+        CacheManager before = node();
+        IntStream.range(0, 800).forEach(i -> before.getCache(CacheConfig.SHORT_URL_CACHE).put("code" + i, link(i)));
+        IntStream.range(0, 20).forEach(round -> before.getCache(CacheConfig.SHORT_URL_CACHE).get("code7"));
+        warmStart(before, 10, 10).snapshot();
+
+        CacheManager after = node();
+        assertEquals(10, warmStart(after, 10, 10).load());
+        assertNotNull(after.getCache(CacheConfig.SHORT_URL_CACHE).get("code7"));
+    }
+
+    @Test
+    void load_givesWarmedEntriesOnlyWhatIsLeftOfTheTtl() throws Exception {
+        CacheManager before = node();
+        before.getCache(CacheConfig.SHORT_URL_CACHE).put("code1", link(1));
+        warmStart(before, 10, 10).snapshot();
+        // Backdate the snapshot past ttl / 2
+        Duration age = TTL.dividedBy(2).plusMinutes(1);
+        try (FileChannel channel = FileChannel.open(dir.resolve("l1.snapshot"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer writtenAt = ByteBuffer.allocate(Long.BYTES);
+            channel.read(writtenAt, 8);
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, writtenAt.getLong(0) - age.toMillis()), 8);
+        }
+
+        CacheManager after = node();
+        assertEquals(1, warmStart(after, 10, 10).load());
+
+        Duration expiresAfter = ((CaffeineCache) after.getCache(CacheConfig.SHORT_URL_CACHE)).getNativeCache()
+            .policy().expireVariably().orElseThrow().getExpiresAfter("code1").orElseThrow();
+        assertTrue(expiresAfter.compareTo(TTL.minus(age)) <= 0, "Warmed entry outlives its snapshot: " + expiresAfter);
+    }
+
+    @Test
+    void load_ignoresSnapshotsOlderThanMaxAgeAndCorruptFiles() throws Exception {
+        CacheManager before = node();
+        before.getCache(CacheConfig.SHORT_URL_CACHE).put("code1", link(1));
+        warmStart(before, 10, 10).snapshot();
+
+        assertEquals(0, warmStart(node(), 10, 0).load());
+
+        Files.write(dir.resolve("l1.snapshot"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20});
+        assertEquals(0, warmStart(node(), 10, 10).load());
+    }
+}
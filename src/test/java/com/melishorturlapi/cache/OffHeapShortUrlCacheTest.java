@@ -0,0 +1,123 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.service.Base62;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapShortUrlCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private OffHeapCodeStore store(long maxEntries, long arenaBytes) {
+        return new OffHeapCodeStore(maxEntries, arenaBytes, 4, TimeUnit.MINUTES.toMillis(10), now::get);
+    }
+
+    private static ShortUrl link(String code) {
+        ShortUrl url = new ShortUrl();
+        url.setShortUrl(code);
+        url.setOriginalUrl("https://www.mercadolibre.com.ar/item/" + code);
+        url.setCreatedAt(1_700_000_000_000L);
+        return url;
+    }
+
+    @Test
+    void pack_keepsLengthSoPaddedCodesStayDistinct() {
+        assertEquals(61, Base62.decode("z"));
+        assertEquals(Base62.decode("00z"), Base62.decode("z"));
+        assertNotEquals(OffHeapShortUrlCache.pack("00z"), OffHeapShortUrlCache.pack("z"));
+        assertEquals(0, OffHeapShortUrlCache.pack("with-dash"));
+        assertEquals(0, OffHeapShortUrlCache.pack("ABCDEFGHIJK"));
+        assertNotEquals(0, OffHeapShortUrlCache.pack("zzzzzzzzzz"));
+    }
+
+    @Test
+    void cache_roundTripsPackedCodesAndRoutesOthersToFallback() {
+        ConcurrentMapCache fallback = new ConcurrentMapCache("fallback");
+        OffHeapShortUrlCache cache = new OffHeapShortUrlCache("shortUrlCache", store(1000, 1 << 20), fallback);
+
+        cache.put("Ab3dE9x", link("Ab3dE9x"));
+        cache.put("custom-code", link("custom-code"));
+
+        ShortUrl hit = cache.get("Ab3dE9x", ShortUrl.class);
+        assertEquals("https://www.mercadolibre.com.ar/item/Ab3dE9x", hit.getOriginalUrl());
+        assertEquals(1_700_000_000_000L, hit.getCreatedAt());
+        assertNull(fallback.get("Ab3dE9x"));
+        assertNotNull(fallback.get("custom-code"));
+        assertEquals("custom-code", cache.get("custom-code", ShortUrl.class).getShortUrl());
+
+        cache.evict("Ab3dE9x");
+        assertNull(cache.get("Ab3dE9x"));
+        cache.clear();
+        assertNull(cache.get("custom-code"));
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    void store_expiresEntriesAfterTtl() {
+        OffHeapCodeStore store = store(1000, 1 << 20);
+        store.put(42, "v".getBytes(StandardCharsets.UTF_8));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(9));
+        assertNotNull(store.get(42));
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(2));
+        assertNull(store.get(42));
+    }
+
+    @Test
+    void store_overwritesAndResetsFullSegments() {
+        OffHeapCodeStore store = store(64, 4096);
+        store.put(7, "old".getBytes(StandardCharsets.UTF_8));
+        store.put(7, "new".getBytes(StandardCharsets.UTF_8));
+        assertEquals("new", new String(store.get(7), StandardCharsets.UTF_8));
+        assertEquals(1, store.size());
+
+        IntStream.rangeClosed(1, 5000).forEach(i -> store.put(i, new byte[16]));
+
+        assertTrue(store.resetCount() > 0);
+        assertNotNull(store.get(5000));
+        assertTrue(store.size() <= 64 * 2);
+        assertFalse(store.put(1, new byte[2048]));
+    }
+
+    @Test
+    void store_readersSeeWholeValuesWhileWritersOverwrite() throws Exception {
+        OffHeapCodeStore store = store(10_000, 1 << 20);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> writer = pool.submit(() -> {
+                for (int round = 0; round < 200; round++) {
+                    for (long key = 1; key <= 500; key++) {
+                        store.put(key, Long.toString(key * 1000 + round % 10).getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            });
+            Future<?> reader = pool.submit(() -> {
+                while (!writer.isDone()) {
+                    for (long key = 1; key <= 500; key++) {
+                        byte[] value = store.get(key);
+                        if (value != null) {
+                            long parsed = Long.parseLong(new String(value, StandardCharsets.UTF_8));
+                            assertEquals(key, parsed / 1000);
+                        }
+                    }
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RedisL2CacheTest {
+
+    @SuppressWarnings("unchecked")
+    private final ReactiveRedisTemplate<String, ShortUrl> template = mock(ReactiveRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ReactiveValueOperations<String, ShortUrl> values = mock(ReactiveValueOperations.class);
+    private final RedisL2Cache cache = new RedisL2Cache(template, template, Set.of(), 24, 30);
+
+    @BeforeEach
+    void setUp() {
+        when(template.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(any(), any(), any(Duration.class))).thenReturn(Mono.just(false));
+        when(values.set(any(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+    }
+
+    @Test
+    void putNegative_neverReplacesAnEntry() {
+        cache.putNegative("shortUrlCache", "zzz").block();
+
+        verify(values).setIfAbsent(eq("shortUrlCache::zzz"), argThat(marker -> marker.getOriginalUrl() == null), eq(Duration.ofSeconds(30)));
+        verify(values, never()).set(any(), any(), any(Duration.class));
+    }
+
+    @Test
+    void put_overwritesANegativeMarker() {
+        ShortUrl link = new ShortUrl();
+        link.setShortUrl("zzz");
+        link.setOriginalUrl("http://test.com");
+
+        cache.put("shortUrlCache", "zzz", link).block();
+
+        verify(values).set("shortUrlCache::zzz", link, Duration.ofHours(24));
+        assertFalse(RedisL2Cache.isNegative(link));
+    }
+}
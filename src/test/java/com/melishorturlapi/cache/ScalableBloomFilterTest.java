@@ -0,0 +1,61 @@
+package com.melishorturlapi.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("code" + i), "No false negatives, even across stages");
+        }
+    }
+
+    @Test
+    void growsNewStagesInsteadOfSaturating() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+
+        assertTrue(filter.stageCount() > 1, "Filter should add stages past its initial capacity");
+        // Values that already test positive are not added again, so size undercounts by about the fpp
+        assertTrue(filter.size() >= 9_700 && filter.size() <= 10_000, "Size counts distinct entries: " + filter.size());
+        assertTrue(filter.expectedFpp() < 0.02, "Combined fpp stays under twice the target: " + filter.expectedFpp());
+    }
+
+    @Test
+    void falsePositiveRateIsNearTheTarget() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("code" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+        double measured = (double) falsePositives / probes;
+        assertTrue(measured < 0.02, "Measured fpp " + measured + " should be near 0.01");
+        assertEquals(filter.expectedFpp(), measured, 0.005, "Expected fpp should track the measured one");
+    }
+
+    @Test
+    void duplicatesAreNotCountedTwice() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+        filter.add("abc123");
+        filter.add("abc123");
+
+        assertEquals(1, filter.size());
+        assertTrue(filter.bitSizeBytes() > 0);
+    }
+}
@@ -0,0 +1,38 @@
+package com.melishorturlapi.cache;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ShortCodeFilterTest {
+
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final ShortCodeFilter filter = new ShortCodeFilter(null, redisTemplate, null, null, true, 1000, 0.01, 1, Duration.ofHours(1));
+
+    @Test
+    void recordCreated_failedPublish_isSentAgainWithTheNextOne() {
+        when(redisTemplate.convertAndSend(eq(ShortCodeFilter.CODES_CHANNEL), anyString()))
+            .thenReturn(Mono.error(new RedisConnectionFailureException("down")), Mono.just(1L));
+
+        // Never fails the create
+        assertNull(filter.recordCreated("aaa").block());
+        assertNull(filter.recordCreated(List.of("bbb", "ccc")).block());
+
+        verify(redisTemplate, times(2)).convertAndSend(ShortCodeFilter.CODES_CHANNEL, "aaa");
+        verify(redisTemplate).convertAndSend(ShortCodeFilter.CODES_CHANNEL, "bbb\nccc");
+    }
+
+    @Test
+    void mightExist_untilLoaded_answersMaybe() {
+        assertTrue(filter.mightExist("never-issued"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.melishorturlapi.cache;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortUrlRedisCodecTest {
+
+    private final ShortUrlRedisCodec binary = new ShortUrlRedisCodec(true);
+    private final ShortUrlRedisCodec json = new ShortUrlRedisCodec(false);
+
+    private static ShortUrl link() {
+        ShortUrl url = new ShortUrl();
+        url.setShortUrl("Ab3dE9x");
+        url.setOriginalUrl("https://www.mercadolibre.com.ar/item/MLA-123456?ref=ñandú");
+        url.setCreatedAt(1_700_000_000_000L);
+        url.setRedirectCount(42L);
+        return url;
+    }
+
+    @Test
+    void binary_roundTripsEveryField() {
+        byte[] bytes = binary.serialize(link());
+
+        assertEquals(ShortUrlRedisCodec.MAGIC, bytes[0]);
+        assertLink(binary.deserialize(bytes));
+    }
+
+    @Test
+    void binary_isSmallerThanJson() {
+        assertTrue(binary.serialize(link()).length * 2 < json.serialize(link()).length);
+    }
+
+    @Test
+    void negativeMarker_keepsNoOriginalUrl() {
+        ShortUrl negative = new ShortUrl();
+        negative.setShortUrl("zzz");
+
+        ShortUrl decoded = binary.deserialize(binary.serialize(negative));
+
+        assertEquals("zzz", decoded.getShortUrl());
+        assertNull(decoded.getOriginalUrl());
+        assertNull(decoded.getCreatedAt());
+    }
+
+    @Test
+    void bothCodecs_readBothLayouts() {
+        byte[] legacy = new GenericJackson2JsonRedisSerializer().serialize(link());
+
+        assertLink(binary.deserialize(legacy));
+        assertLink(json.deserialize(legacy));
+        assertLink(json.deserialize(binary.serialize(link())));
+    }
+
+    @Test
+    void unknownVersion_isRejected() {
+        byte[] bytes = binary.serialize(link());
+        bytes[1] = 99;
+
+        assertThrows(SerializationException.class, () -> binary.deserialize(bytes));
+    }
+
+    private static void assertLink(ShortUrl decoded) {
+        ShortUrl expected = link();
+        assertEquals(expected.getShortUrl(), decoded.getShortUrl());
+        assertEquals(expected.getOriginalUrl(), decoded.getOriginalUrl());
+        assertEquals(expected.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(expected.getRedirectCount(), decoded.getRedirectCount());
+    }
+}
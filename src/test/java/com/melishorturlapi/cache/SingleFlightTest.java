@@ -0,0 +1,93 @@
+package com.melishorturlapi.cache;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        AtomicInteger loaderCalls = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+
+        Mono<String> first = singleFlight.execute("abc", () -> {
+            loaderCalls.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<String> second = singleFlight.execute("abc", () -> {
+            loaderCalls.incrementAndGet();
+            return Mono.just("other");
+        });
+
+        StepVerifier firstVerifier = StepVerifier.create(first).expectNext("value").expectComplete().verifyLater();
+        StepVerifier secondVerifier = StepVerifier.create(second).expectNext("value").expectComplete().verifyLater();
+        result.tryEmitValue("value");
+        firstVerifier.verify();
+        secondVerifier.verify();
+
+        assertEquals(1, loaderCalls.get(), "Only the first caller should run the loader");
+        assertEquals(1, singleFlight.loadCount());
+        assertEquals(1, singleFlight.coalescedCount());
+        assertEquals(0, singleFlight.inFlightCount(), "Key should be released after the load completes");
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+
+        StepVerifier.create(singleFlight.execute("a", () -> Mono.just("1"))).expectNext("1").verifyComplete();
+        StepVerifier.create(singleFlight.execute("b", () -> Mono.just("2"))).expectNext("2").verifyComplete();
+
+        assertEquals(2, singleFlight.loadCount());
+        assertEquals(0, singleFlight.coalescedCount());
+    }
+
+    @Test
+    void completedLoadIsNotReused() {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(singleFlight.execute("abc", () -> Mono.fromCallable(() -> "v" + loaderCalls.incrementAndGet())))
+                .expectNextCount(1)
+                .verifyComplete();
+        }
+
+        assertEquals(3, loaderCalls.get(), "Sequential calls should each load, nothing is cached");
+    }
+
+    @Test
+    void failedLoadReleasesKey() {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+
+        StepVerifier.create(singleFlight.execute("abc", () -> Mono.error(new RuntimeException("DB down"))))
+            .expectErrorMessage("DB down")
+            .verify();
+
+        assertEquals(0, singleFlight.inFlightCount());
+        StepVerifier.create(singleFlight.execute("abc", () -> Mono.just("ok"))).expectNext("ok").verifyComplete();
+    }
+
+    @Test
+    void emptyLoadCompletesEveryWaiter() {
+        SingleFlight<String> singleFlight = new SingleFlight<>();
+        Sinks.Empty<Void> done = Sinks.empty();
+
+        Mono<String> first = singleFlight.execute("missing", () -> done.asMono().then(Mono.empty()));
+        Mono<String> second = singleFlight.execute("missing", () -> Mono.just("unexpected"));
+
+        StepVerifier firstVerifier = StepVerifier.create(first).expectComplete().verifyLater();
+        StepVerifier secondVerifier = StepVerifier.create(second).expectComplete().verifyLater();
+        done.tryEmitEmpty();
+        firstVerifier.verify();
+        secondVerifier.verify();
+    }
+}
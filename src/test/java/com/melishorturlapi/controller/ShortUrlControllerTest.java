@@ -2,10 +2,13 @@ package com.melishorturlapi.controller;
 
 import com.melishorturlapi.config.AppConfig;
 import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.model.ShortUrlBatchResult;
 import com.melishorturlapi.model.UrlRequest;
 import com.melishorturlapi.service.MetricsService;
 import com.melishorturlapi.service.ShortUrlService;
+import com.melishorturlapi.stats.LinkStatsEngine;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -20,6 +23,8 @@ import org.mockito.quality.Strictness;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -38,6 +43,9 @@ class ShortUrlControllerTest {
     @Mock
     private MetricsService metricsService;
 
+    @Mock
+    private LinkStatsEngine linkStatsEngine;
+
     @InjectMocks
     private ShortUrlController shortUrlController;
 
@@ -48,6 +56,8 @@ class ShortUrlControllerTest {
     @BeforeEach
     void setUp() {
         when(appConfig.getBaseShortUrl()).thenReturn(BASE_URL);
+        when(appConfig.getBatchMaxSize()).thenReturn(3);
+        when(appConfig.getResolveMaxSize()).thenReturn(3);
     }
 
     @Test
@@ -56,7 +66,7 @@ class ShortUrlControllerTest {
         request.setOriginalUrl(ORIGINAL_URL);
 
         when(shortUrlService.getShortUrlByOriginalUrl(ORIGINAL_URL)).thenReturn(Mono.empty());
-        when(shortUrlService.generateShortUrl(ORIGINAL_URL)).thenReturn(SHORT_URL_CODE);
+        when(shortUrlService.generateShortUrl(ORIGINAL_URL)).thenReturn(Mono.just(SHORT_URL_CODE));
         when(shortUrlService.createShortUrl(any(ShortUrl.class))).thenAnswer(invocation -> {
             ShortUrl shortUrl = invocation.getArgument(0);
             return Mono.just(shortUrl);
@@ -195,6 +205,7 @@ class ShortUrlControllerTest {
             .verifyComplete();
         
         verify(shortUrlService).getShortUrl(SHORT_URL_CODE);
+        verify(linkStatsEngine).recordView(SHORT_URL_CODE);
     }
 
     @Test
@@ -253,7 +264,7 @@ class ShortUrlControllerTest {
         request.setOriginalUrl(urlWithSpecialChars);
 
         when(shortUrlService.getShortUrlByOriginalUrl(urlWithSpecialChars)).thenReturn(Mono.empty());
-        when(shortUrlService.generateShortUrl(urlWithSpecialChars)).thenReturn(SHORT_URL_CODE);
+        when(shortUrlService.generateShortUrl(urlWithSpecialChars)).thenReturn(Mono.just(SHORT_URL_CODE));
         when(shortUrlService.createShortUrl(any(ShortUrl.class))).thenAnswer(invocation -> {
             ShortUrl shortUrl = invocation.getArgument(0);
             return Mono.just(shortUrl);
@@ -279,7 +290,7 @@ class ShortUrlControllerTest {
         request.setOriginalUrl(longUrl);
 
         when(shortUrlService.getShortUrlByOriginalUrl(longUrl)).thenReturn(Mono.empty());
-        when(shortUrlService.generateShortUrl(longUrl)).thenReturn(SHORT_URL_CODE);
+        when(shortUrlService.generateShortUrl(longUrl)).thenReturn(Mono.just(SHORT_URL_CODE));
         when(shortUrlService.createShortUrl(any(ShortUrl.class))).thenAnswer(invocation -> {
             ShortUrl shortUrl = invocation.getArgument(0);
             return Mono.just(shortUrl);
@@ -297,4 +308,118 @@ class ShortUrlControllerTest {
         verify(shortUrlService).getShortUrlByOriginalUrl(longUrl);
         verify(shortUrlService).generateShortUrl(longUrl);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void createShortUrls_ShouldDedupValidateAndKeepInputOrder() {
+        String otherUrl = "https://www.mercadolibre.com.ar/otra";
+        when(shortUrlService.createShortUrls(List.of(ORIGINAL_URL, otherUrl))).thenReturn(Flux.just(
+            ShortUrlBatchResult.of(otherUrl, "xyz789", ShortUrlBatchResult.Status.EXISTING),
+            ShortUrlBatchResult.of(ORIGINAL_URL, SHORT_URL_CODE, ShortUrlBatchResult.Status.CREATED)));
+
+        Mono<ResponseEntity<?>> response = shortUrlController.createShortUrls(
+            Flux.just(urlRequest(ORIGINAL_URL), urlRequest("ht tp://mal"), urlRequest(otherUrl)));
+
+        StepVerifier.create(response)
+            .assertNext(resp -> {
+                assertEquals(HttpStatus.OK, resp.getStatusCode());
+                @SuppressWarnings("unchecked")
+                List<ShortUrlBatchResult> results = (List<ShortUrlBatchResult>) resp.getBody();
+                assertEquals(3, results.size());
+                assertEquals(ShortUrlBatchResult.Status.CREATED, results.get(0).getStatus());
+                assertEquals(BASE_URL + SHORT_URL_CODE, results.get(0).getShortUrl());
+                assertEquals(ShortUrlBatchResult.Status.INVALID, results.get(1).getStatus());
+                assertEquals("Formato de URL invalido", results.get(1).getError());
+                assertEquals(ShortUrlBatchResult.Status.EXISTING, results.get(2).getStatus());
+                assertEquals(BASE_URL + "xyz789", results.get(2).getShortUrl());
+            })
+            .verifyComplete();
+
+        verify(metricsService, times(1)).incrementShortUrlCreated();
+    }
+
+    @Test
+    void createShortUrls_DuplicatesInBatch_ShouldReachServiceOnce() {
+        when(shortUrlService.createShortUrls(List.of(ORIGINAL_URL))).thenReturn(Flux.just(
+            ShortUrlBatchResult.of(ORIGINAL_URL, SHORT_URL_CODE, ShortUrlBatchResult.Status.CREATED)));
+
+        Mono<ResponseEntity<?>> response = shortUrlController.createShortUrls(
+            Flux.just(urlRequest(ORIGINAL_URL), urlRequest(ORIGINAL_URL)));
+
+        StepVerifier.create(response)
+            .assertNext(resp -> {
+                List<?> results = (List<?>) resp.getBody();
+                assertEquals(2, results.size());
+                assertSame(results.get(0), results.get(1));
+            })
+            .verifyComplete();
+        verify(shortUrlService).createShortUrls(List.of(ORIGINAL_URL));
+    }
+
+    @Test
+    void createShortUrls_OverMaxSize_ShouldReturnPayloadTooLarge() {
+        Mono<ResponseEntity<?>> response = shortUrlController.createShortUrls(
+            Flux.range(0, 10).map(i -> urlRequest(ORIGINAL_URL + i)));
+
+        StepVerifier.create(response)
+            .assertNext(resp -> {
+                assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, resp.getStatusCode());
+                assertEquals("El lote supera el maximo de 3 urls", resp.getBody());
+            })
+            .verifyComplete();
+        verify(shortUrlService, never()).createShortUrls(any());
+    }
+
+    @Test
+    void createShortUrls_EmptyBatch_ShouldReturnBadRequest() {
+        StepVerifier.create(shortUrlController.createShortUrls(Flux.empty()))
+            .assertNext(resp -> {
+                assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
+                assertEquals("El lote no contiene urls", resp.getBody());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void resolveShortUrls_ShouldMapEveryCodeInInputOrder() {
+        ShortUrl found = new ShortUrl();
+        found.setShortUrl(SHORT_URL_CODE);
+        found.setOriginalUrl(ORIGINAL_URL);
+        when(shortUrlService.getShortUrls(List.of("zzz999", SHORT_URL_CODE)))
+            .thenReturn(Mono.just(java.util.Map.of(SHORT_URL_CODE, found)));
+
+        StepVerifier.create(shortUrlController.resolveShortUrls(List.of("zzz999", SHORT_URL_CODE)))
+            .assertNext(resp -> {
+                assertEquals(HttpStatus.OK, resp.getStatusCode());
+                java.util.Map<?, ?> resolved = (java.util.Map<?, ?>) resp.getBody();
+                assertEquals(List.of("zzz999", SHORT_URL_CODE), List.copyOf(resolved.keySet()));
+                assertNull(resolved.get("zzz999"));
+                assertEquals(ORIGINAL_URL, resolved.get(SHORT_URL_CODE));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void resolveShortUrls_OverMaxSize_ShouldReturnPayloadTooLarge() {
+        StepVerifier.create(shortUrlController.resolveShortUrls(List.of("a", "b", "c", "d")))
+            .assertNext(resp -> assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, resp.getStatusCode()))
+            .verifyComplete();
+        verify(shortUrlService, never()).getShortUrls(any());
+    }
+
+    @Test
+    void resolveShortUrls_NullOrBlankCode_ShouldReturnBadRequest() {
+        StepVerifier.create(shortUrlController.resolveShortUrls(java.util.Arrays.asList(SHORT_URL_CODE, null)))
+            .assertNext(resp -> assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode()))
+            .verifyComplete();
+        StepVerifier.create(shortUrlController.resolveShortUrls(List.of(" ")))
+            .assertNext(resp -> assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode()))
+            .verifyComplete();
+        verify(shortUrlService, never()).getShortUrls(any());
+    }
+
+    private static UrlRequest urlRequest(String originalUrl) {
+        UrlRequest request = new UrlRequest();
+        request.setOriginalUrl(originalUrl);
+        return request;
+    }
+}
@@ -2,7 +2,10 @@ package com.melishorturlapi.controller;
 
 import com.melishorturlapi.model.ShortUrl;
 import com.melishorturlapi.service.MetricsService;
+import com.melishorturlapi.service.RedirectCountService;
 import com.melishorturlapi.service.ShortUrlService;
+import com.melishorturlapi.stats.HotLinksTracker;
+import com.melishorturlapi.stats.LinkStatsEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +30,15 @@ class ShortUrlRedirectControllerTest {
     @Mock
     private ShortUrlService shortUrlService;
 
+    @Mock
+    private RedirectCountService redirectCountService;
+
+    @Mock
+    private LinkStatsEngine linkStatsEngine;
+
+    @Mock
+    private HotLinksTracker hotLinksTracker;
+
     @InjectMocks
     private ShortUrlRedirectController controller;
 
@@ -56,6 +68,8 @@ class ShortUrlRedirectControllerTest {
 
         verify(metricsService).incrementEndpointHit("shortUrlService", "redirectToOriginal");
         verify(metricsService).incrementRedirectCalls(SHORT_URL_CODE);
+        verify(redirectCountService).increment(SHORT_URL_CODE);
+        verify(linkStatsEngine).recordRedirect(SHORT_URL_CODE);
         verify(shortUrlService).getShortUrl(SHORT_URL_CODE);
     }
 
@@ -0,0 +1,78 @@
+package com.melishorturlapi.controller;
+
+import com.melishorturlapi.model.LinkStats;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.service.MetricsService;
+import com.melishorturlapi.service.RedirectCountService;
+import com.melishorturlapi.service.ShortUrlService;
+import com.melishorturlapi.stats.HotLinksTracker;
+import com.melishorturlapi.stats.LinkStatsEngine;
+import com.melishorturlapi.stats.StatsWindow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortUrlStatsControllerTest {
+
+    @Mock
+    private MetricsService metricsService;
+
+    @Mock
+    private LinkStatsEngine linkStatsEngine;
+
+    @Mock
+    private HotLinksTracker hotLinksTracker;
+
+    @Mock
+    private ShortUrlService shortUrlService;
+
+    @Mock
+    private RedirectCountService redirectCountService;
+
+    @InjectMocks
+    private ShortUrlStatsController controller;
+
+    private static final String SHORT_URL_CODE = "abc123";
+
+    @Test
+    void getStats_KnownCode_ShouldAddPersistedAndPendingTotal() {
+        ShortUrl shortUrl = new ShortUrl();
+        shortUrl.setShortUrl(SHORT_URL_CODE);
+        shortUrl.setRedirectCount(40L);
+        when(shortUrlService.getShortUrl(SHORT_URL_CODE)).thenReturn(Mono.just(shortUrl));
+        when(redirectCountService.pendingCount(SHORT_URL_CODE)).thenReturn(2L);
+        when(linkStatsEngine.stats(SHORT_URL_CODE, StatsWindow.HOUR))
+            .thenReturn(new LinkStats(SHORT_URL_CODE, "hour", 5, 1, true));
+
+        StepVerifier.create(controller.getStats(SHORT_URL_CODE, "hour"))
+            .assertNext(resp -> {
+                assertEquals(HttpStatus.OK, resp.getStatusCode());
+                LinkStats stats = (LinkStats) resp.getBody();
+                assertEquals(5, stats.getRedirects());
+                assertEquals(42, stats.getTotalRedirects());
+                assertTrue(stats.isTracked());
+            })
+            .verifyComplete();
+        verify(shortUrlService, never()).getShortUrlStats(any());
+    }
+
+    @Test
+    void getStats_UnknownCode_ShouldReturnNotFound() {
+        when(shortUrlService.getShortUrl("nope")).thenReturn(Mono.empty());
+
+        StepVerifier.create(controller.getStats("nope", "hour"))
+            .assertNext(resp -> assertEquals(HttpStatus.NOT_FOUND, resp.getStatusCode()))
+            .verifyComplete();
+        verifyNoInteractions(linkStatsEngine);
+    }
+}
@@ -0,0 +1,132 @@
+package com.melishorturlapi.filters;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ApiLoggingWebFilterTest {
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(ApiLoggingWebFilter.class);
+
+    @BeforeEach
+    void attachAppender() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void unsampledRoutesPassTheExchangeThroughUntouched() {
+        ApiLoggingWebFilter filter = new ApiLoggingWebFilter(0, 1, 1, 2048);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/Ab3dE9"));
+        AtomicReference<ServerWebExchange> seen = new AtomicReference<>();
+
+        filter.filter(exchange, passed -> {
+            seen.set(passed);
+            passed.getResponse().setStatusCode(HttpStatus.FOUND);
+            return passed.getResponse().setComplete();
+        }).block();
+
+        assertSame(exchange, seen.get());
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void logsCappedBodiesOfSampledCallsAndReleasesThem() {
+        ApiLoggingWebFilter filter = new ApiLoggingWebFilter(0, 1, 1, 16);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/shorturl")
+            .body("{\"url\":\"https://www.mercadolibre.com.ar/item/MLA-123456\"}"));
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+        DataBuffer response = bufferFactory.wrap("{\"shortUrl\":\"Ab3dE9\"}".getBytes(StandardCharsets.UTF_8));
+
+        WebFilterChain chain = passed -> DataBufferUtils.join(passed.getRequest().getBody())
+            .doOnNext(DataBufferUtils::release)
+            .then(passed.getResponse().writeWith(Mono.just(response)));
+        filter.filter(exchange, chain).block();
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.contains("Request Body: {\"url\":\"https://... (57 bytes)"), line);
+        assertTrue(line.contains("Response Body: {\"shortUrl\":\"Ab3... (21 bytes)"), line);
+        // The mock response keeps the written buffer; the capture's own retain is gone
+        assertEquals(1, ((NettyDataBuffer) response).getNativeBuffer().refCnt());
+    }
+
+    @Test
+    void sliceCaptureStopsAtTheLimit() {
+        ApiLoggingWebFilter.BodySlices slices = new ApiLoggingWebFilter.BodySlices(4);
+        DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+        slices.add(factory.wrap("ab".getBytes(StandardCharsets.UTF_8)));
+        slices.add(factory.wrap("cdef".getBytes(StandardCharsets.UTF_8)));
+        slices.add(factory.wrap("gh".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("abcd... (8 bytes)", slices.text());
+        slices.release();
+    }
+
+    @Test
+    void sliceTextDecodesCharactersSplitAcrossBuffers() {
+        ApiLoggingWebFilter.BodySlices slices = new ApiLoggingWebFilter.BodySlices(64);
+        DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+        byte[] body = "{\"url\":\"ñandú\"}".getBytes(StandardCharsets.UTF_8);
+        // Splits the two bytes of the ñ
+        slices.add(factory.wrap(Arrays.copyOfRange(body, 0, 9)));
+        slices.add(factory.wrap(Arrays.copyOfRange(body, 9, body.length)));
+        assertEquals("{\"url\":\"ñandú\"}", slices.text());
+        slices.release();
+
+        ApiLoggingWebFilter.BodySlices capped = new ApiLoggingWebFilter.BodySlices(9);
+        capped.add(factory.wrap(body));
+        assertEquals("{\"url\":\"... (" + body.length + " bytes)", capped.text());
+        capped.release();
+    }
+
+    @Test
+    void failedCallsAreLoggedWithTheStatusOfTheErrorResponse() {
+        ApiLoggingWebFilter filter = new ApiLoggingWebFilter(0, 1, 1, 2048);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.delete("/api/v1/shorturl/zzz"));
+
+        assertThrows(IllegalStateException.class,
+            () -> filter.filter(exchange, passed -> Mono.error(new IllegalStateException("boom"))).block());
+        assertTrue(appender.list.isEmpty(), "Logged before the error response was written");
+
+        // What the WebExceptionHandler does with the original exchange once the filters have returned
+        exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
+        exchange.getResponse().setComplete().block();
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.contains("Response Status: 500 INTERNAL_SERVER_ERROR"), line);
+        assertTrue(line.contains("Error: java.lang.IllegalStateException: boom"), line);
+    }
+}
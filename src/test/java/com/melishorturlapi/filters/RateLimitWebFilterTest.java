@@ -1,7 +1,11 @@
 package com.melishorturlapi.filters;
 
-import org.junit.jupiter.api.Disabled;
+import com.melishorturlapi.ratelimit.ClientKeyResolver;
+import com.melishorturlapi.ratelimit.RateLimiter;
+import com.melishorturlapi.service.MetricsService;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
 import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
@@ -9,39 +13,81 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class RateLimitWebFilterTest {
 
+    private final RateLimitWebFilter filter = new RateLimitWebFilter(
+        new RateLimiter(new MetricsService(100, 8192, 10, 1000), 1024, 100, 10, 10, 20, 30, 60),
+        new ClientKeyResolver(List.of("10.0.0.0/8")), true);
+
+    private final WebFilterChain chain = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return Mono.empty();
+    };
+
     @Test
-    @Disabled
     void testRateLimiting() {
-        RateLimitWebFilter filter = new RateLimitWebFilter();
-        
-        // Create a mock exchange
-        MockServerHttpRequest request = MockServerHttpRequest
-            .get("/api/v1/shorturl/view/test")
-            .remoteAddress(new InetSocketAddress("127.0.0.1", 8080))
-            .build();
-        
-        MockServerWebExchange exchange = MockServerWebExchange.from(request);
-        
-        // Mock filter chain
-        WebFilterChain chain = exchange1 -> {
-            exchange1.getResponse().setStatusCode(org.springframework.http.HttpStatus.OK);
-            return Mono.empty();
-        };
-        
-        // Send 10 requests (should succeed)
         for (int i = 0; i < 10; i++) {
-            StepVerifier.create(filter.filter(exchange, chain))
-                .verifyComplete();
+            MockServerWebExchange exchange = create("127.0.0.1", null);
+            StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        }
+
+        MockServerWebExchange limited = create("127.0.0.1", null);
+        StepVerifier.create(filter.filter(limited, chain)).verifyComplete();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+        assertNotNull(limited.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        // Other route classes and other clients keep their own limits
+        MockServerWebExchange redirect = MockServerWebExchange.from(MockServerHttpRequest.get("/Ab3dE9")
+            .remoteAddress(new InetSocketAddress("127.0.0.1", 40000)));
+        StepVerifier.create(filter.filter(redirect, chain)).verifyComplete();
+        assertEquals(HttpStatus.OK, redirect.getResponse().getStatusCode());
+
+        MockServerWebExchange otherClient = create("127.0.0.2", null);
+        StepVerifier.create(filter.filter(otherClient, chain)).verifyComplete();
+        assertEquals(HttpStatus.OK, otherClient.getResponse().getStatusCode());
+    }
+
+    @Test
+    void limitsForwardedClientBehindTrustedProxy() {
+        for (int i = 0; i < 10; i++) {
+            MockServerWebExchange exchange = create("10.1.2.3", "203.0.113.7, 10.0.0.5");
+            StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        }
+
+        // Same client through another proxy node shares the limit; a spoofed left entry does not help
+        MockServerWebExchange limited = create("10.9.9.9", "1.1.1.1, 203.0.113.7");
+        StepVerifier.create(filter.filter(limited, chain)).verifyComplete();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getResponse().getStatusCode());
+
+        MockServerWebExchange otherClient = create("10.1.2.3", "203.0.113.8");
+        StepVerifier.create(filter.filter(otherClient, chain)).verifyComplete();
+        assertEquals(HttpStatus.OK, otherClient.getResponse().getStatusCode());
+    }
+
+    @Test
+    void healthIsNotLimited() {
+        for (int i = 0; i < 200; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health")
+                .remoteAddress(new InetSocketAddress("127.0.0.1", 40000)));
+            StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+            assertNull(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        }
+    }
+
+    private static MockServerWebExchange create(String peer, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/api/v1/shorturl")
+            .remoteAddress(new InetSocketAddress(peer, 40000));
+        if (forwardedFor != null) {
+            request.header(ClientKeyResolver.FORWARDED_FOR, forwardedFor);
         }
-        
-        // 11th request should be rate limited (429)
-        StepVerifier.create(filter.filter(exchange, chain))
-            .verifyComplete();
-        
-        // Verify the response status is 429
-        assert exchange.getResponse().getStatusCode() == org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+        return MockServerWebExchange.from(request);
     }
-} 
\ No newline at end of file
+}
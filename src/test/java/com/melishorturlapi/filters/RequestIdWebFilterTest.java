@@ -0,0 +1,68 @@
+package com.melishorturlapi.filters;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Scope;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestIdWebFilterTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final RequestIdWebFilter filter = new RequestIdWebFilter();
+
+    @Test
+    void generatesTimeOrderedIdAndPropagatesIt() {
+        AtomicReference<String> seen = new AtomicReference<>();
+        WebFilterChain chain = exchange -> Mono.deferContextual(context -> {
+            seen.set(context.get(RequestIdWebFilter.REQUEST_ID_KEY));
+            return Mono.empty();
+        });
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/Ab3dE9"));
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        String requestId = exchange.getResponse().getHeaders().getFirst(RequestIdWebFilter.REQUEST_ID_HEADER);
+        assertEquals(seen.get(), requestId);
+        assertEquals(RequestIds.LENGTH, requestId.length());
+        assertTrue(requestId.matches("[0-7][0-9A-HJKMNP-TV-Z]{25}"), requestId);
+    }
+
+    @Test
+    void keepsCallerIdAndReusesTraceId() {
+        WebFilterChain chain = exchange -> Mono.empty();
+        MockServerWebExchange withHeader = MockServerWebExchange.from(MockServerHttpRequest.get("/Ab3dE9")
+            .header(RequestIdWebFilter.REQUEST_ID_HEADER, "caller-id"));
+        StepVerifier.create(filter.filter(withHeader, chain)).verifyComplete();
+        assertEquals("caller-id", withHeader.getResponse().getHeaders().getFirst(RequestIdWebFilter.REQUEST_ID_HEADER));
+
+        SpanContext span = SpanContext.create(TRACE_ID, "00f067aa0ba902b7", TraceFlags.getSampled(), TraceState.getDefault());
+        MockServerWebExchange traced = MockServerWebExchange.from(MockServerHttpRequest.get("/Ab3dE9"));
+        try (Scope ignored = Span.wrap(span).makeCurrent()) {
+            StepVerifier.create(filter.filter(traced, chain)).verifyComplete();
+        }
+        assertEquals(TRACE_ID, traced.getResponse().getHeaders().getFirst(RequestIdWebFilter.REQUEST_ID_HEADER));
+    }
+
+    @Test
+    void ulidsSortByMillisecond() {
+        long now = RequestIds.currentMillis();
+        String earlier = RequestIds.ulid(now);
+        String later = RequestIds.ulid(now + 1);
+        assertTrue(earlier.compareTo(later) < 0, earlier + " / " + later);
+        assertEquals(earlier.substring(0, 10), RequestIds.ulid(now).substring(0, 10));
+        assertTrue(Math.abs(now - System.currentTimeMillis()) < 1000);
+    }
+}
@@ -0,0 +1,93 @@
+package com.melishorturlapi.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+class LogSamplerTest {
+
+    @AfterEach
+    void restoreDefaults() {
+        List.of("test-burst", "test-silenced", "test-later").forEach(LogSampler::remove);
+        LogSampler.configure(name -> LogSampler.DEFAULT_PER_SECOND);
+    }
+
+    @Test
+    void allowsOneSecondBurstThenSuppresses() {
+        LogSampler.Category category = LogSampler.category("test-burst");
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (category.tryAcquire()) {
+                allowed++;
+            }
+        }
+        // A slow run may refill a token or two along the way
+        assertTrue(allowed >= 10 && allowed <= 12, "allowed " + allowed);
+        assertEquals(100 - allowed, category.suppressed());
+    }
+
+    @Test
+    void configureAppliesPerCategoryRates() {
+        LogSampler.Category silenced = LogSampler.category("test-silenced");
+        LogSampler.configure(name -> name.equals("test-silenced") ? 0 : 1000);
+        LogSampler.Category later = LogSampler.category("test-later");
+
+        assertFalse(silenced.tryAcquire());
+        int allowed = 0;
+        for (int i = 0; i < 500; i++) {
+            if (later.tryAcquire()) {
+                allowed++;
+            }
+        }
+        assertEquals(500, allowed);
+    }
+
+    @Test
+    void asyncAppenderCountsWhatItDrops() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AppenderBase<ILoggingEvent> stuck = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        LoggerContext context = new LoggerContext();
+        stuck.setContext(context);
+        stuck.start();
+        DroppingAsyncAppender appender = new DroppingAsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(4);
+        appender.setDiscardingThreshold(0);
+        appender.setNeverBlock(true);
+        appender.addAppender(stuck);
+        appender.start();
+
+        long before = DroppingAsyncAppender.dropped();
+        for (int i = 0; i < 20; i++) {
+            appender.doAppend(new LoggingEvent("test", context.getLogger("test"), Level.WARN, "line " + i, null, null));
+        }
+        // One event in the stuck worker, four queued, the rest dropped
+        long dropped = DroppingAsyncAppender.dropped() - before;
+        assertTrue(dropped >= 15 && dropped <= 16, "dropped " + dropped);
+
+        release.countDown();
+        appender.stop();
+    }
+}
@@ -0,0 +1,58 @@
+package com.melishorturlapi.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+class ClientKeyResolverTest {
+
+    private final ClientKeyResolver resolver = new ClientKeyResolver(List.of("10.0.0.0/8", " 192.168.1.1 ", "fd00::/8"));
+
+    @Test
+    void parsesIpv4InPlace() {
+        assertEquals(0xCB007107L, ClientKeyResolver.parseIpv4("203.0.113.7", 0, 11));
+        assertEquals(0x7F000001L, ClientKeyResolver.parseIpv4("x127.0.0.1:8080", 1, 15));
+        assertEquals(-1, ClientKeyResolver.parseIpv4("256.0.0.1", 0, 9));
+        assertEquals(-1, ClientKeyResolver.parseIpv4("1.2.3", 0, 5));
+        assertEquals(-1, ClientKeyResolver.parseIpv4("fd00::1", 0, 7));
+    }
+
+    @Test
+    void believesForwardedForOnlyFromTrustedProxies() {
+        long direct = resolver.clientKey(request("203.0.113.7", null));
+
+        // Behind trusted hops the rightmost untrusted entry is the client, whatever it prepended
+        assertEquals(direct, resolver.clientKey(request("10.0.0.1", "203.0.113.7")));
+        assertEquals(direct, resolver.clientKey(request("10.0.0.1", "6.6.6.6, 203.0.113.7 , 192.168.1.1,10.2.2.2")));
+        assertEquals(direct, resolver.clientKey(request("fd00::5", "203.0.113.7, fd00::9")));
+
+        // An untrusted peer cannot pick its identity
+        assertNotEquals(direct, resolver.clientKey(request("198.51.100.1", "203.0.113.7")));
+        assertEquals(resolver.clientKey(request("198.51.100.1", null)),
+            resolver.clientKey(request("198.51.100.1", "203.0.113.7")));
+
+        // Every hop trusted: the leftmost one
+        assertEquals(resolver.clientKey(request("10.0.0.7", null)), resolver.clientKey(request("10.0.0.1", "10.0.0.7, 10.0.0.8")));
+    }
+
+    @Test
+    void rejectsInvalidTrustedProxies() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientKeyResolver(List.of("10.0.0.0/33")));
+        assertThrows(IllegalArgumentException.class, () -> new ClientKeyResolver(List.of("proxy.internal")));
+    }
+
+    private static MockServerHttpRequest request(String peer, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/Ab3dE9")
+            .remoteAddress(new InetSocketAddress(peer, 40000));
+        if (forwardedFor != null) {
+            request.header(ClientKeyResolver.FORWARDED_FOR, forwardedFor);
+        }
+        return request.build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.melishorturlapi.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(Duration.ofHours(1).toNanos());
+
+    @Test
+    void allowsBurstThenRefillsEvenly() {
+        RateLimiter limiter = limiter(1024);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire(RouteClass.CREATE, 7));
+        }
+        long wait = limiter.tryAcquire(RouteClass.CREATE, 7);
+        assertEquals(Duration.ofSeconds(2).toNanos(), wait);
+
+        // Other route classes of the same client are separate
+        assertEquals(0, limiter.tryAcquire(RouteClass.REDIRECT, 7));
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire(RouteClass.CREATE, 7));
+        assertTrue(limiter.tryAcquire(RouteClass.CREATE, 7) > 0);
+    }
+
+    @Test
+    void idleClientsFreeTheirSlots() {
+        RateLimiter limiter = limiter(16);
+        for (long client = 1; client <= 16; client++) {
+            assertEquals(0, limiter.tryAcquire(RouteClass.CREATE, client));
+        }
+        now.addAndGet(Duration.ofSeconds(3).toNanos());
+        for (long client = 100; client < 116; client++) {
+            assertEquals(0, limiter.tryAcquire(RouteClass.CREATE, client));
+        }
+        assertEquals(0, limiter.table().evictions());
+    }
+
+    @Test
+    void fullTableEvictsInsteadOfGrowing() {
+        RateLimiter limiter = limiter(16);
+        for (long client = 1; client <= 1000; client++) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(0, limiter.tryAcquire(RouteClass.CREATE, client));
+            }
+        }
+        ClientRateTable table = limiter.table();
+        assertEquals(16, table.capacity());
+        assertEquals(16, table.activeClients(now.get()));
+        assertTrue(table.evictions() >= 1000 - 16);
+    }
+
+    private RateLimiter limiter(int maxClients) {
+        RateLimiter limiter = new RateLimiter(null, maxClients, now::get);
+        limiter.limit(RouteClass.REDIRECT, 100, Duration.ofSeconds(10));
+        limiter.limit(RouteClass.CREATE, 10, Duration.ofSeconds(20));
+        limiter.limit(RouteClass.ADMIN, 30, Duration.ofSeconds(60));
+        return limiter;
+    }
+}
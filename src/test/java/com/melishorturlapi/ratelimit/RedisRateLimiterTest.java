@@ -0,0 +1,109 @@
+package com.melishorturlapi.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import reactor.core.publisher.Flux;
+
+class RedisRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ReactiveStringRedisTemplate redisTemplate = mock(ReactiveStringRedisTemplate.class);
+    private final RedisRateLimiter limiter = new RedisRateLimiter(localLimiter(), redisTemplate, null, 1024, 5, 1000, 50, 5000, now::get);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void leasesBatchesForHotClientsOnly() {
+        when(redisTemplate.execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), anyList()))
+            .thenReturn(Flux.just(1L), Flux.just(5L));
+
+        // First request of a client takes a single token
+        assertEquals(RedisRateLimiter.ASK_REDIS, limiter.tryAcquire(RouteClass.REDIRECT, 7));
+        assertEquals(0, limiter.acquireRemote(RouteClass.REDIRECT, 7).block());
+
+        // Then a batch, four of which are served without Redis
+        assertEquals(RedisRateLimiter.ASK_REDIS, limiter.tryAcquire(RouteClass.REDIRECT, 7));
+        assertEquals(0, limiter.acquireRemote(RouteClass.REDIRECT, 7).block());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0, limiter.tryAcquire(RouteClass.REDIRECT, 7));
+        }
+        assertEquals(RedisRateLimiter.ASK_REDIS, limiter.tryAcquire(RouteClass.REDIRECT, 7));
+
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(2)).execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), args.capture());
+        assertEquals("1", args.getAllValues().get(0).get(2));
+        assertEquals("5", args.getAllValues().get(1).get(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void givesBackUnusedTokensAndStopsPrefetchingForSlowClients() {
+        when(redisTemplate.execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), anyList()))
+            .thenReturn(Flux.just(1L), Flux.just(5L), Flux.just(1L));
+
+        // Hot enough for a batch, but only one of its five tokens is used before the lease expires
+        assertEquals(0, limiter.acquireRemote(RouteClass.REDIRECT, 7).block());
+        assertEquals(0, limiter.acquireRemote(RouteClass.REDIRECT, 7).block());
+        now.addAndGet(1000);
+        assertEquals(RedisRateLimiter.ASK_REDIS, limiter.tryAcquire(RouteClass.REDIRECT, 7));
+
+        // The next call returns the four left over and asks for one token only
+        assertEquals(0, limiter.acquireRemote(RouteClass.REDIRECT, 7).block());
+
+        ArgumentCaptor<List<String>> args = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(3)).execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), args.capture());
+        assertEquals(List.of("5", "0"), args.getAllValues().get(1).subList(2, 4));
+        assertEquals(List.of("1", "4"), args.getAllValues().get(2).subList(2, 4));
+    }
+
+    @Test
+    void remembersRefusalsUntilATokenIsDue() {
+        when(redisTemplate.execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), anyList())).thenReturn(Flux.just(-1500L));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1500), limiter.acquireRemote(RouteClass.CREATE, 7).block());
+        now.addAndGet(500);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), limiter.tryAcquire(RouteClass.CREATE, 7));
+        now.addAndGet(1000);
+        assertEquals(RedisRateLimiter.ASK_REDIS, limiter.tryAcquire(RouteClass.CREATE, 7));
+        verify(redisTemplate, times(1)).execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), anyList());
+    }
+
+    @Test
+    void fallsBackToLocalLimitsWhileRedisIsSlow() {
+        when(redisTemplate.execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), anyList())).thenReturn(Flux.never());
+
+        // Local create limit is 10 per 20s; the timed out call used the first of them
+        assertEquals(0, limiter.acquireRemote(RouteClass.CREATE, 7).block(Duration.ofSeconds(5)));
+        for (int i = 0; i < 9; i++) {
+            assertEquals(0, limiter.tryAcquire(RouteClass.CREATE, 7));
+        }
+        assertTrue(limiter.tryAcquire(RouteClass.CREATE, 7) > 0);
+
+        now.addAndGet(5000);
+        assertEquals(RedisRateLimiter.ASK_REDIS, limiter.tryAcquire(RouteClass.CREATE, 8));
+        verify(redisTemplate, times(1)).execute(eq(RedisRateLimiter.TOKEN_BUCKET), anyList(), anyList());
+    }
+
+    private static RateLimiter localLimiter() {
+        RateLimiter limiter = new RateLimiter(null, 1024, System::nanoTime);
+        limiter.limit(RouteClass.REDIRECT, 100, Duration.ofSeconds(10));
+        limiter.limit(RouteClass.CREATE, 10, Duration.ofSeconds(20));
+        limiter.limit(RouteClass.ADMIN, 30, Duration.ofSeconds(60));
+        return limiter;
+    }
+}
@@ -0,0 +1,141 @@
+package com.melishorturlapi.repository;
+
+import com.melishorturlapi.model.ShortUrl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryPublisher;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DynamoDbAsyncShortUrlRepositoryTest {
+
+    private final DynamoDbAsyncClient client = mock(DynamoDbAsyncClient.class);
+    private final DynamoDbAsyncShortUrlRepository repository = new DynamoDbAsyncShortUrlRepository(client, 1);
+
+    private static ShortUrl link(String code) {
+        ShortUrl url = new ShortUrl();
+        url.setShortUrl(code);
+        url.setOriginalUrl("https://example.com/" + code);
+        url.setCreatedAt(1_700_000_000_000L);
+        url.setRedirectCount(0L);
+        return url;
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    @Test
+    void findByShortUrl_getsTheItemByItsHashKey() {
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+            GetItemResponse.builder().item(ShortUrlItemMapper.toItem(link("abc"))).build()));
+
+        assertEquals("https://example.com/abc", repository.findByShortUrl("abc").block().getOriginalUrl());
+
+        ArgumentCaptor<GetItemRequest> request = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(client).getItem(request.capture());
+        assertEquals("ShortUrls", request.getValue().tableName());
+        assertEquals(Map.of("ShortUrl", s("abc")), request.getValue().key());
+    }
+
+    @Test
+    void findByShortUrl_missingItem_completesEmpty() {
+        when(client.getItem(any(GetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(GetItemResponse.builder().build()));
+
+        assertNull(repository.findByShortUrl("abc").block());
+    }
+
+    @Test
+    void findByOriginalUrlHash_queriesTheIndexOnItsHashKey() {
+        when(client.queryPaginator(any(QueryRequest.class))).thenAnswer(call -> new QueryPublisher(client, call.getArgument(0)));
+        when(client.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+            QueryResponse.builder().items(List.of(ShortUrlItemMapper.toItem(link("abc")))).build()));
+        String hash = ShortUrl.hashOriginalUrl("https://example.com/abc");
+
+        List<ShortUrl> found = repository.findByOriginalUrlHash(hash).collectList().block();
+
+        assertEquals(List.of("abc"), found.stream().map(ShortUrl::getShortUrl).collect(Collectors.toList()));
+        ArgumentCaptor<QueryRequest> request = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(client).query(request.capture());
+        assertEquals("ShortUrls", request.getValue().tableName());
+        assertEquals("OriginalUrlHashIndex", request.getValue().indexName());
+        assertEquals("OriginalUrlHash = :h", request.getValue().keyConditionExpression());
+        assertEquals(Map.of(":h", s(hash)), request.getValue().expressionAttributeValues());
+    }
+
+    @Test
+    void saveAll_writesChunksOf25AndRetriesUnprocessedItems() {
+        List<ShortUrl> urls = IntStream.range(0, 30).mapToObj(i -> link("c" + i)).collect(Collectors.toList());
+        WriteRequest unprocessed = WriteRequest.builder()
+            .putRequest(p -> p.item(ShortUrlItemMapper.toItem(urls.get(0)))).build();
+        when(client.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(
+            CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+                .unprocessedItems(Map.of("ShortUrls", List.of(unprocessed))).build()),
+            CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build()));
+
+        assertEquals(30, repository.saveAll(urls).count().block());
+
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(client, times(3)).batchWriteItem(requests.capture());
+        List<Integer> sizes = new ArrayList<>();
+        requests.getAllValues().forEach(request -> sizes.add(request.requestItems().get("ShortUrls").size()));
+        assertEquals(List.of(25, 1, 5), sizes);
+        assertEquals(ShortUrlItemMapper.toItem(urls.get(0)),
+            requests.getAllValues().get(1).requestItems().get("ShortUrls").get(0).putRequest().item());
+    }
+
+    @Test
+    void findAllByShortUrl_batchGetsTheHashKeys() {
+        when(client.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(CompletableFuture.completedFuture(
+            BatchGetItemResponse.builder().responses(Map.of("ShortUrls", List.of(ShortUrlItemMapper.toItem(link("abc"))))).build()));
+
+        List<ShortUrl> found = repository.findAllByShortUrl(List.of("abc", "xyz")).collectList().block();
+
+        assertEquals(1, found.size());
+        ArgumentCaptor<BatchGetItemRequest> request = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(client).batchGetItem(request.capture());
+        assertEquals(List.of(Map.of("ShortUrl", s("abc")), Map.of("ShortUrl", s("xyz"))),
+            request.getValue().requestItems().get("ShortUrls").keys());
+    }
+
+    @Test
+    void addRedirectCount_addsOnlyToExistingItems() {
+        CompletableFuture<UpdateItemResponse> deleted = new CompletableFuture<>();
+        deleted.completeExceptionally(ConditionalCheckFailedException.builder().message("deleted").build());
+        when(client.updateItem(any(UpdateItemRequest.class))).thenReturn(deleted);
+
+        assertNull(repository.addRedirectCount("abc", 3).block());
+
+        ArgumentCaptor<UpdateItemRequest> request = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(client).updateItem(request.capture());
+        assertEquals(Map.of("ShortUrl", s("abc")), request.getValue().key());
+        assertEquals("ADD RedirectCount :d", request.getValue().updateExpression());
+        assertEquals("attribute_exists(ShortUrl)", request.getValue().conditionExpression());
+        assertEquals("3", request.getValue().expressionAttributeValues().get(":d").n());
+    }
+}
@@ -0,0 +1,85 @@
+package com.melishorturlapi.repository;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.melishorturlapi.model.ShortUrl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ShortUrlItemMapperTest {
+
+    private static ShortUrl link() {
+        ShortUrl url = new ShortUrl();
+        url.setShortUrl("Ab3dE9x");
+        url.setOriginalUrl("https://www.mercadolibre.com.ar/item/MLA-123456?ref=ñandú");
+        url.setCreatedAt(1_700_000_000_000L);
+        url.setRedirectCount(42L);
+        return url;
+    }
+
+    @Test
+    void roundTripsEveryField() {
+        ShortUrl decoded = ShortUrlItemMapper.fromItem(ShortUrlItemMapper.toItem(link()));
+
+        ShortUrl expected = link();
+        assertEquals(expected.getShortUrl(), decoded.getShortUrl());
+        assertEquals(expected.getOriginalUrl(), decoded.getOriginalUrl());
+        assertEquals(expected.getOriginalUrlHash(), decoded.getOriginalUrlHash());
+        assertEquals(expected.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(expected.getRedirectCount(), decoded.getRedirectCount());
+    }
+
+    @Test
+    void nullFields_areLeftOutAndReadBackAsNull() {
+        ShortUrl url = new ShortUrl();
+        url.setShortUrl("zzz");
+
+        Map<String, AttributeValue> item = ShortUrlItemMapper.toItem(url);
+        ShortUrl decoded = ShortUrlItemMapper.fromItem(item);
+
+        assertEquals(Map.of("ShortUrl", AttributeValue.builder().s("zzz").build()), item);
+        assertEquals("zzz", decoded.getShortUrl());
+        assertNull(decoded.getOriginalUrl());
+        assertNull(decoded.getOriginalUrlHash());
+        assertNull(decoded.getCreatedAt());
+        assertNull(decoded.getRedirectCount());
+    }
+
+    @Test
+    void writesTheItemDynamoDBMapperWrites() {
+        Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> v1 = new DynamoDBMapper(mock(AmazonDynamoDB.class))
+            .getTableModel(ShortUrl.class).convert(link());
+        Map<String, AttributeValue> v2 = ShortUrlItemMapper.toItem(link());
+
+        assertEquals(v1.keySet(), v2.keySet());
+        v1.forEach((name, value) -> {
+            assertEquals(value.getS(), v2.get(name).s(), name);
+            assertEquals(value.getN(), v2.get(name).n(), name);
+        });
+    }
+
+    @Test
+    void readsTheItemDynamoDBMapperWrites() {
+        ShortUrl url = link();
+        url.setRedirectCount(null);
+        Map<String, AttributeValue> v2 = new HashMap<>();
+        new DynamoDBMapper(mock(AmazonDynamoDB.class)).getTableModel(ShortUrl.class).convert(url)
+            .forEach((name, value) -> v2.put(name, value.getN() != null
+                ? AttributeValue.builder().n(value.getN()).build()
+                : AttributeValue.builder().s(value.getS()).build()));
+
+        ShortUrl decoded = ShortUrlItemMapper.fromItem(v2);
+
+        assertEquals(url.getOriginalUrlHash(), decoded.getOriginalUrlHash());
+        assertEquals(url.getCreatedAt(), decoded.getCreatedAt());
+        assertNull(decoded.getRedirectCount());
+    }
+}
@@ -0,0 +1,40 @@
+package com.melishorturlapi.service;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsServiceTest {
+
+    private static final AttributeKey<String> SHORT_URL = AttributeKey.stringKey("shortUrl");
+
+    @Test
+    void codeSeries_reusesIssuedSetsAndCapsNewOnes() {
+        MetricsService.CodeSeries series = new MetricsService.CodeSeries(2);
+        Attributes first = series.attributes("aaa");
+        series.attributes("bbb");
+
+        assertSame(first, series.attributes("aaa"), "A code back in the top-K keeps its series");
+        assertEquals(MetricsService.OTHER_CODES, series.attributes("ccc").get(SHORT_URL));
+        assertEquals(2, series.size());
+    }
+
+    @Test
+    void codeSeries_newHotCodeGetsItsOwnSeriesAfterAReset() {
+        MetricsService.CodeSeries series = new MetricsService.CodeSeries(2);
+        Attributes kept = series.attributes("aaa");
+        series.attributes("bbb");
+        assertEquals(MetricsService.OTHER_CODES, series.attributes("ccc").get(SHORT_URL));
+
+        // bbb left the top-K during the period, aaa is still in it
+        series.reset(Set.of("aaa"));
+
+        assertEquals("ccc", series.attributes("ccc").get(SHORT_URL));
+        assertSame(kept, series.attributes("aaa"));
+        assertEquals(MetricsService.OTHER_CODES, series.attributes("ddd").get(SHORT_URL));
+    }
+}
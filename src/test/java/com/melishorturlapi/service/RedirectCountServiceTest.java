@@ -0,0 +1,75 @@
+package com.melishorturlapi.service;
+
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedirectCountServiceTest {
+
+    @Mock
+    private ReactiveShortUrlRepository shortUrlRepository;
+
+    @Mock
+    private MetricsService metricsService;
+
+    private RedirectCountService redirectCountService;
+
+    @BeforeEach
+    void setUp() {
+        when(shortUrlRepository.addRedirectCount(anyString(), anyLong())).thenReturn(Mono.empty());
+        redirectCountService = new RedirectCountService(shortUrlRepository, metricsService, 60_000, 4);
+    }
+
+    @Test
+    void flush_writesOneAddPerCodeWithItsDelta() {
+        for (int i = 0; i < 3; i++) {
+            redirectCountService.increment("abc");
+        }
+        redirectCountService.increment("xyz");
+
+        redirectCountService.flush().block();
+
+        verify(shortUrlRepository).addRedirectCount("abc", 3);
+        verify(shortUrlRepository).addRedirectCount("xyz", 1);
+        assertEquals(0, redirectCountService.pendingCount("abc"));
+    }
+
+    @Test
+    void flush_nothingNewSinceLastFlush_skipsWrite() {
+        redirectCountService.increment("abc");
+        redirectCountService.flush().block();
+        redirectCountService.flush().block();
+
+        verify(shortUrlRepository, times(1)).addRedirectCount(anyString(), anyLong());
+    }
+
+    @Test
+    void flush_failedWrite_keepsDeltaForNextFlush() {
+        when(shortUrlRepository.addRedirectCount("abc", 2)).thenReturn(Mono.error(new RuntimeException("DB down")));
+        redirectCountService.increment("abc");
+        redirectCountService.increment("abc");
+
+        redirectCountService.flush().block();
+        assertEquals(2, redirectCountService.pendingCount("abc"));
+
+        redirectCountService.increment("abc");
+        redirectCountService.flush().block();
+        verify(shortUrlRepository).addRedirectCount("abc", 3);
+        assertEquals(0, redirectCountService.pendingCount("abc"));
+    }
+}
@@ -0,0 +1,119 @@
+package com.melishorturlapi.service;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.repository.ReactiveShortUrlRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import reactor.core.publisher.Flux;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SequenceShortCodeGeneratorTest {
+
+    private static final int BLOCK_SIZE = 100;
+
+    @Mock
+    private AmazonDynamoDB amazonDynamoDB;
+
+    @Mock
+    private ReactiveShortUrlRepository shortUrlRepository;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        when(amazonDynamoDB.updateItem(any(UpdateItemRequest.class))).thenAnswer(invocation ->
+            new UpdateItemResult().withAttributes(Map.of(
+                SequenceShortCodeGenerator.SEQUENCE_VALUE,
+                new AttributeValue().withN(Long.toString(counter.addAndGet(BLOCK_SIZE))))));
+    }
+
+    @Test
+    void generate_leasesOneBlockPerBlockSizeCodes() {
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(amazonDynamoDB, shortUrlRepository, BLOCK_SIZE, 7, true, "test-key");
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 250; i++) {
+            codes.add(generator.generate("https://www.mercadolibre.com.ar/").block());
+        }
+
+        assertEquals(250, codes.size(), "Every code should be unique");
+        verify(amazonDynamoDB, times(3)).updateItem(any(UpdateItemRequest.class));
+        codes.forEach(code -> {
+            assertEquals(7, code.length());
+            assertTrue(code.matches("[0-9A-Za-z]+"), "Code should be base62");
+        });
+    }
+
+    @Test
+    void generate_withoutPermutation_encodesSequentialIds() {
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(amazonDynamoDB, shortUrlRepository, BLOCK_SIZE, 7, false, "");
+
+        assertEquals("0000000", generator.generate("https://a.com").block());
+        assertEquals("0000001", generator.generate("https://b.com").block());
+    }
+
+    @Test
+    void generateAll_replacesCodesAlreadyTaken() {
+        SequenceShortCodeGenerator generator = new SequenceShortCodeGenerator(amazonDynamoDB, shortUrlRepository, BLOCK_SIZE, 7, false, "");
+        ShortUrl hashCreated = new ShortUrl();
+        hashCreated.setShortUrl("0000001");
+        when(shortUrlRepository.findAllByShortUrl(anyCollection())).thenReturn(Flux.just(hashCreated), Flux.empty());
+
+        assertEquals(List.of("0000000", "0000003", "0000002"),
+            generator.generateAll(List.of("https://a.com", "https://b.com", "https://c.com")).block());
+        verify(shortUrlRepository).findAllByShortUrl(List.of("0000003"));
+    }
+
+    @Test
+    void permutation_isBijectiveOverTheCodeSpace() {
+        long domain = Base62.capacity(2);
+        FeistelPermutation permutation = new FeistelPermutation(domain, "test-key");
+
+        Set<Long> outputs = new HashSet<>();
+        for (long id = 0; id < domain; id++) {
+            long permuted = permutation.permute(id);
+            assertTrue(permuted >= 0 && permuted < domain, "Permuted id should stay in the domain");
+            outputs.add(permuted);
+        }
+        assertEquals(domain, outputs.size(), "Permutation should not map two ids to the same code");
+    }
+
+    @Test
+    void permutation_dependsOnKey() {
+        long domain = Base62.capacity(7);
+        FeistelPermutation first = new FeistelPermutation(domain, "key-a");
+        FeistelPermutation second = new FeistelPermutation(domain, "key-b");
+
+        assertNotEquals(first.permute(1), second.permute(1));
+    }
+
+    @Test
+    void constructor_rejectsMissingOrPlaceholderKeyWhenPermuting() {
+        assertThrows(IllegalStateException.class, () -> new SequenceShortCodeGenerator(amazonDynamoDB, shortUrlRepository, BLOCK_SIZE, 7, true, ""));
+        assertThrows(IllegalStateException.class, () -> new SequenceShortCodeGenerator(amazonDynamoDB, shortUrlRepository, BLOCK_SIZE, 7, true, "change-me"));
+        assertNotNull(new SequenceShortCodeGenerator(amazonDynamoDB, shortUrlRepository, BLOCK_SIZE, 7, false, ""));
+    }
+}
@@ -6,20 +6,27 @@ import static org.mockito.Mockito.*;
 import org.springframework.cache.CacheManager;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
 
+import com.melishorturlapi.cache.RedisL2Cache;
+import com.melishorturlapi.cache.ShortCodeFilter;
 import com.melishorturlapi.config.Resilience4jTestConfig;
 import com.melishorturlapi.model.ShortUrl;
+import com.melishorturlapi.model.ShortUrlBatchResult;
 import com.melishorturlapi.repository.ShortUrlRepository;
 
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
-@SpringBootTest
+@SpringBootTest(properties = "cache.invalidation.bus=in-process")
 @Import(Resilience4jTestConfig.class)
 class ShortUrlServiceTest {
 
@@ -35,12 +42,33 @@ class ShortUrlServiceTest {
     @MockBean(name = "caffeineCacheManager")
     private CacheManager caffeineCacheManager;
 
-    @MockBean(name = "redisCacheManager")
-    private CacheManager redisCacheManager;
+    @MockBean
+    private RedisL2Cache redisL2Cache;
 
     @MockBean
     private UrlHashService urlHashService;
 
+    @MockBean
+    private ShortCodeFilter shortCodeFilter;
+
+    @MockBean
+    private DynamoDBMapper dynamoDBMapper;
+
+    @BeforeEach
+    void setUp() {
+        when(shortCodeFilter.mightExist(any())).thenReturn(true);
+        when(shortCodeFilter.recordCreated(nullable(String.class))).thenReturn(Mono.empty());
+        when(shortCodeFilter.recordCreated(anyCollection())).thenReturn(Mono.empty());
+        when(redisL2Cache.evictAll(any(), any())).thenReturn(Mono.empty());
+        when(redisL2Cache.getAll(any(), any())).thenReturn(Mono.just(java.util.Map.of()));
+        when(redisL2Cache.putAll(any(), any())).thenReturn(Mono.empty());
+        when(redisL2Cache.putNegativeAll(any(), any())).thenReturn(Mono.empty());
+        when(redisL2Cache.get(any(), any())).thenReturn(Mono.empty());
+        when(redisL2Cache.put(any(), any(), any())).thenReturn(Mono.empty());
+        when(redisL2Cache.putNegative(any(), any())).thenReturn(Mono.empty());
+        when(redisL2Cache.evict(any(), any())).thenReturn(Mono.empty());
+    }
+
     @Test
     void circuitBreakerOpensAfterFailures() throws InterruptedException {
         ShortUrl dummy = new ShortUrl();
@@ -99,11 +127,71 @@ class ShortUrlServiceTest {
             .verifyComplete();
     }
 
+    @Test
+    void getShortUrl_unknownCode_cachesNegativeEntry() {
+        when(shortUrlRepository.findByShortUrl("zzz")).thenReturn(null);
+
+        StepVerifier.create(shortUrlService.getShortUrl("zzz"))
+            .verifyComplete();
+        verify(redisL2Cache).putNegative("shortUrlCache", "zzz");
+        verify(redisL2Cache, never()).put(eq("shortUrlCache"), eq("zzz"), any());
+    }
+
+    @Test
+    void getShortUrl_negativeL2Hit_skipsDb() {
+        when(redisL2Cache.get("shortUrlCache", "zzz")).thenReturn(Mono.just(RedisL2Cache.NEGATIVE));
+
+        StepVerifier.create(shortUrlService.getShortUrl("zzz"))
+            .verifyComplete();
+        verify(shortUrlRepository, never()).findByShortUrl("zzz");
+    }
+
+    @Test
+    void createShortUrl_overwritesNegativeEntryForCode() {
+        ShortUrl created = new ShortUrl();
+        created.setShortUrl("zzz");
+        created.setOriginalUrl("http://test.com");
+        when(shortUrlRepository.save(any())).thenReturn(created);
+
+        StepVerifier.create(shortUrlService.createShortUrl(created))
+            .expectNext(created)
+            .verifyComplete();
+        verify(redisL2Cache).put("shortUrlCache", "zzz", created);
+        verify(redisL2Cache, never()).evict("shortUrlCache", "zzz");
+        verify(shortCodeFilter).recordCreated("zzz");
+    }
+
+    @Test
+    void getShortUrl_codeNeverIssued_skipsDb() {
+        when(shortCodeFilter.mightExist("zzz")).thenReturn(false);
+
+        StepVerifier.create(shortUrlService.getShortUrl("zzz"))
+            .verifyComplete();
+        verify(shortUrlRepository, never()).findByShortUrl("zzz");
+        verify(redisL2Cache, never()).putNegative(any(), any());
+    }
+
+    @Test
+    void getShortUrl_codeFromAnotherNodeNotInFilter_resolvesFromL2() {
+        // Created on another node, whose PUBLISH of the code failed: only its L2 write landed
+        ShortUrl created = new ShortUrl();
+        created.setShortUrl("new");
+        created.setOriginalUrl("http://test.com");
+        when(shortCodeFilter.mightExist("new")).thenReturn(false);
+        when(redisL2Cache.get("shortUrlCache", "new")).thenReturn(Mono.just(created));
+
+        StepVerifier.create(shortUrlService.getShortUrl("new"))
+            .expectNext(created)
+            .verifyComplete();
+        verify(shortUrlRepository, never()).findByShortUrl("new");
+    }
+
     @Test
     void getShortUrlByOriginalUrl_fromDb() {
         ShortUrl dummy = new ShortUrl();
         dummy.setOriginalUrl("http://test.com");
-        when(shortUrlRepository.findByOriginalUrl("http://test.com")).thenReturn(dummy);
+        when(shortUrlRepository.findByOriginalUrlHash(ShortUrl.hashOriginalUrl("http://test.com")))
+            .thenReturn(java.util.List.of(dummy));
 
         StepVerifier.create(shortUrlService.getShortUrlByOriginalUrl("http://test.com"))
             .expectNext(dummy)
@@ -129,14 +217,99 @@ class ShortUrlServiceTest {
         when(shortUrlRepository.findByShortUrl("abc")).thenReturn(new ShortUrl());
         when(shortUrlRepository.findByShortUrl("abc1")).thenReturn(null);
 
-        String code = shortUrlService.generateShortUrl("http://test.com");
-        assertEquals("abc1", code);
+        StepVerifier.create(shortUrlService.generateShortUrl("http://test.com"))
+            .expectNext("abc1")
+            .verifyComplete();
+    }
+
+    @Test
+    void generateShortUrl_filterSaysAbsent_stillProbes() {
+        // The save is unconditional, so a filter false negative must not skip the collision read
+        when(urlHashService.hashUrl(anyString())).thenReturn("abc");
+        when(shortCodeFilter.mightExist("abc")).thenReturn(false);
+
+        StepVerifier.create(shortUrlService.generateShortUrl("http://test.com"))
+            .expectNext("abc")
+            .verifyComplete();
+        verify(shortUrlRepository).findByShortUrl("abc");
+    }
+
+    @Test
+    void createShortUrls_existingAndNew_batchesWritesAndEvictions() {
+        ShortUrl existing = new ShortUrl();
+        existing.setShortUrl("old");
+        existing.setOriginalUrl("http://old.com");
+        when(urlHashService.hashUrl("http://old.com")).thenReturn("old");
+        when(urlHashService.hashUrl("http://a.com")).thenReturn("aaa");
+        when(urlHashService.hashUrl("http://b.com")).thenReturn("bbb");
+        // First codes of the whole batch, then the collision check of the new ones
+        when(dynamoDBMapper.batchLoad(anyList())).thenReturn(java.util.Map.of("ShortUrls", java.util.List.of(existing)), java.util.Map.of());
+        when(dynamoDBMapper.batchSave(anyList())).thenReturn(java.util.List.of());
+
+        java.util.Map<String, ShortUrlBatchResult> results = shortUrlService
+            .createShortUrls(java.util.List.of("http://old.com", "http://a.com", "http://b.com", "http://a.com"))
+            .collectMap(ShortUrlBatchResult::getOriginalUrl)
+            .block();
+
+        assertEquals(ShortUrlBatchResult.Status.EXISTING, results.get("http://old.com").getStatus());
+        assertEquals("old", results.get("http://old.com").getShortUrl());
+        assertEquals(ShortUrlBatchResult.Status.CREATED, results.get("http://a.com").getStatus());
+        assertEquals("bbb", results.get("http://b.com").getShortUrl());
+        verify(dynamoDBMapper, times(2)).batchLoad(anyList());
+        verify(dynamoDBMapper, times(1)).batchSave(argThat((java.util.List<Object> items) -> items.size() == 2));
+        verify(shortUrlRepository, never()).findByOriginalUrlHash(any());
+        verify(shortUrlRepository, never()).save(any());
+        verify(redisL2Cache).putAll(eq("shortUrlCache"), argThat(codes -> codes.keySet().equals(java.util.Set.of("aaa", "bbb"))));
+        verify(shortCodeFilter).recordCreated(argThat((java.util.Collection<String> codes) -> codes.size() == 2));
+    }
+
+    @Test
+    void createShortUrls_firstCodeHoldsAnotherUrl_looksTheUrlUp() {
+        ShortUrl other = new ShortUrl();
+        other.setShortUrl("aaa");
+        other.setOriginalUrl("http://other.com");
+        ShortUrl stored = new ShortUrl();
+        stored.setShortUrl("aab");
+        stored.setOriginalUrl("http://a.com");
+        when(urlHashService.hashUrl("http://a.com")).thenReturn("aaa");
+        when(dynamoDBMapper.batchLoad(anyList())).thenReturn(java.util.Map.of("ShortUrls", java.util.List.of(other)));
+        when(shortUrlRepository.findByOriginalUrlHash(ShortUrl.hashOriginalUrl("http://a.com")))
+            .thenReturn(java.util.List.of(stored));
+
+        ShortUrlBatchResult result = shortUrlService.createShortUrls(java.util.List.of("http://a.com")).blockFirst();
+
+        assertEquals(ShortUrlBatchResult.Status.EXISTING, result.getStatus());
+        assertEquals("aab", result.getShortUrl());
+        verify(dynamoDBMapper, never()).batchSave(anyList());
+    }
+
+    @Test
+    void getShortUrls_l2ThenBatchGet_backfillsCaches() {
+        ShortUrl inL2 = new ShortUrl();
+        inL2.setShortUrl("l2");
+        inL2.setOriginalUrl("http://l2.com");
+        ShortUrl inDb = new ShortUrl();
+        inDb.setShortUrl("db");
+        inDb.setOriginalUrl("http://db.com");
+        when(redisL2Cache.getAll("shortUrlCache", java.util.List.of("l2", "neg", "db", "nope")))
+            .thenReturn(Mono.just(java.util.Map.of("l2", inL2, "neg", RedisL2Cache.NEGATIVE)));
+        when(dynamoDBMapper.batchLoad(anyList())).thenReturn(java.util.Map.of("ShortUrls", java.util.List.of(inDb)));
+
+        java.util.Map<String, ShortUrl> found = shortUrlService
+            .getShortUrls(java.util.List.of("l2", "neg", "db", "nope", "db"))
+            .block();
+
+        assertEquals(java.util.Set.of("l2", "db"), found.keySet());
+        verify(dynamoDBMapper, times(1)).batchLoad(anyList());
+        verify(shortUrlRepository, never()).findByShortUrl(any());
+        verify(redisL2Cache).putAll("shortUrlCache", java.util.Map.of("db", inDb));
+        verify(redisL2Cache).putNegativeAll("shortUrlCache", java.util.List.of("nope"));
     }
 
     @Test
     void getShortUrlStats_returnsStats() {
         ShortUrl dummy = new ShortUrl();
-        when(shortUrlRepository.findById("abc")).thenReturn(java.util.Optional.of(dummy));
+        when(shortUrlRepository.findByShortUrl("abc")).thenReturn(dummy);
 
         StepVerifier.create(shortUrlService.getShortUrlStats("abc"))
             .expectNext(dummy)
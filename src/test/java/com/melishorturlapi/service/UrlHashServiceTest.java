@@ -1,6 +1,9 @@
 package com.melishorturlapi.service;
 
 import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UrlHashServiceTest {
@@ -58,4 +61,64 @@ public class UrlHashServiceTest {
         assertEquals(12, hash.length(), "Custom hash length for large URL should be 12");
         assertTrue(hash.matches("[0-9A-Za-z]+"), "Hash should be base62");
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testMurmur3Output() {
+        UrlHashService service = new UrlHashService("murmur3");
+        String hash = service.hashUrl("https://www.mercadolibre.com.ar/");
+        assertEquals(6, hash.length(), "Default hash length should be 6");
+        assertTrue(hash.matches("[0-9A-Za-z]+"), "Hash should be base62");
+        assertEquals(hash, service.hashUrl("https://www.mercadolibre.com.ar/"), "Murmur3 hash should be deterministic");
+        assertNotEquals(hash, new UrlHashService().hashUrl("https://www.mercadolibre.com.ar/"), "Algorithms should produce different codes");
+    }
+
+    @Test
+    void testMurmur3ReferenceVectors() {
+        assertEquals("00000000000000000000000000000000", murmur3Hex(""));
+        assertEquals("897859f6655555855a890e51483ab5e6", murmur3Hex("a"));
+        assertEquals("e993c5ec23775609e5ea770ec527b7bd", murmur3Hex("https://www.mercadolibre.com.ar/"));
+        assertEquals("672f0e704be9b49da69f6b22f8861fa5",
+            murmur3Hex("https://eletronicos.mercadolivre.com.br/seguranca-casa/#menu=categories"));
+    }
+
+    @Test
+    void testNonAsciiUrl() {
+        UrlHashService service = new UrlHashService();
+        String hash = service.hashUrl("https://es.wikipedia.org/wiki/Año");
+        assertEquals(6, hash.length());
+        assertNotEquals(hash, service.hashUrl("https://es.wikipedia.org/wiki/Ano"), "Non-ASCII chars should be hashed as UTF-8");
+    }
+
+    @Test
+    void testLongCodeOutlastsTheDigest() {
+        UrlHashService service = new UrlHashService(40, new Murmur3UrlHashFunction());
+        String hash = service.hashUrl("https://www.mercadolibre.com.ar/");
+        assertEquals(40, hash.length(), "Codes longer than one digest should rehash for more bits");
+        assertTrue(hash.matches("[0-9A-Za-z]+"), "Hash should be base62");
+    }
+
+    @Test
+    void testSymbolsAreUnbiased() {
+        UrlHashService service = new UrlHashService(1);
+        int[] counts = new int[128];
+        int samples = 62 * 500;
+        for (int i = 0; i < samples; i++) {
+            counts[service.hashUrl("https://www.mercadolibre.com.ar/item/" + i).charAt(0)]++;
+        }
+        // Mapping 6 bits with idx % 62 gave '0' and '1' twice the share of any other symbol
+        for (char c : "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray()) {
+            assertTrue(counts[c] > 380 && counts[c] < 620, "Symbol " + c + " drawn " + counts[c] + " times, expected ~500");
+        }
+    }
+
+    private static String murmur3Hex(String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[16];
+        new Murmur3UrlHashFunction().hash(bytes, bytes.length, out);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : out) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.melishorturlapi.stats;
+
+import com.melishorturlapi.model.HotLink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotLinksTrackerTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final HotLinksTracker tracker = new HotLinksTracker(60, 16, 512, now::get);
+
+    @Test
+    void top_ranksCodesAcrossTheWindow() {
+        IntStream.range(0, 30).forEach(i -> tracker.recordRedirect("hot"));
+        IntStream.range(0, 10).forEach(i -> tracker.recordRedirect("warm"));
+        now.addAndGet(2 * MINUTE);
+        IntStream.range(0, 15).forEach(i -> tracker.recordRedirect("warm"));
+        IntStream.range(0, 200).forEach(i -> tracker.recordRedirect("tail" + i));
+
+        List<HotLink> top = tracker.top(2, 5);
+
+        assertEquals(2, top.size());
+        assertEquals("hot", top.get(0).getShortUrl());
+        assertEquals(30, top.get(0).getRedirects());
+        assertEquals("warm", top.get(1).getShortUrl());
+        assertEquals(25, top.get(1).getRedirects());
+    }
+
+    @Test
+    void top_dropsMinutesThatSlideOutOfTheWindow() {
+        IntStream.range(0, 50).forEach(i -> tracker.recordRedirect("old"));
+        now.addAndGet(10 * MINUTE);
+        IntStream.range(0, 5).forEach(i -> tracker.recordRedirect("new"));
+
+        List<HotLink> lastFive = tracker.top(10, 5);
+        assertEquals(1, lastFive.size());
+        assertEquals("new", lastFive.get(0).getShortUrl());
+
+        assertEquals("old", tracker.top(10, 15).get(0).getShortUrl());
+
+        now.addAndGet(60 * MINUTE);
+        assertTrue(tracker.top(10, 60).isEmpty());
+    }
+
+    @Test
+    void windowMinutes_parsesMinutesAndHoursWithinTheRing() {
+        assertEquals(5, tracker.windowMinutes("5m"));
+        assertEquals(60, tracker.windowMinutes("1h"));
+        assertThrows(IllegalArgumentException.class, () -> tracker.windowMinutes("2h"));
+        assertThrows(IllegalArgumentException.class, () -> tracker.windowMinutes("0m"));
+        assertThrows(IllegalArgumentException.class, () -> tracker.windowMinutes("five"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.melishorturlapi.stats;
+
+import com.melishorturlapi.model.LinkStats;
+import com.melishorturlapi.service.MetricsService;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LinkStatsEngineTest {
+
+    private static final long MINUTE = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private LinkStatsEngine engine(int maxCodes, String snapshotPath) {
+        return new LinkStatsEngine(mock(MetricsService.class), maxCodes, snapshotPath, Duration.ofMinutes(1), now::get);
+    }
+
+    @Test
+    void stats_countsPerWindowAndAgesOut() {
+        LinkStatsEngine engine = engine(16, null);
+        engine.recordRedirect("abc");
+        engine.recordRedirect("abc");
+        engine.recordView("abc");
+        now.addAndGet(30 * MINUTE);
+        engine.recordRedirect("abc");
+
+        assertCounts(engine.stats("abc", StatsWindow.MINUTE), 1, 0);
+        assertCounts(engine.stats("abc", StatsWindow.HOUR), 3, 1);
+        assertCounts(engine.stats("abc", StatsWindow.DAY), 3, 1);
+
+        now.addAndGet(45 * MINUTE);
+        assertCounts(engine.stats("abc", StatsWindow.HOUR), 1, 0);
+        assertCounts(engine.stats("abc", StatsWindow.DAY), 3, 1);
+
+        now.addAndGet(25 * 60 * MINUTE);
+        assertCounts(engine.stats("abc", StatsWindow.DAY), 0, 0);
+        assertCounts(engine.stats("never", StatsWindow.DAY), 0, 0);
+    }
+
+    @Test
+    void record_concurrentIncrementsAreNotLost() {
+        LinkStatsEngine engine = engine(1024, null);
+        IntStream.range(0, 80_000).parallel().forEach(i -> engine.recordRedirect("c" + (i % 100)));
+
+        long total = IntStream.range(0, 100)
+            .mapToLong(i -> engine.stats("c" + i, StatsWindow.MINUTE).getRedirects())
+            .sum();
+        assertEquals(80_000, total);
+    }
+
+    @Test
+    void record_racingNewCodesDoNotLeakSlots() {
+        // As many codes as slots, each first seen by several threads at once
+        LinkStatsEngine engine = engine(1000, null);
+        IntStream.range(0, 80_000).parallel().forEach(i -> engine.recordRedirect("c" + (i % 1000)));
+
+        IntStream.range(0, 1000).forEach(i -> assertTrue(engine.stats("c" + i, StatsWindow.MINUTE).getRedirects() > 0));
+    }
+
+    @Test
+    void record_fullTable_dropsNewCodesOnly() {
+        LinkStatsEngine engine = engine(2, null);
+        engine.recordRedirect("a");
+        engine.recordRedirect("b");
+        engine.recordRedirect("c");
+        engine.recordRedirect("a");
+
+        assertCounts(engine.stats("a", StatsWindow.MINUTE), 2, 0);
+        assertCounts(engine.stats("c", StatsWindow.MINUTE), 0, 0);
+        assertTrue(engine.stats("a", StatsWindow.MINUTE).isTracked());
+        assertFalse(engine.stats("c", StatsWindow.MINUTE).isTracked(), "A code past max-codes is flagged, not a real zero");
+    }
+
+    @Test
+    void compact_dropsCodesIdleForADayWhenFilling() {
+        LinkStatsEngine engine = engine(4, null);
+        engine.recordRedirect("old1");
+        engine.recordRedirect("old2");
+        now.addAndGet(25 * 60 * MINUTE);
+        engine.recordRedirect("new1");
+        engine.recordRedirect("new2");
+
+        engine.compact();
+        engine.recordRedirect("new3");
+        engine.recordRedirect("new4");
+
+        assertCounts(engine.stats("new1", StatsWindow.MINUTE), 1, 0);
+        assertCounts(engine.stats("new4", StatsWindow.MINUTE), 1, 0);
+    }
+
+    @Test
+    void snapshot_roundTripsLiveBuckets(@TempDir Path dir) {
+        String path = dir.resolve("stats/link-stats.snapshot").toString();
+        LinkStatsEngine engine = engine(16, path);
+        engine.recordRedirect("abc");
+        now.addAndGet(10 * MINUTE);
+        engine.recordRedirect("abc");
+        engine.recordView("xyz");
+        engine.compact();
+
+        LinkStatsEngine restored = engine(16, path);
+        restored.load();
+        assertCounts(restored.stats("abc", StatsWindow.HOUR), 2, 0);
+        assertCounts(restored.stats("abc", StatsWindow.MINUTE), 1, 0);
+        assertCounts(restored.stats("xyz", StatsWindow.DAY), 0, 1);
+    }
+
+    private static void assertCounts(LinkStats stats, long redirects, long views) {
+        assertEquals(redirects, stats.getRedirects(), "redirects");
+        assertEquals(views, stats.getViews(), "views");
+    }
+}
@@ -0,0 +1,87 @@
+package com.melishorturlapi.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTrackerTest {
+
+    @Test
+    void promote_keepsHeavyKeysAndRejectsTheTail() {
+        TopKTracker<String> tracker = new TopKTracker<>(3, new CountMinSketch(4, 1024), key -> "v-" + key);
+        for (int round = 0; round < 50; round++) {
+            tracker.offer("hot1");
+            tracker.offer("hot2");
+            tracker.offer("hot3");
+        }
+        tracker.promote();
+        IntStream.range(0, 500).forEach(i -> assertNull(tracker.offer("tail" + i)));
+        tracker.promote();
+
+        assertEquals("v-hot1", tracker.offer("hot1"));
+        assertTrue(tracker.isMember("hot2"));
+        assertTrue(tracker.isMember("hot3"));
+        assertEquals(3, tracker.size());
+    }
+
+    @Test
+    void offer_onlyNotesCandidatesUntilPromote() {
+        TopKTracker<String> tracker = new TopKTracker<>(2, new CountMinSketch(4, 1024), key -> key);
+        IntStream.range(0, 10).forEach(i -> assertNull(tracker.offer("a")));
+        assertEquals(0, tracker.size());
+
+        tracker.promote();
+
+        assertEquals("a", tracker.offer("a"));
+    }
+
+    @Test
+    void promote_newcomerDisplacesWeakestOnceItOutgrowsIt() {
+        TopKTracker<String> tracker = new TopKTracker<>(2, new CountMinSketch(4, 1024), key -> key);
+        IntStream.range(0, 10).forEach(i -> tracker.offer("a"));
+        IntStream.range(0, 3).forEach(i -> tracker.offer("b"));
+        tracker.promote();
+        IntStream.range(0, 3).forEach(i -> assertNull(tracker.offer("c")));
+        tracker.promote();
+        assertFalse(tracker.isMember("c"), "A tie with the weakest member is not enough");
+
+        assertNull(tracker.offer("c"));
+        tracker.promote();
+
+        assertEquals("c", tracker.offer("c"));
+        assertTrue(tracker.isMember("a"));
+        assertFalse(tracker.isMember("b"));
+    }
+
+    @Test
+    void decay_letsRecentTrafficOvertakeOldTraffic() {
+        TopKTracker<String> tracker = new TopKTracker<>(1, new CountMinSketch(4, 1024), key -> key);
+        IntStream.range(0, 100).forEach(i -> tracker.offer("old"));
+        tracker.promote();
+        tracker.decay();
+        tracker.decay();
+        tracker.decay();
+
+        IntStream.range(0, 20).forEach(i -> tracker.offer("new"));
+        tracker.promote();
+
+        assertTrue(tracker.isMember("new"));
+        assertFalse(tracker.isMember("old"));
+    }
+
+    @Test
+    void sketch_neverUndercountsAndMergesByAdding() {
+        CountMinSketch left = new CountMinSketch(4, 256);
+        CountMinSketch right = new CountMinSketch(4, 256);
+        IntStream.range(0, 1000).forEach(i -> left.add("k" + (i % 100), 1));
+        right.add("k7", 5);
+
+        left.merge(right);
+
+        assertTrue(left.estimate("k7") >= 15);
+        IntStream.range(0, 100).forEach(i -> assertTrue(left.estimate("k" + i) >= 10));
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new CountMinSketch(4, 128)));
+    }
+}